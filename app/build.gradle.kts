@@ -58,6 +58,10 @@ android {
         viewBinding = true
         buildConfig = true
     }
+    androidResources {
+        // The on-device detection model is memory-mapped from the APK
+        noCompress += "tflite"
+    }
 }
 
 dependencies {
@@ -79,9 +83,17 @@ dependencies {
     // HTTP client for Hugging Face API
     implementation("com.squareup.okhttp3:okhttp:4.12.0")
     implementation("com.google.code.gson:gson:2.10.1")
+    // On-device YOLO inference (CPU, XNNPACK)
+    implementation("org.tensorflow:tensorflow-lite:2.16.1")
+    // CameraX feed for live detection
+    implementation("androidx.camera:camera-camera2:1.4.2")
+    implementation("androidx.camera:camera-lifecycle:1.4.2")
+    implementation("androidx.camera:camera-view:1.4.2")
     implementation(libs.play.services.ads)
     implementation(libs.guava)
     testImplementation(libs.junit)
+    // Local SSE stand-in server for streaming tests
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
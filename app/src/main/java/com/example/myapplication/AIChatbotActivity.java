@@ -67,6 +67,8 @@ public class AIChatbotActivity extends AppCompatActivity {
         
         // Initialize Gemini Chat Service
         chatService = new GeminiChatService(this);
+        // Abandon in-flight requests when the screen is closed
+        chatService.bindToLifecycle(this);
         
         // Check API key configuration
         if (!chatService.isApiKeyConfigured()) {
@@ -75,6 +77,7 @@ public class AIChatbotActivity extends AppCompatActivity {
         } else {
             // Show welcome message
             showWelcomeMessage();
+            chatService.prewarmConnection();
         }
         
         // Send button click listener
@@ -115,14 +118,35 @@ public class AIChatbotActivity extends AppCompatActivity {
         // Disable send button while processing
         sendButton.setEnabled(false);
         
-        // Send message to AI
-        chatService.sendMessage(message, new GeminiChatService.ChatCallback() {
+        // Stream the AI response so the first words appear as soon as they are generated
+        final StringBuilder streamedText = new StringBuilder();
+        chatService.sendMessageStreaming(message, new GeminiChatService.StreamCallback() {
             @Override
-            public void onResponse(String response) {
+            public void onPartial(String delta) {
+                runOnUiThread(() -> {
+                    if (streamedText.length() == 0) {
+                        // Hide the spinner but keep send disabled until the stream completes
+                        setLoading(false);
+                        sendButton.setEnabled(false);
+                        streamedText.append(delta);
+                        showMessage("AI Assistant", streamedText.toString(), false);
+                    } else {
+                        streamedText.append(delta);
+                        updateLastMessage(streamedText.toString());
+                    }
+                });
+            }
+            
+            @Override
+            public void onComplete(String response) {
                 runOnUiThread(() -> {
                     setLoading(false);
                     sendButton.setEnabled(true);
-                    showMessage("AI Assistant", response, false);
+                    if (streamedText.length() == 0) {
+                        showMessage("AI Assistant", response, false);
+                    } else {
+                        updateLastMessage(response);
+                    }
                 });
             }
             
@@ -141,10 +165,25 @@ public class AIChatbotActivity extends AppCompatActivity {
     private void showMessage(String sender, String message, boolean isUser) {
         ChatMessage chatMessage = new ChatMessage(sender, message, isUser, System.currentTimeMillis());
         chatMessages.add(chatMessage);
-        
+        renderChatHistory();
+    }
+    
+    /**
+     * Replace the text of the last message (used while a response is streaming in)
+     */
+    private void updateLastMessage(String message) {
+        if (chatMessages.isEmpty()) {
+            return;
+        }
+        ChatMessage last = chatMessages.get(chatMessages.size() - 1);
+        chatMessages.set(chatMessages.size() - 1,
+            new ChatMessage(last.getSender(), message, last.isUser(), last.getTimestamp()));
+        renderChatHistory();
+    }
+    
+    private void renderChatHistory() {
         // Format timestamp
         SimpleDateFormat sdf = new SimpleDateFormat("HH:mm", Locale.getDefault());
-        String timestamp = sdf.format(new Date(chatMessage.getTimestamp()));
         
         // Build chat history
         StringBuilder chatHistory = new StringBuilder();
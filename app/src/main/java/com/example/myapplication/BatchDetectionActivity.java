@@ -0,0 +1,195 @@
+package com.example.myapplication;
+
+import android.content.ClipData;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.view.WindowManager;
+import android.widget.Toast;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
+
+import com.example.myapplication.databinding.ActivityBatchDetectionBinding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Object detection over a multi-select from the gallery.
+ * Images are decoded straight to the model input size and detected by a
+ * BatchDetectionRunner, with progress, throughput and a per-label summary.
+ */
+public class BatchDetectionActivity extends AppCompatActivity {
+
+    private static final int REQUEST_IMAGES_PICK = 1;
+    // Images decoded and in detection at once. The on-device backend runs one inference
+    // at a time anyway; for the API this keeps a few requests in flight without flooding it.
+    private static final int BATCH_CONCURRENCY = 3;
+
+    private ActivityBatchDetectionBinding binding;
+    private HuggingFaceYOLOService yoloService;
+    private ImageLoader imageLoader;
+    private BatchDetectionRunner<Uri> runner;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        binding = ActivityBatchDetectionBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
+
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setTitle("Batch Detection");
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+        binding.toolbar.setNavigationOnClickListener(v -> finish());
+
+        yoloService = new HuggingFaceYOLOService(this);
+        imageLoader = new ImageLoader(this);
+        runner = new BatchDetectionRunner<>(this::detect, BATCH_CONCURRENCY, ContextCompat.getMainExecutor(this));
+
+        binding.buttonSelectImages.setOnClickListener(v -> selectImages());
+        binding.buttonCancel.setOnClickListener(v -> {
+            runner.cancel();
+            // Images already uploading stop too instead of waiting for their answers
+            yoloService.cancelRemoteCalls();
+            binding.buttonCancel.setEnabled(false);
+            binding.textViewProgress.append("\nCancelling...");
+        });
+        binding.buttonSelectImages.setEnabled(yoloService.isAvailable());
+        if (!yoloService.isAvailable()) {
+            binding.textViewProgress.setText("Object detection not configured");
+        } else {
+            yoloService.prewarmConnection();
+        }
+    }
+
+    private void selectImages() {
+        // The system picker needs no storage permission
+        Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
+        intent.setType("image/*");
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
+        startActivityForResult(Intent.createChooser(intent, "Select Images"), REQUEST_IMAGES_PICK);
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode != REQUEST_IMAGES_PICK || resultCode != RESULT_OK || data == null) {
+            return;
+        }
+
+        List<Uri> uris = new ArrayList<>();
+        ClipData clipData = data.getClipData();
+        if (clipData != null) {
+            for (int i = 0; i < clipData.getItemCount(); i++) {
+                uris.add(clipData.getItemAt(i).getUri());
+            }
+        } else if (data.getData() != null) {
+            uris.add(data.getData());
+        }
+        if (uris.isEmpty()) {
+            return;
+        }
+        startBatch(uris);
+    }
+
+    private void startBatch(List<Uri> uris) {
+        if (runner.isRunning()) {
+            Toast.makeText(this, "A batch is already running", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        binding.buttonSelectImages.setEnabled(false);
+        binding.buttonCancel.setEnabled(true);
+        binding.progressBar.setMax(uris.size());
+        binding.progressBar.setProgress(0);
+        binding.textViewProgress.setText("Detecting objects in " + uris.size() + " images...");
+        binding.textViewSummary.setText("");
+        // Batches of hundreds of images take a while
+        getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+
+        runner.start(uris, new BatchDetectionRunner.Listener<Uri>() {
+            @Override
+            public void onProgress(BatchDetectionRunner.Progress progress, Uri item,
+                                   List<HuggingFaceYOLOService.DetectedObject> detections, String error) {
+                if (isDestroyed()) {
+                    return;
+                }
+                binding.progressBar.setProgress(progress.completed);
+                binding.textViewProgress.setText(String.format(Locale.US,
+                        "%d / %d images | %.1f images/s | %d failed",
+                        progress.completed, progress.total, progress.getImagesPerSecond(), progress.failed));
+            }
+
+            @Override
+            public void onFinished(BatchDetectionRunner.Summary summary) {
+                if (isDestroyed()) {
+                    return;
+                }
+                getWindow().clearFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+                binding.buttonSelectImages.setEnabled(true);
+                binding.buttonCancel.setEnabled(false);
+                showSummary(summary);
+            }
+        });
+    }
+
+    /**
+     * Runs on a runner worker thread
+     */
+    private List<HuggingFaceYOLOService.DetectedObject> detect(Uri uri) throws Exception {
+        ImageLoader.Loaded image = imageLoader.loadForModel(uri);
+        try {
+            HuggingFaceYOLOService.DetectionResult result = yoloService.detectObjectsSync(image.model);
+            // Batched with the other workers' results into one transaction; cached ones are recorded already
+            if (!result.fromCache) {
+                DetectionHistoryStore.getInstance(this).record(new DetectionHistoryStore.Entry(
+                        uri.toString(), image.model.getWidth(), image.model.getHeight(),
+                        result.backendName, DetectionHistoryStore.encodeThumbnail(image.model),
+                        result.detections));
+            }
+            return result.detections;
+        } finally {
+            imageLoader.release(image);
+        }
+    }
+
+    private void showSummary(BatchDetectionRunner.Summary summary) {
+        binding.textViewProgress.setText(String.format(Locale.US,
+                "%s: %d of %d images in %.1f s (%.1f images/s)",
+                summary.cancelled ? "Cancelled" : "Done",
+                summary.succeeded + summary.failed, summary.total,
+                summary.elapsedMs / 1000f, summary.getImagesPerSecond()));
+
+        StringBuilder text = new StringBuilder();
+        text.append(summary.objectCount).append(" objects in ")
+                .append(summary.imagesWithObjects).append(" images");
+        if (summary.failed > 0) {
+            text.append("\n").append(summary.failed).append(" images failed");
+        }
+        if (summary.getSkipped() > 0) {
+            text.append("\n").append(summary.getSkipped()).append(" images skipped");
+        }
+        text.append("\n\n");
+        for (Map.Entry<String, Integer> entry : summary.labelCounts) {
+            text.append("• ").append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
+        }
+        binding.textViewSummary.setText(text.toString());
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // Workers still detecting use the service and the loader; close them once they are done,
+        // which aborting their uploads makes quick
+        yoloService.cancelRemoteCalls();
+        runner.cancel(() -> {
+            yoloService.close();
+            imageLoader.close();
+        });
+    }
+}
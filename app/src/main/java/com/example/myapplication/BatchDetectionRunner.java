@@ -0,0 +1,244 @@
+package com.example.myapplication;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs detection over a set of images with a bounded number of workers.
+ * Workers pull the next image when they finish one, so at most `concurrency` images are
+ * decoded and in detection at any time (memory and API load stay bounded however large
+ * the selection is). Progress is reported per image and a per-label summary at the end.
+ * Cancelling stops workers from taking new images; images already in detection finish.
+ *
+ * @param <T> Image reference, e.g. a content Uri
+ */
+public class BatchDetectionRunner<T> {
+
+    public interface Detector<T> {
+        /**
+         * Detect objects in one image, on a worker thread
+         */
+        List<HuggingFaceYOLOService.DetectedObject> detect(T item) throws Exception;
+    }
+
+    public interface Listener<T> {
+        /**
+         * One image finished; detections is null and error set when it failed
+         */
+        void onProgress(Progress progress, T item, List<HuggingFaceYOLOService.DetectedObject> detections, String error);
+
+        void onFinished(Summary summary);
+    }
+
+    /**
+     * Counters at the time one image finished
+     */
+    public static class Progress {
+        public final int completed;
+        public final int failed;
+        public final int total;
+        public final long elapsedMs;
+
+        Progress(int completed, int failed, int total, long elapsedMs) {
+            this.completed = completed;
+            this.failed = failed;
+            this.total = total;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public float getImagesPerSecond() {
+            return elapsedMs > 0 ? completed * 1000f / elapsedMs : 0f;
+        }
+    }
+
+    /**
+     * Result of a whole batch
+     */
+    public static class Summary {
+        public final int total;
+        public final int succeeded;
+        public final int failed;
+        public final boolean cancelled;
+        public final long elapsedMs;
+        public final int objectCount;
+        public final int imagesWithObjects;
+        // Label counts over all images, most frequent first
+        public final List<Map.Entry<String, Integer>> labelCounts;
+
+        Summary(int total, int succeeded, int failed, boolean cancelled, long elapsedMs,
+                int objectCount, int imagesWithObjects, List<Map.Entry<String, Integer>> labelCounts) {
+            this.total = total;
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.cancelled = cancelled;
+            this.elapsedMs = elapsedMs;
+            this.objectCount = objectCount;
+            this.imagesWithObjects = imagesWithObjects;
+            this.labelCounts = labelCounts;
+        }
+
+        /**
+         * Images never processed because the batch was cancelled
+         */
+        public int getSkipped() {
+            return total - succeeded - failed;
+        }
+
+        public float getImagesPerSecond() {
+            return elapsedMs > 0 ? (succeeded + failed) * 1000f / elapsedMs : 0f;
+        }
+    }
+
+    private final Detector<T> detector;
+    private final int concurrency;
+    private final Executor callbackExecutor;
+
+    private volatile boolean cancelled;
+    private ExecutorService workers;
+    // Run once the workers of a cancelled batch are done, guarded by this
+    private Runnable whenStopped;
+
+    // Batch state, guarded by this
+    private final Map<String, Integer> labelCounts = new HashMap<>();
+    private int succeeded;
+    private int failed;
+    private int objectCount;
+    private int imagesWithObjects;
+
+    /**
+     * @param concurrency      Images in flight at once (decode + detection)
+     * @param callbackExecutor Where listener calls run, e.g. the main thread
+     */
+    public BatchDetectionRunner(Detector<T> detector, int concurrency, Executor callbackExecutor) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        this.detector = detector;
+        this.concurrency = concurrency;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Start detection over items. Only one batch runs at a time.
+     */
+    public synchronized void start(List<T> items, Listener<T> listener) {
+        if (isRunning()) {
+            throw new IllegalStateException("A batch is already running");
+        }
+        List<T> batch = new ArrayList<>(items);
+        cancelled = false;
+        labelCounts.clear();
+        succeeded = 0;
+        failed = 0;
+        objectCount = 0;
+        imagesWithObjects = 0;
+
+        int workerCount = Math.max(1, Math.min(concurrency, batch.size()));
+        long start = System.currentTimeMillis();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger(workerCount);
+        ExecutorService pool = Executors.newFixedThreadPool(workerCount);
+        workers = pool;
+        for (int w = 0; w < workerCount; w++) {
+            pool.execute(() -> {
+                int index;
+                while (!cancelled && (index = next.getAndIncrement()) < batch.size()) {
+                    process(batch.get(index), batch.size(), start, listener);
+                }
+                // The last worker out reports the summary
+                if (running.decrementAndGet() == 0) {
+                    Summary summary = summarize(batch.size(), start);
+                    Runnable stopped;
+                    synchronized (this) {
+                        pool.shutdown();
+                        stopped = whenStopped;
+                        whenStopped = null;
+                    }
+                    if (stopped != null) {
+                        stopped.run();
+                    }
+                    callbackExecutor.execute(() -> listener.onFinished(summary));
+                }
+            });
+        }
+    }
+
+    /**
+     * Stop taking new images; the summary still arrives once in-flight images finish
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Cancel, then run whenStopped once no worker is detecting any more: right away when idle,
+     * otherwise on the last worker's thread. For releasing what the detector uses.
+     */
+    public void cancel(Runnable whenStopped) {
+        cancelled = true;
+        synchronized (this) {
+            if (isRunning()) {
+                this.whenStopped = whenStopped;
+                return;
+            }
+        }
+        whenStopped.run();
+    }
+
+    public synchronized boolean isRunning() {
+        return workers != null && !workers.isShutdown();
+    }
+
+    private void process(T item, int total, long start, Listener<T> listener) {
+        List<HuggingFaceYOLOService.DetectedObject> detections = null;
+        String error = null;
+        try {
+            detections = detector.detect(item);
+        } catch (Exception e) {
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+
+        Progress progress;
+        synchronized (this) {
+            if (detections != null) {
+                succeeded++;
+                objectCount += detections.size();
+                if (!detections.isEmpty()) {
+                    imagesWithObjects++;
+                }
+                for (HuggingFaceYOLOService.DetectedObject detection : detections) {
+                    Integer count = labelCounts.get(detection.getLabel());
+                    labelCounts.put(detection.getLabel(), count == null ? 1 : count + 1);
+                }
+            } else {
+                failed++;
+            }
+            progress = new Progress(succeeded + failed, failed, total, System.currentTimeMillis() - start);
+        }
+
+        List<HuggingFaceYOLOService.DetectedObject> result = detections;
+        String message = error;
+        callbackExecutor.execute(() -> listener.onProgress(progress, item, result, message));
+    }
+
+    private synchronized Summary summarize(int total, long start) {
+        List<Map.Entry<String, Integer>> counts = new ArrayList<>(labelCounts.size());
+        for (Map.Entry<String, Integer> entry : labelCounts.entrySet()) {
+            counts.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+        }
+        Collections.sort(counts, (a, b) -> {
+            int byCount = Integer.compare(b.getValue(), a.getValue());
+            return byCount != 0 ? byCount : a.getKey().compareTo(b.getKey());
+        });
+        return new Summary(total, succeeded, failed, cancelled, System.currentTimeMillis() - start,
+                objectCount, imagesWithObjects, counts);
+    }
+}
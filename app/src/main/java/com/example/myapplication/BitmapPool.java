@@ -0,0 +1,110 @@
+package com.example.myapplication;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Small pool of mutable bitmaps, reused as decode targets (inBitmap) and render targets.
+ * Any pooled bitmap whose allocation is large enough is handed out, reconfigured to the
+ * requested size, so selecting a new photo reuses the memory of the previous one
+ * instead of allocating tens of megabytes again.
+ * Thread-safe.
+ */
+public class BitmapPool {
+
+    private final long maxBytes;
+    private final List<Bitmap> bitmaps = new ArrayList<>();
+    private long pooledBytes;
+    private int hits;
+    private int misses;
+
+    public BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Mutable bitmap of exactly width x height, from the pool when one is large enough
+     */
+    public Bitmap get(int width, int height, Bitmap.Config config) {
+        Bitmap reusable = take(bytesFor(width, height, config));
+        if (reusable != null) {
+            reusable.reconfigure(width, height, config);
+            return reusable;
+        }
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * Bitmap to pass as BitmapFactory.Options.inBitmap for a decode of the given size, or null
+     */
+    public Bitmap getForDecode(int width, int height, Bitmap.Config config) {
+        return take(bytesFor(width, height, config));
+    }
+
+    /**
+     * Return a bitmap for reuse. The caller must no longer draw or display it.
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+        for (Bitmap pooled : bitmaps) {
+            if (pooled == bitmap) {
+                return;
+            }
+        }
+        long size = bitmap.getAllocationByteCount();
+        if (size > maxBytes) {
+            bitmap.recycle();
+            return;
+        }
+        // Evict the oldest until the new bitmap fits
+        while (pooledBytes + size > maxBytes && !bitmaps.isEmpty()) {
+            Bitmap evicted = bitmaps.remove(0);
+            pooledBytes -= evicted.getAllocationByteCount();
+            evicted.recycle();
+        }
+        bitmaps.add(bitmap);
+        pooledBytes += size;
+    }
+
+    public synchronized void clear() {
+        for (Bitmap bitmap : bitmaps) {
+            bitmap.recycle();
+        }
+        bitmaps.clear();
+        pooledBytes = 0;
+    }
+
+    public synchronized String describeStats() {
+        return "bitmaps=" + bitmaps.size() + " bytes=" + pooledBytes + " hits=" + hits + " misses=" + misses;
+    }
+
+    /**
+     * Smallest pooled bitmap that can hold the requested number of bytes
+     */
+    private synchronized Bitmap take(long bytes) {
+        int best = -1;
+        for (int i = 0; i < bitmaps.size(); i++) {
+            long size = bitmaps.get(i).getAllocationByteCount();
+            if (size >= bytes && (best < 0 || size < bitmaps.get(best).getAllocationByteCount())) {
+                best = i;
+            }
+        }
+        if (best < 0) {
+            misses++;
+            return null;
+        }
+        hits++;
+        Bitmap bitmap = bitmaps.remove(best);
+        pooledBytes -= bitmap.getAllocationByteCount();
+        return bitmap;
+    }
+
+    private static long bytesFor(int width, int height, Bitmap.Config config) {
+        int bytesPerPixel = config == Bitmap.Config.RGB_565 ? 2 : 4;
+        return (long) width * height * bytesPerPixel;
+    }
+}
@@ -2,42 +2,44 @@ package com.example.myapplication;
 
 import android.os.Bundle;
 import android.text.TextUtils;
-import android.view.View;
-import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
-import android.widget.ListView;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.database.ChildEventListener;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
 
 public class ChatActivity extends AppCompatActivity {
 
-    private ListView listViewMessages;
+    // Load older messages when this close to the top of the list
+    private static final int LOAD_OLDER_THRESHOLD = 3;
+
+    private RecyclerView recyclerViewMessages;
+    private LinearLayoutManager layoutManager;
     private EditText editTextMessage;
     private Button buttonSend;
     
-    private ArrayAdapter<String> adapter;
-    private List<String> messageList;
+    private ChatMessageAdapter adapter;
+    // Loaded messages, oldest first; the adapter gets a copy per submit
+    private final List<Message> messages = new ArrayList<>();
+    private boolean submitScheduled;
+    private boolean pendingScrollToEnd;
     
+    private DatabaseReference rootRef;
     private DatabaseReference messagesRef;
+    private ChatMessagePager pager;
+    private ChatMessageOutbox outbox;
     private FirebaseAuth mAuth;
     private FirebaseUser currentUser;
     
@@ -78,13 +80,15 @@ public class ChatActivity extends AppCompatActivity {
         }
 
         // Initialize views
-        listViewMessages = findViewById(R.id.listViewMessages);
+        recyclerViewMessages = findViewById(R.id.recyclerViewMessages);
         editTextMessage = findViewById(R.id.editTextMessage);
         buttonSend = findViewById(R.id.buttonSend);
 
-        messageList = new ArrayList<>();
-        adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, messageList);
-        listViewMessages.setAdapter(adapter);
+        layoutManager = new LinearLayoutManager(this);
+        layoutManager.setStackFromEnd(true);
+        recyclerViewMessages.setLayoutManager(layoutManager);
+        adapter = new ChatMessageAdapter(currentUser.getUid(), receiverName);
+        recyclerViewMessages.setAdapter(adapter);
 
         // Generate chat ID (sorted to ensure same chat for both users)
         String senderId = currentUser.getUid();
@@ -94,7 +98,8 @@ public class ChatActivity extends AppCompatActivity {
 
         // Initialize Firebase Database
         FirebaseDatabase database = FirebaseDatabase.getInstance();
-        messagesRef = database.getReference("chats").child(chatId).child("messages");
+        rootRef = database.getReference();
+        messagesRef = rootRef.child("chats").child(chatId).child("messages");
 
         // Load messages
         loadMessages();
@@ -103,54 +108,109 @@ public class ChatActivity extends AppCompatActivity {
         buttonSend.setOnClickListener(v -> sendMessage());
     }
 
+    /**
+     * Stored messages first, then only newer ones from the network; older pages when scrolling up
+     */
     private void loadMessages() {
-        messagesRef.addChildEventListener(new ChildEventListener() {
+        pager = new ChatMessagePager(messagesRef, ChatMessagePager.DEFAULT_PAGE_SIZE,
+                ChatMessageStore.getInstance(this), chatId, new ChatMessagePager.Listener() {
             @Override
-            public void onChildAdded(DataSnapshot dataSnapshot, String previousChildName) {
-                Message message = dataSnapshot.getValue(Message.class);
-                if (message != null) {
-                    addMessageToView(message);
+            public void onInitialPage(List<Message> page, boolean hasOlder) {
+                // Restored outbox messages may already be shown
+                for (Message message : page) {
+                    merge(message);
                 }
+                scheduleSubmit(true);
             }
 
             @Override
-            public void onChildChanged(DataSnapshot dataSnapshot, String previousChildName) {
-                // Handle message updates if needed
+            public void onOlderPage(List<Message> page, boolean hasOlder) {
+                // Inserted above the visible rows; the layout manager keeps them in place
+                messages.addAll(0, page);
+                scheduleSubmit(false);
             }
 
             @Override
-            public void onChildRemoved(DataSnapshot dataSnapshot) {
-                // Handle message removal if needed
+            public void onNewMessage(Message message) {
+                merge(message);
+                scheduleSubmit(isAtBottom());
             }
 
             @Override
-            public void onChildMoved(DataSnapshot dataSnapshot, String previousChildName) {
-                // Handle message moves if needed
+            public void onStoreDropped() {
+                // Unsent messages are kept; the rest is replaced by the newest page
+                for (int i = messages.size() - 1; i >= 0; i--) {
+                    if (!messages.get(i).isPending()) {
+                        messages.remove(i);
+                    }
+                }
+                scheduleSubmit(false);
             }
 
             @Override
-            public void onCancelled(DatabaseError databaseError) {
-                Toast.makeText(ChatActivity.this, "Error loading messages: " + databaseError.getMessage(), Toast.LENGTH_SHORT).show();
+            public void onError(String error) {
+                Toast.makeText(ChatActivity.this, "Error loading messages: " + error, Toast.LENGTH_SHORT).show();
+            }
+        });
+        pager.start();
+
+        outbox = new ChatMessageOutbox(this, rootRef, ChatMessageStore.getInstance(this), chatId,
+                new ChatMessageOutbox.Listener() {
+                    @Override
+                    public void onRestored(List<Message> restored) {
+                        for (Message message : restored) {
+                            merge(message);
+                        }
+                        scheduleSubmit(true);
+                    }
+
+                    @Override
+                    public void onSent(List<Message> sent) {
+                        for (Message message : sent) {
+                            merge(message, true);
+                        }
+                        scheduleSubmit(false);
+                    }
+                });
+        outbox.start();
+
+        recyclerViewMessages.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy < 0 && layoutManager.findFirstVisibleItemPosition() < LOAD_OLDER_THRESHOLD
+                        && pager.hasOlder()) {
+                    pager.loadOlder();
+                }
             }
         });
     }
 
-    private void addMessageToView(Message message) {
-        String senderId = currentUser.getUid();
-        boolean isSender = message.getSenderId().equals(senderId);
-        
-        String senderName = isSender ? "You" : (receiverName != null ? receiverName : "User");
-        
-        // Format timestamp
-        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, HH:mm", Locale.getDefault());
-        String timestamp = sdf.format(new Date(message.getTimestamp()));
-        
-        // Format message display
-        String messageText = senderName + ": " + message.getMessage() + "\n" + timestamp;
-        
-        messageList.add(messageText);
-        adapter.notifyDataSetChanged();
-        listViewMessages.setSelection(adapter.getCount() - 1);
+    /**
+     * Hand the message list to the adapter once per frame, however many messages arrived
+     * @param scrollToEnd Scroll to the newest message once the list is displayed
+     */
+    private void scheduleSubmit(boolean scrollToEnd) {
+        pendingScrollToEnd |= scrollToEnd;
+        if (submitScheduled) {
+            return;
+        }
+        submitScheduled = true;
+        recyclerViewMessages.postOnAnimation(() -> {
+            submitScheduled = false;
+            boolean scroll = pendingScrollToEnd;
+            pendingScrollToEnd = false;
+            // The differ needs a new list instance to diff against the displayed one
+            adapter.submitList(new ArrayList<>(messages), () -> {
+                if (scroll && adapter.getItemCount() > 0) {
+                    recyclerViewMessages.scrollToPosition(adapter.getItemCount() - 1);
+                }
+            });
+        });
+    }
+
+    private boolean isAtBottom() {
+        int last = layoutManager.findLastVisibleItemPosition();
+        return last == RecyclerView.NO_POSITION || last >= adapter.getItemCount() - 2;
     }
 
     private void sendMessage() {
@@ -166,42 +226,56 @@ public class ChatActivity extends AppCompatActivity {
         // Create message
         Message message = new Message(senderId, receiverId, messageText, timestamp);
         
-        // Push message to database
         String messageId = messagesRef.push().getKey();
-        if (messageId != null) {
-            message.setMessageId(messageId);
-            messagesRef.child(messageId).setValue(message)
-                    .addOnCompleteListener(task -> {
-                        if (task.isSuccessful()) {
-                            editTextMessage.setText("");
-                            // Update last message in user chats
-                            updateUserChats(messageText, timestamp);
-                        } else {
-                            Toast.makeText(ChatActivity.this, "Failed to send message", Toast.LENGTH_SHORT).show();
-                        }
-                    });
+        if (messageId == null) {
+            return;
         }
+        message.setMessageId(messageId);
+
+        // Shown at once as pending; the outbox persists it and sends it when it can
+        editTextMessage.setText("");
+        outbox.send(message);
+        merge(message);
+        scheduleSubmit(true);
     }
 
-    private void updateUserChats(String lastMessage, long timestamp) {
-        FirebaseDatabase database = FirebaseDatabase.getInstance();
-        String senderId = currentUser.getUid();
-        
-        // Update sender's chat list
-        DatabaseReference senderChatRef = database.getReference("userChats").child(senderId).child(chatId);
-        Map<String, Object> senderChatData = new HashMap<>();
-        senderChatData.put("lastMessage", lastMessage);
-        senderChatData.put("timestamp", timestamp);
-        senderChatData.put("receiverId", receiverId);
-        senderChatRef.setValue(senderChatData);
-        
-        // Update receiver's chat list
-        DatabaseReference receiverChatRef = database.getReference("userChats").child(receiverId).child(chatId);
-        Map<String, Object> receiverChatData = new HashMap<>();
-        receiverChatData.put("lastMessage", lastMessage);
-        receiverChatData.put("timestamp", timestamp);
-        receiverChatData.put("receiverId", senderId);
-        receiverChatRef.setValue(receiverChatData);
+    private void merge(Message message) {
+        merge(message, false);
+    }
+
+    /**
+     * Add a message at its place in key order, or update the one with the same id.
+     * An echo of a message still pending in the outbox does not replace it; the acknowledgement does.
+     * @param acknowledged The message was acknowledged by the server and replaces a pending copy
+     */
+    private void merge(Message message, boolean acknowledged) {
+        String id = message.getMessageId();
+        int insertAt = messages.size();
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            Message existing = messages.get(i);
+            int order = existing.getMessageId().compareTo(id);
+            if (order == 0) {
+                if (acknowledged || !existing.isPending() || message.isPending()) {
+                    messages.set(i, message);
+                }
+                return;
+            }
+            if (order < 0) {
+                break;
+            }
+            insertAt = i;
+        }
+        messages.add(insertAt, message);
     }
-}
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (pager != null) {
+            pager.stop();
+        }
+        if (outbox != null) {
+            outbox.stop();
+        }
+    }
+}
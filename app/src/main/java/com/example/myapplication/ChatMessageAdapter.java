@@ -0,0 +1,143 @@
+package com.example.myapplication;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * RecyclerView adapter for a chat between two users.
+ * Lists are diffed off the main thread by an AsyncListDiffer keyed on messageId, so new or
+ * older pages only insert the changed rows instead of rebinding the whole list.
+ * Timestamps are formatted in bind with one shared formatter; messages still in the outbox
+ * show "Sending..." instead.
+ */
+public class ChatMessageAdapter extends RecyclerView.Adapter<ChatMessageAdapter.MessageViewHolder> {
+
+    private static final int MESSAGE_TYPE_SENT = 1;
+    private static final int MESSAGE_TYPE_RECEIVED = 2;
+
+    private static final DiffUtil.ItemCallback<Message> DIFF_CALLBACK = new DiffUtil.ItemCallback<Message>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Message oldItem, @NonNull Message newItem) {
+            return oldItem.getMessageId() != null && oldItem.getMessageId().equals(newItem.getMessageId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Message oldItem, @NonNull Message newItem) {
+            return oldItem.getTimestamp() == newItem.getTimestamp()
+                    && oldItem.isPending() == newItem.isPending()
+                    && equal(oldItem.getMessage(), newItem.getMessage())
+                    && equal(oldItem.getSenderId(), newItem.getSenderId());
+        }
+    };
+
+    private final AsyncListDiffer<Message> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    private final String currentUserId;
+    private final String receiverName;
+    // Main thread only, like binding
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("MMM dd, HH:mm", Locale.getDefault());
+    private final Date date = new Date();
+    // Stable RecyclerView ids for message ids, assigned on first sight
+    private final Map<String, Long> stableIds = new HashMap<>();
+    private long nextStableId = 1;
+
+    public ChatMessageAdapter(String currentUserId, String receiverName) {
+        this.currentUserId = currentUserId;
+        this.receiverName = receiverName;
+        setHasStableIds(true);
+    }
+
+    /**
+     * Show a new list of messages, oldest first. The list must not be modified afterwards.
+     * @param onCommitted Runs once the list is displayed, may be null
+     */
+    public void submitList(List<Message> messages, Runnable onCommitted) {
+        differ.submitList(messages, onCommitted);
+    }
+
+    public List<Message> getCurrentList() {
+        return differ.getCurrentList();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String messageId = differ.getCurrentList().get(position).getMessageId();
+        Long id = stableIds.get(messageId);
+        if (id == null) {
+            id = nextStableId++;
+            stableIds.put(messageId, id);
+        }
+        return id;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        Message message = differ.getCurrentList().get(position);
+        return currentUserId.equals(message.getSenderId()) ? MESSAGE_TYPE_SENT : MESSAGE_TYPE_RECEIVED;
+    }
+
+    @NonNull
+    @Override
+    public MessageViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        int layout = viewType == MESSAGE_TYPE_SENT ? R.layout.item_message_sent : R.layout.item_message_received;
+        View view = LayoutInflater.from(parent.getContext()).inflate(layout, parent, false);
+        return new MessageViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull MessageViewHolder holder, int position) {
+        Message message = differ.getCurrentList().get(position);
+        String time;
+        if (message.isPending()) {
+            time = "Sending...";
+        } else {
+            date.setTime(message.getTimestamp());
+            time = timeFormat.format(date);
+        }
+        holder.bind(message, time, receiverName);
+    }
+
+    @Override
+    public int getItemCount() {
+        return differ.getCurrentList().size();
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    static class MessageViewHolder extends RecyclerView.ViewHolder {
+        private final TextView messageText;
+        private final TextView timestampText;
+        // Only in the received layout
+        private final TextView senderNameText;
+
+        MessageViewHolder(@NonNull View itemView) {
+            super(itemView);
+            messageText = itemView.findViewById(R.id.textMessage);
+            timestampText = itemView.findViewById(R.id.textTimestamp);
+            senderNameText = itemView.findViewById(R.id.textSenderName);
+        }
+
+        void bind(Message message, String time, String receiverName) {
+            messageText.setText(message.getMessage());
+            timestampText.setText(time);
+            if (senderNameText != null) {
+                senderNameText.setText(receiverName != null ? receiverName : "User");
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.DatabaseReference;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Outbound messages of one chat.
+ * A message is stored in the ChatMessageStore outbox before it is written, so it can be shown
+ * at once as pending and is sent again after process death. Queued messages go out in order,
+ * all of them in one multi-path update together with both chat summaries; failed writes are
+ * retried with backoff, and at once when a network becomes available.
+ * Message ids are push keys made on the device, so a retry writes the same paths again and
+ * never duplicates a message; the server echo is matched by id.
+ * Callbacks arrive on the main thread.
+ */
+public class ChatMessageOutbox {
+
+    private static final String TAG = "ChatMessageOutbox";
+    // Most messages sent in one update
+    private static final int MAX_BATCH = 50;
+    private static final long INITIAL_RETRY_MS = 1000;
+    private static final long MAX_RETRY_MS = 30_000;
+
+    public interface Listener {
+        /**
+         * Messages left in the outbox by an earlier run, in send order, marked pending
+         */
+        void onRestored(List<Message> messages);
+
+        /**
+         * Messages acknowledged by the server
+         */
+        void onSent(List<Message> messages);
+    }
+
+    private final DatabaseReference rootRef;
+    private final ChatMessageStore store;
+    private final String chatId;
+    private final Listener listener;
+    private final ConnectivityManager connectivityManager;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService storeExecutor = Executors.newSingleThreadExecutor();
+
+    // Main thread only
+    private final ArrayDeque<Message> queue = new ArrayDeque<>();
+    private boolean inFlight;
+    // Until the outbox is read back, nothing is sent: restored messages go first
+    private boolean restoring;
+    private boolean stopped;
+    private long retryDelayMs = INITIAL_RETRY_MS;
+
+    private final Runnable flushRunnable = this::flush;
+
+    private final ConnectivityManager.NetworkCallback networkCallback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onAvailable(@NonNull Network network) {
+            mainHandler.post(() -> {
+                // Skip the remaining backoff
+                retryDelayMs = INITIAL_RETRY_MS;
+                mainHandler.removeCallbacks(flushRunnable);
+                flush();
+            });
+        }
+    };
+
+    public ChatMessageOutbox(Context context, DatabaseReference rootRef, ChatMessageStore store,
+                             String chatId, Listener listener) {
+        this.rootRef = rootRef;
+        this.store = store;
+        this.chatId = chatId;
+        this.listener = listener;
+        this.connectivityManager = (ConnectivityManager) context.getApplicationContext()
+                .getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    /**
+     * Restore messages left from an earlier run and send them
+     */
+    public void start() {
+        if (connectivityManager != null) {
+            connectivityManager.registerDefaultNetworkCallback(networkCallback);
+        }
+        restoring = true;
+        storeExecutor.execute(() -> {
+            List<Message> pending = store.getPending(chatId);
+            mainHandler.post(() -> {
+                restoring = false;
+                if (stopped) {
+                    return;
+                }
+                // A message sent since start may already be in the outbox read back
+                Set<String> queued = new HashSet<>();
+                for (Message message : queue) {
+                    queued.add(message.getMessageId());
+                }
+                List<Message> restored = new ArrayList<>(pending.size());
+                for (Message message : pending) {
+                    if (!queued.contains(message.getMessageId())) {
+                        restored.add(message);
+                    }
+                }
+                if (!restored.isEmpty()) {
+                    Log.d(TAG, "Restored " + restored.size() + " unsent messages");
+                    // Ahead of anything sent since start
+                    for (int i = restored.size() - 1; i >= 0; i--) {
+                        queue.addFirst(restored.get(i));
+                    }
+                    listener.onRestored(restored);
+                }
+                flush();
+            });
+        });
+    }
+
+    /**
+     * Persist and queue a message. It must have its id set; it is marked pending.
+     */
+    public void send(Message message) {
+        message.setPending(true);
+        store.addPending(chatId, message);
+        queue.addLast(message);
+        flush();
+    }
+
+    /**
+     * Stop callbacks and retries. A write already handed to the database still completes and is
+     * recorded as sent; anything else stays in the outbox for the next start.
+     */
+    public void stop() {
+        stopped = true;
+        mainHandler.removeCallbacks(flushRunnable);
+        if (connectivityManager != null) {
+            try {
+                connectivityManager.unregisterNetworkCallback(networkCallback);
+            } catch (IllegalArgumentException e) {
+                // Not registered
+            }
+        }
+        storeExecutor.shutdown();
+    }
+
+    private void flush() {
+        if (stopped || restoring || inFlight || queue.isEmpty()) {
+            return;
+        }
+        List<Message> batch = new ArrayList<>(Math.min(queue.size(), MAX_BATCH));
+        for (Message message : queue) {
+            if (batch.size() == MAX_BATCH) {
+                break;
+            }
+            batch.add(message);
+        }
+
+        // Messages and both chat summaries in one atomic multi-path update, one round trip
+        Map<String, Object> updates = new HashMap<>();
+        for (Message message : batch) {
+            updates.put("chats/" + chatId + "/messages/" + message.getMessageId(), message.toMap());
+        }
+        Message last = batch.get(batch.size() - 1);
+        updates.put("userChats/" + last.getSenderId() + "/" + chatId,
+                chatSummary(last.getMessage(), last.getTimestamp(), last.getReceiverId()));
+        updates.put("userChats/" + last.getReceiverId() + "/" + chatId,
+                chatSummary(last.getMessage(), last.getTimestamp(), last.getSenderId()));
+
+        inFlight = true;
+        long start = SystemClock.elapsedRealtime();
+        rootRef.updateChildren(updates).addOnCompleteListener(task -> {
+            inFlight = false;
+            long elapsed = SystemClock.elapsedRealtime() - start;
+            if (task.isSuccessful()) {
+                Log.d(TAG, "Sent " + batch.size() + " messages with " + updates.size()
+                        + " paths in 1 round trip, " + elapsed + " ms");
+                List<Message> sent = new ArrayList<>(batch.size());
+                for (Message message : batch) {
+                    queue.remove(message);
+                    Message copy = new Message(message.getSenderId(), message.getReceiverId(),
+                            message.getMessage(), message.getTimestamp());
+                    copy.setMessageId(message.getMessageId());
+                    sent.add(copy);
+                }
+                store.markSent(chatId, sent);
+                retryDelayMs = INITIAL_RETRY_MS;
+                if (!stopped) {
+                    listener.onSent(sent);
+                    flush();
+                }
+            } else {
+                Log.w(TAG, "Send of " + batch.size() + " messages failed after " + elapsed
+                        + " ms, retrying in " + retryDelayMs + " ms", task.getException());
+                if (!stopped) {
+                    mainHandler.postDelayed(flushRunnable, retryDelayMs);
+                    retryDelayMs = Math.min(retryDelayMs * 2, MAX_RETRY_MS);
+                }
+            }
+        });
+    }
+
+    /**
+     * Entry of userChats/{user}/{chatId}
+     * @param otherUserId The other participant as seen by that user
+     */
+    private static Map<String, Object> chatSummary(String lastMessage, long timestamp, String otherUserId) {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("lastMessage", lastMessage);
+        summary.put("timestamp", timestamp);
+        summary.put("receiverId", otherUserId);
+        return summary;
+    }
+}
@@ -0,0 +1,436 @@
+package com.example.myapplication;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Windowed access to a chat's messages node.
+ * Opens with the newest page only (orderByKey().limitToLast), fetches older pages on demand
+ * with endBefore, and listens in realtime only to messages after the newest loaded key.
+ * Opening a chat therefore downloads one page however long the history is.
+ * Push keys sort chronologically, so key order is message order.
+ * With a ChatMessageStore the newest page and older pages come from the device first, and only
+ * messages the server stored after the newest stored serverTime are read from the network
+ * (delta sync). Keys cannot be the sync point: they come from the sender's clock, so a message
+ * queued offline elsewhere arrives with a key below ones already seen. The delta read is capped
+ * at one page; a larger gap drops the stored messages and starts over from the newest page, so
+ * opening stays one page after any absence. A late message keyed before the shown window is
+ * stored or left to the next older page (see ChatSyncWindow). orderByChild("serverTime") needs
+ * ".indexOn" on the messages node in the database rules, or the client filters the whole node.
+ * Callbacks arrive on the main thread.
+ */
+public class ChatMessagePager {
+
+    private static final String TAG = "ChatMessagePager";
+
+    public static final int DEFAULT_PAGE_SIZE = 30;
+
+    public interface Listener {
+        /**
+         * Newest page on open, oldest first
+         */
+        void onInitialPage(List<Message> messages, boolean hasOlder);
+
+        /**
+         * Page before everything loaded so far, oldest first
+         */
+        void onOlderPage(List<Message> messages, boolean hasOlder);
+
+        /**
+         * Message added after the loaded window (sent from here or elsewhere)
+         */
+        void onNewMessage(Message message);
+
+        /**
+         * The stored messages were too far behind to sync and were dropped; onInitialPage follows
+         * with the newest page from the network
+         */
+        void onStoreDropped();
+
+        void onError(String error);
+    }
+
+    private final DatabaseReference messagesRef;
+    private final int pageSize;
+    private final Listener listener;
+    // Local copy of the chat, null to always read from the network
+    private final ChatMessageStore store;
+    private final String chatId;
+    private final ExecutorService storeExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final ChatSyncWindow window;
+    private boolean loadingOlder;
+    private Query tailQuery;
+    private ChildEventListener tailListener;
+    private boolean stopped;
+    // Estimated payload read from the network, main thread only
+    private long bytesReceived;
+
+    public ChatMessagePager(DatabaseReference messagesRef, int pageSize, Listener listener) {
+        this(messagesRef, pageSize, null, null, listener);
+    }
+
+    /**
+     * @param store  Local copy of the chat to read first and to keep up to date, may be null
+     * @param chatId Key of the chat in the store
+     */
+    public ChatMessagePager(DatabaseReference messagesRef, int pageSize, ChatMessageStore store,
+                            String chatId, Listener listener) {
+        this.messagesRef = messagesRef;
+        this.pageSize = pageSize;
+        this.store = store;
+        this.chatId = chatId;
+        this.listener = listener;
+        this.storeExecutor = store != null ? Executors.newSingleThreadExecutor() : null;
+        this.window = new ChatSyncWindow(store != null);
+    }
+
+    /**
+     * Show the newest page (stored or downloaded), fetch what is missing, then follow the live tail
+     */
+    public void start() {
+        if (store == null) {
+            fetchNewestPage();
+            return;
+        }
+        readStore(() -> new StoredChat(store.getLatest(chatId, pageSize), store.getOldestKey(chatId),
+                        store.getNewestServerTime(chatId)),
+                stored -> {
+                    if (stored.page.isEmpty()) {
+                        fetchNewestPage();
+                        return;
+                    }
+                    // The network may still have messages before the stored ones
+                    window.openStored(stored.page.get(0).getMessageId(),
+                            stored.page.get(stored.page.size() - 1).getMessageId(),
+                            stored.oldestKey, stored.newestServerTime);
+                    listener.onInitialPage(stored.page, true);
+                    syncNewer();
+                });
+    }
+
+    private void fetchNewestPage() {
+        long start = SystemClock.elapsedRealtime();
+        messagesRef.orderByKey().limitToLast(pageSize).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                if (stopped) {
+                    // Attaching the tail now would leak a listener nobody removes
+                    return;
+                }
+                List<Message> page = readPage(snapshot);
+                received("Newest page", page, start);
+                save(page);
+                long pageNewestServerTime = 0;
+                for (Message message : page) {
+                    pageNewestServerTime = Math.max(pageNewestServerTime, message.getServerTime());
+                }
+                boolean hasOlder = page.size() >= pageSize;
+                String pageNewestKey = page.isEmpty() ? null : page.get(page.size() - 1).getMessageId();
+                window.openFetched(oldestKey(page), pageNewestKey, pageNewestServerTime, hasOlder);
+                listener.onInitialPage(page, hasOlder);
+                listenToTail();
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                if (!stopped) {
+                    listener.onError(error.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Only the messages the server stored after the newest stored one, then the live tail from there
+     */
+    private void syncNewer() {
+        if (window.getNewestServerTime() == 0) {
+            // Stored before messages carried a server time; there is no safe point to sync from
+            dropStore();
+            return;
+        }
+        long start = SystemClock.elapsedRealtime();
+        messagesRef.orderByChild("serverTime").startAfter(window.getNewestServerTime()).limitToFirst(pageSize)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        if (stopped) {
+                            return;
+                        }
+                        List<Message> page = readPage(snapshot);
+                        received("Delta sync", page, start);
+                        if (page.size() >= pageSize) {
+                            // Paging forward would download the whole gap; the newest page is enough
+                            dropStore();
+                            return;
+                        }
+                        for (Message message : page) {
+                            addNewer(message);
+                        }
+                        listenToTail();
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        if (stopped) {
+                            return;
+                        }
+                        // The tail listener starts after the same server time, so it still delivers the delta
+                        listener.onError(error.getMessage());
+                        listenToTail();
+                    }
+                });
+    }
+
+    /**
+     * Forget the stored messages of the chat and load the newest page from the network
+     */
+    private void dropStore() {
+        Log.d(TAG, "Stored messages of " + chatId + " too far behind, dropping them");
+        store.clearChat(chatId);
+        window.reset();
+        listener.onStoreDropped();
+        fetchNewestPage();
+    }
+
+    /**
+     * Deliver and store a message from the delta or the live tail.
+     * A late message keyed before the loaded window is only stored, or left to the network's
+     * older page, so loadOlder returns it in order.
+     */
+    private void addNewer(Message message) {
+        switch (window.placeNewer(message.getMessageId(), message.getServerTime())) {
+            case SHOW:
+                save(Collections.singletonList(message));
+                listener.onNewMessage(message);
+                break;
+            case STORE:
+                save(Collections.singletonList(message));
+                break;
+            case SKIP:
+                break;
+        }
+    }
+
+    /**
+     * Fetch the page before the oldest loaded message; ignored while one is loading or none is left
+     */
+    public void loadOlder() {
+        if (loadingOlder || !window.hasOlder() || window.getOldestKey() == null) {
+            return;
+        }
+        loadingOlder = true;
+        if (store == null) {
+            fetchOlderPage();
+            return;
+        }
+        String before = window.getOldestKey();
+        readStore(() -> store.getBefore(chatId, before, pageSize), page -> {
+            if (page.isEmpty()) {
+                // Stored messages are contiguous, so the rest is only on the server
+                fetchOlderPage();
+                return;
+            }
+            loadingOlder = false;
+            window.olderStored(page.get(0).getMessageId());
+            listener.onOlderPage(page, true);
+        });
+    }
+
+    private void fetchOlderPage() {
+        long start = SystemClock.elapsedRealtime();
+        messagesRef.orderByKey().endBefore(window.getOldestKey()).limitToLast(pageSize)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        loadingOlder = false;
+                        if (stopped) {
+                            return;
+                        }
+                        List<Message> page = readPage(snapshot);
+                        received("Older page", page, start);
+                        save(page);
+                        boolean hasOlder = page.size() >= pageSize;
+                        window.olderFetched(oldestKey(page), hasOlder);
+                        listener.onOlderPage(page, hasOlder);
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        loadingOlder = false;
+                        if (!stopped) {
+                            listener.onError(error.getMessage());
+                        }
+                    }
+                });
+    }
+
+    public boolean hasOlder() {
+        return window.hasOlder();
+    }
+
+    public boolean isLoadingOlder() {
+        return loadingOlder;
+    }
+
+    /**
+     * Estimated bytes of message payload read from the network since start
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * Detach the realtime listener
+     */
+    public void stop() {
+        stopped = true;
+        if (tailQuery != null && tailListener != null) {
+            tailQuery.removeEventListener(tailListener);
+        }
+        tailQuery = null;
+        tailListener = null;
+        if (storeExecutor != null) {
+            storeExecutor.shutdown();
+        }
+    }
+
+    private static class StoredChat {
+        final List<Message> page;
+        final String oldestKey;
+        final long newestServerTime;
+
+        StoredChat(List<Message> page, String oldestKey, long newestServerTime) {
+            this.page = page;
+            this.oldestKey = oldestKey;
+            this.newestServerTime = newestServerTime;
+        }
+    }
+
+    private interface StoreRead<T> {
+        T read();
+    }
+
+    private interface StoreCallback<T> {
+        void onResult(T result);
+    }
+
+    /**
+     * Run a blocking store read off the main thread and deliver it on the main thread
+     */
+    private <T> void readStore(StoreRead<T> read, StoreCallback<T> callback) {
+        storeExecutor.execute(() -> {
+            T result = read.read();
+            mainHandler.post(() -> {
+                if (!stopped) {
+                    callback.onResult(result);
+                }
+            });
+        });
+    }
+
+    private void save(List<Message> messages) {
+        if (store != null) {
+            store.save(chatId, messages);
+        }
+    }
+
+    /**
+     * Count the size of a page read from the network
+     */
+    private void received(String what, List<Message> page, long startMs) {
+        long bytes = 0;
+        for (Message message : page) {
+            bytes += ChatMessageStore.estimatePayloadBytes(message.getMessageId(), message);
+        }
+        bytesReceived += bytes;
+        Log.d(TAG, what + ": " + page.size() + " messages, ~" + bytes + " bytes in "
+                + (SystemClock.elapsedRealtime() - startMs) + " ms (" + bytesReceived + " bytes total)");
+    }
+
+    private void listenToTail() {
+        // Everything the server stores after the newest synced message, including messages
+        // written meanwhile; by key only while no message with a server time was seen
+        if (window.getNewestServerTime() > 0) {
+            tailQuery = messagesRef.orderByChild("serverTime").startAfter(window.getNewestServerTime());
+        } else if (window.getNewestKey() != null) {
+            tailQuery = messagesRef.orderByKey().startAfter(window.getNewestKey());
+        } else {
+            tailQuery = messagesRef.orderByKey();
+        }
+        tailListener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, String previousChildName) {
+                Message message = readMessage(snapshot);
+                if (message != null) {
+                    bytesReceived += ChatMessageStore.estimatePayloadBytes(snapshot.getKey(), message);
+                    addNewer(message);
+                }
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, String previousChildName) {
+                // Messages are not edited; serverTime of a local echo is replaced by the server's
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                // Messages are not deleted
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, String previousChildName) {
+                // A local echo's estimated server time was corrected; the message is already shown
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                listener.onError(error.getMessage());
+            }
+        };
+        tailQuery.addChildEventListener(tailListener);
+    }
+
+    private static String oldestKey(List<Message> page) {
+        return page.isEmpty() ? null : page.get(0).getMessageId();
+    }
+
+    private static List<Message> readPage(DataSnapshot snapshot) {
+        List<Message> page = new ArrayList<>((int) snapshot.getChildrenCount());
+        for (DataSnapshot child : snapshot.getChildren()) {
+            Message message = readMessage(child);
+            if (message != null) {
+                page.add(message);
+            }
+        }
+        return page;
+    }
+
+    private static Message readMessage(DataSnapshot snapshot) {
+        Message message = snapshot.getValue(Message.class);
+        if (message != null && message.getMessageId() == null) {
+            // The key is the id; older messages may not carry it in their body
+            message.setMessageId(snapshot.getKey());
+        }
+        return message;
+    }
+}
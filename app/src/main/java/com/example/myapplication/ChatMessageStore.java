@@ -0,0 +1,343 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Messages already received, per chat, in SQLite.
+ * Rows are keyed by (chat_id, message_id); push keys sort chronologically, so the primary key
+ * is also the display order and "newest page" or "page before key" are index range scans.
+ * Every stored chat is one contiguous run of keys, complete up to the newest stored server
+ * time, so only messages the server received after that time need to come from the network.
+ * The server time rather than the key is the sync point: a push key comes from the sending
+ * device's clock, and a message queued offline elsewhere arrives with a key below ours.
+ * Writes are queued and flushed by a single background thread, one transaction per flush.
+ * The outbox table holds messages written here but not yet acknowledged by the server, so they
+ * survive process death; they are kept out of the messages table until acknowledged, so a
+ * local echo's estimated server time never becomes the sync point. Acknowledged messages are
+ * stored without a server time until a later sync brings the server's copy.
+ */
+public class ChatMessageStore extends SQLiteOpenHelper {
+
+    private static final String TAG = "ChatMessageStore";
+    private static final String DATABASE_NAME = "chat_messages.db";
+    private static final int DATABASE_VERSION = 3;
+
+    private static ChatMessageStore instance;
+
+    private static class PendingWrite {
+        final String chatId;
+        final List<Message> messages;
+
+        PendingWrite(String chatId, List<Message> messages) {
+            this.chatId = chatId;
+            this.messages = messages;
+        }
+    }
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private final ConcurrentLinkedQueue<PendingWrite> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    /**
+     * Process-wide store, so all chats share one connection and one writer
+     */
+    public static synchronized ChatMessageStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new ChatMessageStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ChatMessageStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        // Readers are not blocked by the writer's transactions
+        db.enableWriteAheadLogging();
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        createMessagesTable(db);
+        createOutboxTable(db);
+    }
+
+    private static void createMessagesTable(SQLiteDatabase db) {
+        // server_time is 0 for messages written before the field existed
+        db.execSQL("CREATE TABLE messages ("
+                + "chat_id TEXT NOT NULL, "
+                + "message_id TEXT NOT NULL, "
+                + "sender_id TEXT, "
+                + "receiver_id TEXT, "
+                + "message TEXT, "
+                + "timestamp INTEGER NOT NULL, "
+                + "server_time INTEGER NOT NULL DEFAULT 0, "
+                + "PRIMARY KEY (chat_id, message_id)) WITHOUT ROWID");
+    }
+
+    private static void createOutboxTable(SQLiteDatabase db) {
+        // seq keeps send order
+        db.execSQL("CREATE TABLE outbox ("
+                + "seq INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "chat_id TEXT NOT NULL, "
+                + "message_id TEXT NOT NULL UNIQUE, "
+                + "sender_id TEXT, "
+                + "receiver_id TEXT, "
+                + "message TEXT, "
+                + "timestamp INTEGER NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Messages are only a cache of the server and are downloaded again; the outbox holds
+        // unsent messages and is kept. Version 1 had no outbox.
+        db.execSQL("DROP TABLE IF EXISTS messages");
+        createMessagesTable(db);
+        if (oldVersion < 2) {
+            createOutboxTable(db);
+        }
+    }
+
+    /**
+     * Queue messages of a chat; they are written with whatever else is queued in one background
+     * transaction. Messages already stored are replaced.
+     */
+    public void save(String chatId, List<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        pending.add(new PendingWrite(chatId, new ArrayList<>(messages)));
+        if (flushScheduled.compareAndSet(false, true)) {
+            writer.execute(this::flush);
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        List<PendingWrite> batch = new ArrayList<>();
+        PendingWrite write;
+        while ((write = pending.poll()) != null) {
+            batch.add(write);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        SQLiteDatabase db = getWritableDatabase();
+        // Local echoes of messages still in the outbox are skipped; markSent stores them
+        SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO messages "
+                + "(chat_id, message_id, sender_id, receiver_id, message, timestamp, server_time) "
+                + "SELECT ?, ?, ?, ?, ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM outbox WHERE message_id = ?)");
+        int rows = 0;
+        db.beginTransaction();
+        try {
+            for (PendingWrite w : batch) {
+                for (Message m : w.messages) {
+                    if (m.getMessageId() == null) {
+                        continue;
+                    }
+                    bindMessage(insert, w.chatId, m);
+                    insert.bindLong(7, m.getServerTime());
+                    insert.bindString(8, m.getMessageId());
+                    insert.executeInsert();
+                    rows++;
+                }
+            }
+            db.setTransactionSuccessful();
+            Log.d(TAG, "Stored " + rows + " messages in one transaction, "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Could not store " + batch.size() + " message batches", e);
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    /**
+     * Add a message to the outbox. Written on the writer thread in order with the other writes.
+     */
+    public void addPending(String chatId, Message message) {
+        writer.execute(() -> {
+            SQLiteDatabase db = getWritableDatabase();
+            try (SQLiteStatement insert = db.compileStatement("INSERT OR IGNORE INTO outbox "
+                    + "(chat_id, message_id, sender_id, receiver_id, message, timestamp) VALUES (?, ?, ?, ?, ?, ?)")) {
+                bindMessage(insert, chatId, message);
+                insert.executeInsert();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Could not queue message " + message.getMessageId(), e);
+            }
+        });
+    }
+
+    /**
+     * Move acknowledged messages from the outbox to the stored chat, in one transaction
+     */
+    public void markSent(String chatId, List<Message> messages) {
+        List<Message> sent = new ArrayList<>(messages);
+        writer.execute(() -> {
+            SQLiteDatabase db = getWritableDatabase();
+            SQLiteStatement delete = db.compileStatement("DELETE FROM outbox WHERE message_id = ?");
+            SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO messages "
+                    + "(chat_id, message_id, sender_id, receiver_id, message, timestamp) VALUES (?, ?, ?, ?, ?, ?)");
+            db.beginTransaction();
+            try {
+                for (Message m : sent) {
+                    delete.bindString(1, m.getMessageId());
+                    delete.executeUpdateDelete();
+                    bindMessage(insert, chatId, m);
+                    insert.executeInsert();
+                }
+                db.setTransactionSuccessful();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Could not mark " + sent.size() + " messages sent", e);
+            } finally {
+                db.endTransaction();
+                delete.close();
+                insert.close();
+            }
+        });
+    }
+
+    /**
+     * Unacknowledged messages of a chat in send order, marked pending. Blocking.
+     */
+    public List<Message> getPending(String chatId) {
+        List<Message> messages = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT message_id, sender_id, receiver_id, message, timestamp FROM outbox "
+                        + "WHERE chat_id = ? ORDER BY seq", new String[]{chatId})) {
+            while (cursor.moveToNext()) {
+                Message message = readMessage(cursor);
+                message.setPending(true);
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Drop the stored messages of a chat, for when it fell too far behind to sync. Unsent messages stay.
+     */
+    public void clearChat(String chatId) {
+        writer.execute(() -> {
+            try {
+                getWritableDatabase().delete("messages", "chat_id = ?", new String[]{chatId});
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Could not clear chat " + chatId, e);
+            }
+        });
+    }
+
+    /**
+     * Latest server time among the stored messages of a chat, 0 if none carries one. Blocking.
+     */
+    public long getNewestServerTime(String chatId) {
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT MAX(server_time) FROM messages WHERE chat_id = ?", new String[]{chatId})) {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : 0;
+        }
+    }
+
+    /**
+     * Lowest stored key of a chat, the start of its stored run, null if none. Blocking.
+     */
+    public String getOldestKey(String chatId) {
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT MIN(message_id) FROM messages WHERE chat_id = ?", new String[]{chatId})) {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getString(0) : null;
+        }
+    }
+
+    /**
+     * Newest stored messages of a chat, oldest first. Blocking: call off the main thread.
+     */
+    public List<Message> getLatest(String chatId, int limit) {
+        return queryPage("SELECT message_id, sender_id, receiver_id, message, timestamp FROM messages "
+                        + "WHERE chat_id = ? ORDER BY message_id DESC LIMIT ?",
+                new String[]{chatId, Integer.toString(limit)});
+    }
+
+    /**
+     * Stored messages of a chat before a key, oldest first. Blocking.
+     */
+    public List<Message> getBefore(String chatId, String beforeKey, int limit) {
+        return queryPage("SELECT message_id, sender_id, receiver_id, message, timestamp FROM messages "
+                        + "WHERE chat_id = ? AND message_id < ? ORDER BY message_id DESC LIMIT ?",
+                new String[]{chatId, beforeKey, Integer.toString(limit)});
+    }
+
+    private List<Message> queryPage(String sql, String[] args) {
+        List<Message> page = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(sql, args)) {
+            while (cursor.moveToNext()) {
+                page.add(readMessage(cursor));
+            }
+        }
+        // Read newest first to use LIMIT, shown oldest first
+        Collections.reverse(page);
+        return page;
+    }
+
+    /**
+     * Approximate JSON size of a message as sent by the database, for sync statistics
+     */
+    public static int estimatePayloadBytes(String key, Message message) {
+        // Field names with their quotes, colons, commas and braces, and the quotes around the key
+        int bytes = 89;
+        bytes += utf8Length(key);
+        bytes += utf8Length(message.getMessageId());
+        bytes += utf8Length(message.getSenderId());
+        bytes += utf8Length(message.getReceiverId());
+        bytes += utf8Length(message.getMessage());
+        bytes += Long.toString(message.getTimestamp()).length();
+        bytes += Long.toString(message.getServerTime()).length();
+        return bytes;
+    }
+
+    private static int utf8Length(String s) {
+        return s == null ? 4 : s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static Message readMessage(Cursor cursor) {
+        Message message = new Message(cursor.getString(1), cursor.getString(2),
+                cursor.getString(3), cursor.getLong(4));
+        message.setMessageId(cursor.getString(0));
+        return message;
+    }
+
+    private static void bindMessage(SQLiteStatement statement, String chatId, Message message) {
+        statement.clearBindings();
+        statement.bindString(1, chatId);
+        statement.bindString(2, message.getMessageId());
+        bindNullable(statement, 3, message.getSenderId());
+        bindNullable(statement, 4, message.getReceiverId());
+        bindNullable(statement, 5, message.getMessage());
+        statement.bindLong(6, message.getTimestamp());
+    }
+
+    private static void bindNullable(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.myapplication;
+
+/**
+ * Keys and sync point of the messages a ChatMessagePager has loaded, and where a message from
+ * the delta or the live tail belongs.
+ * A message queued offline elsewhere arrives with a key below messages already seen. Inside the
+ * shown window it is shown; below the window but inside the stored run of keys it is only stored,
+ * so the next page read from the store returns it in order; below the stored run it is left to
+ * the next network page, whose endBefore starts at the oldest stored key and so includes it.
+ * Either way its server time still advances the sync point, so it is never read again.
+ * Kept free of Android and Firebase so the paging rules can be tested on the JVM.
+ */
+class ChatSyncWindow {
+
+    enum Placement {
+        /** Show and store */
+        SHOW,
+        /** Store only; the store's next older page returns it */
+        STORE,
+        /** Neither; the network's next older page returns it */
+        SKIP
+    }
+
+    // Whether pages and shown messages are written to a ChatMessageStore
+    private final boolean storing;
+
+    private String oldestKey;
+    private String newestKey;
+    // Newest serverTime synced, 0 while only messages without one were seen
+    private long newestServerTime;
+    private boolean hasOlder = true;
+    // Oldest key of the stored run, null while nothing is stored
+    private String oldestStoredKey;
+
+    ChatSyncWindow(boolean storing) {
+        this.storing = storing;
+    }
+
+    /**
+     * Newest stored page shown on open; the network may still have messages before the stored run
+     */
+    void openStored(String pageOldestKey, String pageNewestKey, String oldestStoredKey,
+                    long newestServerTime) {
+        oldestKey = pageOldestKey;
+        newestKey = pageNewestKey;
+        this.oldestStoredKey = oldestStoredKey;
+        this.newestServerTime = newestServerTime;
+        hasOlder = true;
+    }
+
+    /**
+     * Newest page read from the network, and stored when storing
+     */
+    void openFetched(String pageOldestKey, String pageNewestKey, long pageNewestServerTime,
+                     boolean hasOlder) {
+        if (pageOldestKey != null) {
+            oldestKey = pageOldestKey;
+            newestKey = pageNewestKey;
+            storedDownTo(pageOldestKey);
+        }
+        newestServerTime = Math.max(newestServerTime, pageNewestServerTime);
+        this.hasOlder = hasOlder;
+    }
+
+    /**
+     * Older page read from the store
+     */
+    void olderStored(String pageOldestKey) {
+        oldestKey = pageOldestKey;
+    }
+
+    /**
+     * Older page read from the network, and stored when storing; null key when it was empty
+     */
+    void olderFetched(String pageOldestKey, boolean hasOlder) {
+        if (pageOldestKey != null) {
+            oldestKey = pageOldestKey;
+            storedDownTo(pageOldestKey);
+        }
+        this.hasOlder = hasOlder;
+    }
+
+    /**
+     * Record a message from the delta or the live tail and say where it goes
+     */
+    Placement placeNewer(String key, long serverTime) {
+        newestServerTime = Math.max(newestServerTime, serverTime);
+        if (newestKey == null || key.compareTo(newestKey) > 0) {
+            newestKey = key;
+        }
+        if (oldestKey == null) {
+            oldestKey = key;
+        } else if (hasOlder && key.compareTo(oldestKey) < 0) {
+            boolean inStoredRun = oldestStoredKey != null && key.compareTo(oldestStoredKey) > 0;
+            return inStoredRun ? Placement.STORE : Placement.SKIP;
+        }
+        storedDownTo(key);
+        return Placement.SHOW;
+    }
+
+    /**
+     * Forget everything, for when the stored messages were dropped
+     */
+    void reset() {
+        oldestKey = null;
+        newestKey = null;
+        newestServerTime = 0;
+        hasOlder = true;
+        oldestStoredKey = null;
+    }
+
+    String getOldestKey() {
+        return oldestKey;
+    }
+
+    String getNewestKey() {
+        return newestKey;
+    }
+
+    long getNewestServerTime() {
+        return newestServerTime;
+    }
+
+    boolean hasOlder() {
+        return hasOlder;
+    }
+
+    private void storedDownTo(String key) {
+        if (storing && (oldestStoredKey == null || key.compareTo(oldestStoredKey) < 0)) {
+            oldestStoredKey = key;
+        }
+    }
+}
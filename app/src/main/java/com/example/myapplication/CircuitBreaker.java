@@ -0,0 +1,122 @@
+package com.example.myapplication;
+
+/**
+ * Circuit breaker for a remote endpoint.
+ * CLOSED: calls go through; after failureThreshold consecutive failures the breaker opens.
+ * OPEN: calls fail fast until openDurationMillis has passed.
+ * HALF_OPEN: a single trial call is let through; success closes the breaker, failure re-opens it.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openDurationMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInProgress;
+
+    // Metrics
+    private long successCount;
+    private long failureCount;
+    private long rejectedCount;
+    private long openCount;
+
+    public CircuitBreaker(String name, int failureThreshold, long openDurationMillis) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = openDurationMillis;
+    }
+
+    /**
+     * Ask permission for a call. Every permitted call must be followed by
+     * recordSuccess or recordFailure.
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN) {
+            if (now() - openedAt >= openDurationMillis) {
+                state = State.HALF_OPEN;
+                trialInProgress = false;
+            } else {
+                rejectedCount++;
+                return false;
+            }
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInProgress) {
+                rejectedCount++;
+                return false;
+            }
+            trialInProgress = true;
+        }
+        return true;
+    }
+
+    public synchronized void recordSuccess() {
+        successCount++;
+        consecutiveFailures = 0;
+        trialInProgress = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void recordFailure() {
+        failureCount++;
+        consecutiveFailures++;
+        trialInProgress = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                openCount++;
+            }
+            state = State.OPEN;
+            openedAt = now();
+        }
+    }
+
+    /**
+     * The permitted call was abandoned (e.g. cancelled by the user) and says nothing about
+     * endpoint health
+     */
+    public synchronized void recordIgnored() {
+        trialInProgress = false;
+    }
+
+    public synchronized State getState() {
+        // Report HALF_OPEN as soon as the open period is over, even before the next call
+        if (state == State.OPEN && now() - openedAt >= openDurationMillis) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Milliseconds until an open breaker lets a trial call through (0 if not open)
+     */
+    public synchronized long getRemainingOpenMillis() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, openDurationMillis - (now() - openedAt));
+    }
+
+    public String getName() { return name; }
+    public synchronized long getSuccessCount() { return successCount; }
+    public synchronized long getFailureCount() { return failureCount; }
+    public synchronized long getRejectedCount() { return rejectedCount; }
+    public synchronized long getOpenCount() { return openCount; }
+
+    /**
+     * One-line summary for logging
+     */
+    public synchronized String describe() {
+        return name + ": " + getState() + ", consecutive failures " + consecutiveFailures
+                + ", successes " + successCount + ", failures " + failureCount
+                + ", rejected " + rejectedCount + ", opened " + openCount + "x";
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+}
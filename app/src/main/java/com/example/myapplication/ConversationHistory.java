@@ -0,0 +1,215 @@
+package com.example.myapplication;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Bounded conversation window for the AI chatbot.
+ * The system prompt is pinned and never evicted; user/model turns are kept
+ * until their combined size exceeds the byte budget, then the oldest exchanges are dropped.
+ * Turns and the system instruction are serialized to Gemini JSON once, so a request body
+ * is assembled by concatenating cached fragments instead of rebuilding a Gson tree.
+ * Also records per-request payload sizes so growth over a session can be monitored.
+ */
+public class ConversationHistory {
+
+    /** Roughly 6k tokens of history at ~4 bytes per token */
+    public static final int DEFAULT_BUDGET_BYTES = 24 * 1024;
+
+    public static final String ROLE_USER = "user";
+    public static final String ROLE_MODEL = "model";
+
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    /**
+     * One immutable turn of the conversation, holding its pre-serialized
+     * Gemini "contents" entry
+     */
+    public static class Turn {
+        private final String role;
+        private final String text;
+        private final String json;
+        private final int sizeBytes;
+
+        Turn(String role, String text) {
+            this.role = role;
+            this.text = text;
+            this.json = "{\"role\":\"" + role + "\",\"parts\":[{\"text\":" + GSON.toJson(text) + "}]}";
+            this.sizeBytes = utf8Length(json);
+        }
+
+        public String getRole() { return role; }
+        public String getText() { return text; }
+        public String getJson() { return json; }
+        public int getSizeBytes() { return sizeBytes; }
+    }
+
+    private final String systemPrompt;
+    private final String systemInstructionJson;
+    private final int budgetBytes;
+    private final ArrayDeque<Turn> turns = new ArrayDeque<>();
+    private int historyBytes;
+
+    // Metrics
+    private int evictedTurnCount;
+    private int requestCount;
+    private long lastPayloadBytes;
+    private long peakPayloadBytes;
+
+    public ConversationHistory(String systemPrompt) {
+        this(systemPrompt, DEFAULT_BUDGET_BYTES);
+    }
+
+    public ConversationHistory(String systemPrompt, int budgetBytes) {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("budgetBytes must be positive");
+        }
+        this.systemPrompt = systemPrompt;
+        this.systemInstructionJson = "{\"parts\":[{\"text\":" + GSON.toJson(systemPrompt) + "}]}";
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Create (and serialize) the turn for a new user message
+     */
+    public Turn newUserTurn(String text) {
+        return new Turn(ROLE_USER, text);
+    }
+
+    /**
+     * Build the generateContent request body for a pending user turn:
+     * {"systemInstruction":{...},"contents":[history..., pending]}.
+     * Old turns are evicted first so that history plus the pending turn fits the budget.
+     * The payload size is recorded in the metrics.
+     */
+    public synchronized String buildRequestJson(Turn pendingUserTurn) {
+        evictToFit(pendingUserTurn.getSizeBytes());
+
+        StringBuilder body = new StringBuilder(systemInstructionJson.length() + historyBytes
+            + pendingUserTurn.getJson().length() + turns.size() + 48);
+        body.append("{\"systemInstruction\":").append(systemInstructionJson)
+            .append(",\"contents\":[");
+        for (Turn turn : turns) {
+            body.append(turn.getJson()).append(',');
+        }
+        body.append(pendingUserTurn.getJson()).append("]}");
+
+        String json = body.toString();
+        recordPayload(utf8Length(json));
+        return json;
+    }
+
+    /**
+     * Append a completed exchange to the history
+     */
+    public synchronized void addExchange(Turn userTurn, String modelText) {
+        addTurn(userTurn);
+        addTurn(new Turn(ROLE_MODEL, modelText));
+        evictToFit(0);
+    }
+
+    /**
+     * Immutable snapshot of the current turns, oldest first
+     */
+    public synchronized List<Turn> getTurns() {
+        return Collections.unmodifiableList(new ArrayList<>(turns));
+    }
+
+    /**
+     * Record the size of a request body sent with this history
+     */
+    public synchronized void recordPayload(long bytes) {
+        requestCount++;
+        lastPayloadBytes = bytes;
+        if (bytes > peakPayloadBytes) {
+            peakPayloadBytes = bytes;
+        }
+    }
+
+    /**
+     * Drop all turns (the system prompt stays pinned) and reset the metrics
+     */
+    public synchronized void clear() {
+        turns.clear();
+        historyBytes = 0;
+        evictedTurnCount = 0;
+        requestCount = 0;
+        lastPayloadBytes = 0;
+        peakPayloadBytes = 0;
+    }
+
+    public String getSystemPrompt() { return systemPrompt; }
+    public int getBudgetBytes() { return budgetBytes; }
+    public synchronized int getTurnCount() { return turns.size(); }
+    public synchronized int getHistoryBytes() { return historyBytes; }
+    public synchronized int getEvictedTurnCount() { return evictedTurnCount; }
+    public synchronized int getRequestCount() { return requestCount; }
+    public synchronized long getLastPayloadBytes() { return lastPayloadBytes; }
+    public synchronized long getPeakPayloadBytes() { return peakPayloadBytes; }
+
+    /**
+     * One-line summary for logging
+     */
+    public synchronized String describeMetrics() {
+        return "request #" + requestCount + ": " + lastPayloadBytes + " bytes (peak " + peakPayloadBytes
+            + "), history " + historyBytes + "/" + budgetBytes + " bytes in " + turns.size()
+            + " turns, " + evictedTurnCount + " evicted";
+    }
+
+    private void addTurn(Turn turn) {
+        turns.addLast(turn);
+        historyBytes += turn.getSizeBytes();
+    }
+
+    /**
+     * Evict the oldest exchanges until history plus reservedBytes fits the budget.
+     * A user turn is always evicted together with the model reply that follows it.
+     */
+    private void evictToFit(int reservedBytes) {
+        while (!turns.isEmpty() && historyBytes + reservedBytes > budgetBytes) {
+            Turn oldest = turns.removeFirst();
+            historyBytes -= oldest.getSizeBytes();
+            evictedTurnCount++;
+
+            if (ROLE_USER.equals(oldest.getRole())) {
+                Iterator<Turn> it = turns.iterator();
+                if (it.hasNext()) {
+                    Turn reply = it.next();
+                    if (ROLE_MODEL.equals(reply.getRole())) {
+                        it.remove();
+                        historyBytes -= reply.getSizeBytes();
+                        evictedTurnCount++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * UTF-8 encoded length without allocating the encoded bytes
+     */
+    static int utf8Length(String text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.myapplication;
+
+import android.graphics.Bitmap;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * An object detection engine. Implementations run synchronously on the caller's
+ * (worker) thread and report boxes in the coordinates of the given image.
+ */
+public interface DetectionBackend {
+
+    /**
+     * Detection failed with a message that can be shown to the user as is
+     */
+    class DetectionException extends IOException {
+        public DetectionException(String message) {
+            super(message);
+        }
+
+        public DetectionException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * Short name for logs and UI, e.g. "on-device"
+     */
+    String getName();
+
+    /**
+     * Whether the backend can run at all (model present, token configured, ...)
+     */
+    boolean isAvailable();
+
+    /**
+     * Detect objects in an image. Must not be called on the main thread.
+     */
+    List<HuggingFaceYOLOService.DetectedObject> detect(Bitmap image) throws IOException;
+
+    /**
+     * Release native resources; the backend must not be used afterwards
+     */
+    void close();
+}
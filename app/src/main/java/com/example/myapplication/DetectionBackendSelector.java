@@ -0,0 +1,80 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chooses which detection backend handles a request.
+ * AUTO prefers the on-device model: it works offline, needs no token and has no network
+ * round trip. The remote API is used when no model is installed, and as a fallback when
+ * on-device inference fails while the network is up and the endpoint's circuit is closed.
+ */
+public class DetectionBackendSelector {
+
+    public enum Mode { AUTO, ON_DEVICE, REMOTE }
+
+    private final Context context;
+    private final DetectionBackend onDevice;
+    private final RemoteDetectionBackend remote;
+    private volatile Mode mode = Mode.AUTO;
+
+    public DetectionBackendSelector(Context context, DetectionBackend onDevice, RemoteDetectionBackend remote) {
+        this.context = context.getApplicationContext();
+        this.onDevice = onDevice;
+        this.remote = remote;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Backends to try for the next detection, in order. Empty if none can run.
+     */
+    public List<DetectionBackend> select() {
+        List<DetectionBackend> order = new ArrayList<>(2);
+        switch (mode) {
+            case ON_DEVICE:
+                if (onDevice.isAvailable()) {
+                    order.add(onDevice);
+                }
+                break;
+            case REMOTE:
+                if (remote.isAvailable()) {
+                    order.add(remote);
+                }
+                break;
+            case AUTO:
+            default:
+                if (onDevice.isAvailable()) {
+                    order.add(onDevice);
+                    if (remote.isAvailable() && remote.isReachable() && isNetworkAvailable()) {
+                        order.add(remote);
+                    }
+                } else if (remote.isAvailable()) {
+                    order.add(remote);
+                }
+                break;
+        }
+        return order;
+    }
+
+    private boolean isNetworkAvailable() {
+        ConnectivityManager connectivity = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity == null) {
+            return false;
+        }
+        Network network = connectivity.getActiveNetwork();
+        NetworkCapabilities capabilities = network != null ? connectivity.getNetworkCapabilities(network) : null;
+        return capabilities != null && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+    }
+}
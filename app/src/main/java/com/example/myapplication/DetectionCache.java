@@ -0,0 +1,427 @@
+package com.example.myapplication;
+
+import android.graphics.Bitmap;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of detection results keyed by a perceptual hash (dHash) of the image, so re-running
+ * detection on the same or a nearly identical image (re-encoded, resized, slightly brightened)
+ * returns at once without an upload.
+ * Lookups accept the closest stored hash within a small Hamming distance, among results of
+ * the same scope only (the backend and mode that produced them); boxes are stored relative to
+ * the image size and scaled to the queried image. Memory entries are evicted LRU; an optional
+ * on-disk tier keeps results across process restarts.
+ */
+public class DetectionCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 64;
+    // Two different photos of one scene are often 3-6 bits apart; re-encodes and resizes stay within 2
+    private static final int DEFAULT_MAX_DISTANCE = 2;
+    private static final long DEFAULT_TTL_MS = TimeUnit.DAYS.toMillis(7);
+    private static final int DEFAULT_MAX_DISK_ENTRIES = 300;
+    private static final String DISK_DIR_NAME = "detection_results";
+    // Images whose aspect ratios differ by more than this are never considered the same
+    private static final float MAX_ASPECT_DIFFERENCE = 0.02f;
+
+    // dHash grid: 9x8 luminance samples give 8 horizontal gradients per row, 64 bits
+    private static final int HASH_WIDTH = 9;
+    private static final int HASH_HEIGHT = 8;
+    private static final int SAMPLES_PER_CELL = 8;
+
+    private static DetectionCache sharedInstance;
+
+    private static final class Key {
+        // Hash code of the scope name, which is all a disk file name can carry
+        final int scope;
+        final long hash;
+
+        Key(int scope, long hash) {
+            this.scope = scope;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return scope == other.scope && hash == other.hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * scope + Long.hashCode(hash);
+        }
+    }
+
+    private static class Entry {
+        final float aspect;
+        final long expiresAt;
+        // Normalized boxes: label, confidence, x1, y1, x2, y2 relative to width/height
+        final String[] labels;
+        final float[] values;
+
+        Entry(float aspect, long expiresAt, String[] labels, float[] values) {
+            this.aspect = aspect;
+            this.expiresAt = expiresAt;
+            this.labels = labels;
+            this.values = values;
+        }
+    }
+
+    private final int maxEntries;
+    private final int maxDistance;
+    private final long ttlMillis;
+    private final File diskDir;
+    private final int maxDiskEntries;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Keys present on disk, loaded from the file names on first use
+    private Set<Key> diskKeys;
+
+    private long hitCount;
+    private long nearHitCount;
+    private long diskHitCount;
+    private long missCount;
+
+    /**
+     * Process-wide cache shared by every detection screen
+     * @param cacheDir App cache directory for the disk tier, or null for memory only
+     */
+    public static synchronized DetectionCache shared(File cacheDir) {
+        if (sharedInstance == null) {
+            File diskDir = cacheDir != null ? new File(cacheDir, DISK_DIR_NAME) : null;
+            sharedInstance = new DetectionCache(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_DISTANCE, DEFAULT_TTL_MS,
+                    diskDir, DEFAULT_MAX_DISK_ENTRIES);
+        }
+        return sharedInstance;
+    }
+
+    public DetectionCache(int maxEntries, int maxDistance, long ttlMillis, File diskDir, int maxDiskEntries) {
+        this.maxEntries = maxEntries;
+        this.maxDistance = maxDistance;
+        this.ttlMillis = ttlMillis;
+        this.diskDir = diskDir;
+        this.maxDiskEntries = maxDiskEntries;
+    }
+
+    /**
+     * Perceptual hash of a bitmap (downscaled natively first, so cheap even for large photos)
+     */
+    public static long hash(Bitmap image) {
+        int width = HASH_WIDTH * SAMPLES_PER_CELL;
+        int height = HASH_HEIGHT * SAMPLES_PER_CELL;
+        Bitmap small = Bitmap.createScaledBitmap(image, width, height, true);
+        int[] pixels = new int[width * height];
+        small.getPixels(pixels, 0, width, 0, 0, width, height);
+        if (small != image) {
+            small.recycle();
+        }
+        return dHash(pixels, width, height);
+    }
+
+    /**
+     * Difference hash of ARGB pixels: the image is averaged down to a 9x8 luminance grid and
+     * each bit tells whether a cell is brighter than its right neighbour.
+     * Robust to scaling, recompression and uniform brightness changes.
+     */
+    static long dHash(int[] argb, int width, int height) {
+        float[] cells = new float[HASH_WIDTH * HASH_HEIGHT];
+        int[] counts = new int[HASH_WIDTH * HASH_HEIGHT];
+        for (int y = 0; y < height; y++) {
+            int cellRow = y * HASH_HEIGHT / height;
+            for (int x = 0; x < width; x++) {
+                int pixel = argb[y * width + x];
+                int cell = cellRow * HASH_WIDTH + x * HASH_WIDTH / width;
+                // Rec. 601 luma
+                cells[cell] += (((pixel >> 16) & 0xFF) * 299 + ((pixel >> 8) & 0xFF) * 587 + (pixel & 0xFF) * 114) / 1000f;
+                counts[cell]++;
+            }
+        }
+
+        long hash = 0;
+        for (int row = 0; row < HASH_HEIGHT; row++) {
+            for (int col = 0; col < HASH_WIDTH - 1; col++) {
+                int cell = row * HASH_WIDTH + col;
+                float left = cells[cell] / Math.max(1, counts[cell]);
+                float right = cells[cell + 1] / Math.max(1, counts[cell + 1]);
+                hash = (hash << 1) | (left > right ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * Cached detections for an image with this hash and size, scaled to that size, or null.
+     * May read from disk: call off the main thread.
+     * @param scope Backend and mode the detections must come from
+     */
+    public List<HuggingFaceYOLOService.DetectedObject> get(String scope, long hash, int width, int height) {
+        float aspect = width / (float) height;
+        long now = System.currentTimeMillis();
+        int scopeId = scope.hashCode();
+
+        synchronized (this) {
+            Key best = nearest(entries.keySet(), scopeId, hash);
+            if (best != null) {
+                Entry entry = entries.get(best);
+                if (entry.expiresAt <= now) {
+                    entries.remove(best);
+                } else if (Math.abs(entry.aspect - aspect) <= MAX_ASPECT_DIFFERENCE * aspect) {
+                    if (best.hash == hash) {
+                        hitCount++;
+                    } else {
+                        nearHitCount++;
+                    }
+                    return scale(entry, width, height);
+                }
+            }
+        }
+
+        Key diskKey;
+        synchronized (this) {
+            diskKey = nearest(loadDiskKeys(), scopeId, hash);
+        }
+        Entry diskEntry = diskKey != null ? readFromDisk(diskKey) : null;
+        synchronized (this) {
+            if (diskEntry == null || diskEntry.expiresAt <= now
+                    || Math.abs(diskEntry.aspect - aspect) > MAX_ASPECT_DIFFERENCE * aspect) {
+                missCount++;
+                return null;
+            }
+            diskHitCount++;
+            putInMemory(diskKey, diskEntry);
+            return scale(diskEntry, width, height);
+        }
+    }
+
+    /**
+     * Store detections for an image (disk I/O, call off the main thread)
+     * @param scope Backend and mode that produced the detections
+     */
+    public void put(String scope, long hash, int width, int height,
+                    List<HuggingFaceYOLOService.DetectedObject> detections) {
+        int n = detections.size();
+        String[] labels = new String[n];
+        float[] values = new float[n * 5];
+        for (int i = 0; i < n; i++) {
+            HuggingFaceYOLOService.DetectedObject d = detections.get(i);
+            labels[i] = d.getLabel();
+            values[i * 5] = d.getConfidence();
+            values[i * 5 + 1] = d.getXMin() / width;
+            values[i * 5 + 2] = d.getYMin() / height;
+            values[i * 5 + 3] = d.getXMax() / width;
+            values[i * 5 + 4] = d.getYMax() / height;
+        }
+        Entry entry = new Entry(width / (float) height, System.currentTimeMillis() + ttlMillis, labels, values);
+        Key key = new Key(scope.hashCode(), hash);
+        synchronized (this) {
+            putInMemory(key, entry);
+        }
+        writeToDisk(key, entry);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        if (diskDir != null) {
+            File[] files = diskDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        }
+        diskKeys = null;
+    }
+
+    public synchronized long getHitCount() { return hitCount; }
+    public synchronized long getNearHitCount() { return nearHitCount; }
+    public synchronized long getDiskHitCount() { return diskHitCount; }
+    public synchronized long getMissCount() { return missCount; }
+    public synchronized int size() { return entries.size(); }
+
+    /**
+     * One-line summary for logging
+     */
+    public synchronized String describeStats() {
+        return "entries " + entries.size() + ", exact hits " + hitCount + ", near hits " + nearHitCount
+                + ", disk hits " + diskHitCount + ", misses " + missCount;
+    }
+
+    private Key nearest(Iterable<Key> keys, int scope, long hash) {
+        Key best = null;
+        int bestDistance = maxDistance + 1;
+        for (Key candidate : keys) {
+            if (candidate.scope != scope) {
+                continue;
+            }
+            int d = distance(candidate.hash, hash);
+            if (d < bestDistance) {
+                best = candidate;
+                bestDistance = d;
+                if (d == 0) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static List<HuggingFaceYOLOService.DetectedObject> scale(Entry entry, int width, int height) {
+        List<HuggingFaceYOLOService.DetectedObject> detections = new ArrayList<>(entry.labels.length);
+        for (int i = 0; i < entry.labels.length; i++) {
+            float[] v = entry.values;
+            detections.add(new HuggingFaceYOLOService.DetectedObject(entry.labels[i], v[i * 5],
+                    v[i * 5 + 1] * width, v[i * 5 + 2] * height, v[i * 5 + 3] * width, v[i * 5 + 4] * height));
+        }
+        return detections;
+    }
+
+    private void putInMemory(Key key, Entry entry) {
+        entries.put(key, entry);
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private Set<Key> loadDiskKeys() {
+        if (diskKeys == null) {
+            diskKeys = new LinkedHashSet<>();
+            File[] files = diskDir != null ? diskDir.listFiles() : null;
+            if (files != null) {
+                for (File file : files) {
+                    try {
+                        diskKeys.add(parseFileName(file.getName()));
+                    } catch (NumberFormatException e) {
+                        file.delete();
+                    }
+                }
+            }
+        }
+        return diskKeys;
+    }
+
+    private Entry readFromDisk(Key key) {
+        File file = new File(diskDir, fileNameFor(key));
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            // Format: expiry millis, aspect ratio, then one tab-separated detection per line
+            long expiresAt = Long.parseLong(reader.readLine());
+            float aspect = Float.parseFloat(reader.readLine());
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            String[] labels = new String[lines.size()];
+            float[] values = new float[lines.size() * 5];
+            for (int i = 0; i < lines.size(); i++) {
+                String[] fields = lines.get(i).split("\t");
+                labels[i] = fields[0];
+                for (int f = 0; f < 5; f++) {
+                    values[i * 5 + f] = Float.parseFloat(fields[f + 1]);
+                }
+            }
+            return new Entry(aspect, expiresAt, labels, values);
+        } catch (IOException | RuntimeException e) {
+            // Missing, truncated or corrupt file
+            file.delete();
+            synchronized (this) {
+                if (diskKeys != null) {
+                    diskKeys.remove(key);
+                }
+            }
+            return null;
+        }
+    }
+
+    private void writeToDisk(Key key, Entry entry) {
+        if (diskDir == null || (!diskDir.exists() && !diskDir.mkdirs())) {
+            return;
+        }
+        StringBuilder content = new StringBuilder();
+        content.append(entry.expiresAt).append('\n').append(entry.aspect).append('\n');
+        for (int i = 0; i < entry.labels.length; i++) {
+            content.append(entry.labels[i].replace('\t', ' ').replace('\n', ' '));
+            for (int f = 0; f < 5; f++) {
+                content.append('\t').append(entry.values[i * 5 + f]);
+            }
+            content.append('\n');
+        }
+
+        File file = new File(diskDir, fileNameFor(key));
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            file.delete();
+            return;
+        }
+        synchronized (this) {
+            loadDiskKeys().add(key);
+        }
+        trimDisk();
+    }
+
+    /**
+     * Delete the oldest files once the disk tier holds too many entries
+     */
+    private void trimDisk() {
+        File[] files = diskDir.listFiles();
+        if (files == null || files.length <= maxDiskEntries) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i < files.length - maxDiskEntries; i++) {
+            files[i].delete();
+            synchronized (this) {
+                try {
+                    loadDiskKeys().remove(parseFileName(files[i].getName()));
+                } catch (NumberFormatException ignored) {
+                    // Not one of ours, already deleted
+                }
+            }
+        }
+    }
+
+    private static String fileNameFor(Key key) {
+        return String.format(Locale.ROOT, "%08x%016x", key.scope, key.hash);
+    }
+
+    /**
+     * Inverse of fileNameFor (Long.parseUnsignedLong needs API 26)
+     */
+    private static Key parseFileName(String name) {
+        if (name.length() != 24) {
+            throw new NumberFormatException(name);
+        }
+        int scope = (int) Long.parseLong(name.substring(0, 8), 16);
+        long hash = (Long.parseLong(name.substring(8, 16), 16) << 32) | Long.parseLong(name.substring(16), 16);
+        return new Key(scope, hash);
+    }
+}
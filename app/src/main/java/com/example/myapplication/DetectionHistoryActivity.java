@@ -0,0 +1,174 @@
+package com.example.myapplication;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.view.inputmethod.EditorInfo;
+import android.widget.ArrayAdapter;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.myapplication.databinding.ActivityDetectionHistoryBinding;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Past detection results, searchable by label and minimum confidence.
+ * Answers come from DetectionHistoryStore, never from a new inference; pages load as the
+ * list is scrolled.
+ */
+public class DetectionHistoryActivity extends AppCompatActivity {
+
+    private static final int PAGE_SIZE = 50;
+    // Load the next page when this close to the end of the list
+    private static final int PREFETCH_DISTANCE = 10;
+
+    private ActivityDetectionHistoryBinding binding;
+    private DetectionHistoryStore store;
+    private DetectionHistoryAdapter adapter;
+    private final ExecutorService queryExecutor = Executors.newSingleThreadExecutor();
+
+    // Current query, main thread only
+    private String queryLabel;
+    private float queryMinConfidence;
+    private int queryGeneration;
+    private boolean loading;
+    private boolean hasMore;
+    private int loadedCount;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        binding = ActivityDetectionHistoryBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
+
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setTitle("Detection History");
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+        binding.toolbar.setNavigationOnClickListener(v -> finish());
+
+        store = DetectionHistoryStore.getInstance(this);
+        adapter = new DetectionHistoryAdapter(this::showDetails);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        binding.recyclerViewHistory.setLayoutManager(layoutManager);
+        binding.recyclerViewHistory.setAdapter(adapter);
+        binding.recyclerViewHistory.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
+
+        binding.buttonSearch.setOnClickListener(v -> search());
+        binding.editTextLabel.setOnEditorActionListener((v, actionId, event) -> {
+            if (actionId == EditorInfo.IME_ACTION_SEARCH) {
+                search();
+                return true;
+            }
+            return false;
+        });
+
+        queryExecutor.execute(() -> {
+            List<String> labels = store.getLabels();
+            runOnUiThread(() -> {
+                if (!isDestroyed()) {
+                    binding.editTextLabel.setAdapter(new ArrayAdapter<>(this,
+                            android.R.layout.simple_dropdown_item_1line, labels));
+                }
+            });
+        });
+        search();
+    }
+
+    private void search() {
+        String label = binding.editTextLabel.getText().toString().trim();
+        queryLabel = label.isEmpty() ? null : label;
+        float percent;
+        try {
+            percent = Float.parseFloat(binding.editTextMinConfidence.getText().toString());
+        } catch (NumberFormatException e) {
+            percent = 0f;
+        }
+        queryMinConfidence = Math.max(0f, Math.min(100f, percent)) / 100f;
+        // Results of older queries still in flight are dropped
+        queryGeneration++;
+        loading = false;
+        hasMore = true;
+        loadedCount = 0;
+        loadPage(true);
+    }
+
+    private void loadNextPage() {
+        if (!loading && hasMore) {
+            loadPage(false);
+        }
+    }
+
+    private void loadPage(boolean first) {
+        loading = true;
+        int generation = queryGeneration;
+        String label = queryLabel;
+        float minConfidence = queryMinConfidence;
+        long beforeId = first ? 0 : adapter.getLastId();
+        queryExecutor.execute(() -> {
+            long start = SystemClock.elapsedRealtime();
+            List<DetectionHistoryStore.HistoryItem> page = store.query(label, minConfidence, beforeId, PAGE_SIZE);
+            long elapsed = SystemClock.elapsedRealtime() - start;
+            runOnUiThread(() -> {
+                if (isDestroyed() || generation != queryGeneration) {
+                    return;
+                }
+                loading = false;
+                hasMore = page.size() == PAGE_SIZE;
+                loadedCount += page.size();
+                if (first) {
+                    adapter.setItems(page, label);
+                    binding.recyclerViewHistory.scrollToPosition(0);
+                } else {
+                    adapter.appendItems(page);
+                }
+                String filter = label == null ? "all images"
+                        : String.format(Locale.US, "images with %s >= %.0f%%", label, minConfidence * 100);
+                binding.textViewStatus.setText(String.format(Locale.US, "%d%s %s | page in %d ms",
+                        loadedCount, hasMore ? "+" : "", filter, elapsed));
+            });
+        });
+    }
+
+    private void showDetails(DetectionHistoryStore.HistoryItem item) {
+        queryExecutor.execute(() -> {
+            List<HuggingFaceYOLOService.DetectedObject> detections = store.getDetections(item);
+            StringBuilder text = new StringBuilder();
+            for (HuggingFaceYOLOService.DetectedObject d : detections) {
+                text.append(String.format(Locale.US, "• %s (%.1f%% confidence)\n", d.getLabel(), d.getConfidence() * 100));
+            }
+            if (item.source != null) {
+                text.append("\n").append(item.source);
+            }
+            runOnUiThread(() -> {
+                if (!isDestroyed()) {
+                    new AlertDialog.Builder(this)
+                            .setTitle(detections.size() + " object(s)")
+                            .setMessage(text.length() > 0 ? text.toString() : "No objects detected")
+                            .setPositiveButton("OK", null)
+                            .show();
+                }
+            });
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        queryExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.myapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.text.format.DateUtils;
+import android.util.LruCache;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Rows of the detection history; pages are appended as they load
+ */
+public class DetectionHistoryAdapter extends RecyclerView.Adapter<DetectionHistoryAdapter.HistoryViewHolder> {
+
+    private final List<DetectionHistoryStore.HistoryItem> items = new ArrayList<>();
+    private final OnItemClickListener listener;
+    // Decoded thumbnails by image id, so scrolling back does not decode again
+    private final LruCache<Long, Bitmap> thumbnails = new LruCache<Long, Bitmap>(4 * 1024 * 1024) {
+        @Override
+        protected int sizeOf(Long key, Bitmap value) {
+            return value.getByteCount();
+        }
+    };
+    private String label;
+
+    public interface OnItemClickListener {
+        void onItemClick(DetectionHistoryStore.HistoryItem item);
+    }
+
+    public DetectionHistoryAdapter(OnItemClickListener listener) {
+        this.listener = listener;
+        setHasStableIds(true);
+    }
+
+    /**
+     * Replace the rows with the first page of a new query
+     * @param label Label the query filtered on, or null
+     */
+    public void setItems(List<DetectionHistoryStore.HistoryItem> page, String label) {
+        this.label = label;
+        items.clear();
+        items.addAll(page);
+        notifyDataSetChanged();
+    }
+
+    public void appendItems(List<DetectionHistoryStore.HistoryItem> page) {
+        int start = items.size();
+        items.addAll(page);
+        notifyItemRangeInserted(start, page.size());
+    }
+
+    /**
+     * Id of the last row, the paging key for the next page
+     */
+    public long getLastId() {
+        return items.isEmpty() ? 0 : items.get(items.size() - 1).id;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return items.get(position).id;
+    }
+
+    @NonNull
+    @Override
+    public HistoryViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_detection_history, parent, false);
+        return new HistoryViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull HistoryViewHolder holder, int position) {
+        DetectionHistoryStore.HistoryItem item = items.get(position);
+        holder.bind(item, label, thumbnail(item), listener);
+    }
+
+    @Override
+    public int getItemCount() {
+        return items.size();
+    }
+
+    private Bitmap thumbnail(DetectionHistoryStore.HistoryItem item) {
+        if (item.thumbnail == null) {
+            return null;
+        }
+        Bitmap bitmap = thumbnails.get(item.id);
+        if (bitmap == null) {
+            bitmap = BitmapFactory.decodeByteArray(item.thumbnail, 0, item.thumbnail.length);
+            if (bitmap != null) {
+                thumbnails.put(item.id, bitmap);
+            }
+        }
+        return bitmap;
+    }
+
+    static class HistoryViewHolder extends RecyclerView.ViewHolder {
+        private final ImageView imageViewThumbnail;
+        private final TextView textViewTitle;
+        private final TextView textViewSubtitle;
+
+        HistoryViewHolder(@NonNull View itemView) {
+            super(itemView);
+            imageViewThumbnail = itemView.findViewById(R.id.imageViewThumbnail);
+            textViewTitle = itemView.findViewById(R.id.textViewTitle);
+            textViewSubtitle = itemView.findViewById(R.id.textViewSubtitle);
+        }
+
+        void bind(DetectionHistoryStore.HistoryItem item, String label, Bitmap thumbnail,
+                  OnItemClickListener listener) {
+            imageViewThumbnail.setImageBitmap(thumbnail);
+            CharSequence when = DateUtils.getRelativeTimeSpanString(item.createdAt);
+            String backend = item.backend != null ? item.backend : "unknown";
+            if (label != null) {
+                textViewTitle.setText(String.format(Locale.US, "%s %.0f%%", label, item.bestConfidence * 100));
+                textViewSubtitle.setText(item.objectCount + " object(s) | " + backend + " | " + when);
+            } else {
+                textViewTitle.setText(item.objectCount + " object(s)");
+                textViewSubtitle.setText(backend + " | " + when);
+            }
+            itemView.setOnClickListener(v -> {
+                if (listener != null) {
+                    listener.onItemClick(item);
+                }
+            });
+        }
+    }
+}
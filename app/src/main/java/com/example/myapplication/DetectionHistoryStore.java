@@ -0,0 +1,301 @@
+package com.example.myapplication;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Local history of detection results with thumbnails, in SQLite.
+ * Detections are indexed on (label, confidence), so "images containing a bottle above 80%"
+ * is an index range scan rather than a table scan or a new inference. Queries are paged by
+ * image id (keyset), which stays fast at any depth unlike OFFSET.
+ * Writes are queued and flushed by a single background thread, one transaction per flush,
+ * so a batch of results costs one commit instead of one per row.
+ */
+public class DetectionHistoryStore extends SQLiteOpenHelper {
+
+    private static final String TAG = "DetectionHistoryStore";
+    private static final String DATABASE_NAME = "detection_history.db";
+    private static final int DATABASE_VERSION = 1;
+
+    public static final int THUMBNAIL_SIZE = 160;
+    private static final int THUMBNAIL_QUALITY = 75;
+
+    private static DetectionHistoryStore instance;
+
+    /**
+     * One detection run over an image, queued for writing
+     */
+    public static class Entry {
+        final long createdAt;
+        final String source;
+        final int width;
+        final int height;
+        final String backend;
+        final byte[] thumbnail;
+        final List<HuggingFaceYOLOService.DetectedObject> detections;
+
+        /**
+         * @param source     Content Uri or other reference to the image, may be null
+         * @param width      Size of the image the boxes refer to
+         * @param thumbnail  JPEG thumbnail (see encodeThumbnail), may be null
+         */
+        public Entry(String source, int width, int height, String backend, byte[] thumbnail,
+                     List<HuggingFaceYOLOService.DetectedObject> detections) {
+            this.createdAt = System.currentTimeMillis();
+            this.source = source;
+            this.width = width;
+            this.height = height;
+            this.backend = backend;
+            this.thumbnail = thumbnail;
+            this.detections = new ArrayList<>(detections);
+        }
+    }
+
+    /**
+     * A stored image matching a query
+     */
+    public static class HistoryItem {
+        public final long id;
+        public final long createdAt;
+        public final String source;
+        public final int width;
+        public final int height;
+        public final String backend;
+        public final int objectCount;
+        public final byte[] thumbnail;
+        // Highest confidence of the queried label, or of any label for unfiltered queries
+        public final float bestConfidence;
+
+        HistoryItem(long id, long createdAt, String source, int width, int height, String backend,
+                    int objectCount, byte[] thumbnail, float bestConfidence) {
+            this.id = id;
+            this.createdAt = createdAt;
+            this.source = source;
+            this.width = width;
+            this.height = height;
+            this.backend = backend;
+            this.objectCount = objectCount;
+            this.thumbnail = thumbnail;
+            this.bestConfidence = bestConfidence;
+        }
+    }
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private final ConcurrentLinkedQueue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    /**
+     * Process-wide store, so all screens share one connection and one writer
+     */
+    public static synchronized DetectionHistoryStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new DetectionHistoryStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private DetectionHistoryStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        db.setForeignKeyConstraintsEnabled(true);
+        // Readers are not blocked by the writer's transactions
+        db.enableWriteAheadLogging();
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE images ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "created_at INTEGER NOT NULL, "
+                + "source TEXT, "
+                + "width INTEGER NOT NULL, "
+                + "height INTEGER NOT NULL, "
+                + "backend TEXT, "
+                + "object_count INTEGER NOT NULL, "
+                + "thumbnail BLOB)");
+        // Boxes are stored normalized to 0..1 of the image size
+        db.execSQL("CREATE TABLE detections ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "image_id INTEGER NOT NULL REFERENCES images(id) ON DELETE CASCADE, "
+                + "label TEXT NOT NULL, "
+                + "confidence REAL NOT NULL, "
+                + "x_min REAL NOT NULL, y_min REAL NOT NULL, x_max REAL NOT NULL, y_max REAL NOT NULL)");
+        db.execSQL("CREATE INDEX idx_detections_label_confidence ON detections(label, confidence)");
+        db.execSQL("CREATE INDEX idx_detections_image ON detections(image_id)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS detections");
+        db.execSQL("DROP TABLE IF EXISTS images");
+        onCreate(db);
+    }
+
+    /**
+     * Queue an entry; it is written with whatever else is queued in one background transaction
+     */
+    public void record(Entry entry) {
+        pending.add(entry);
+        if (flushScheduled.compareAndSet(false, true)) {
+            writer.execute(this::flush);
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        List<Entry> batch = new ArrayList<>();
+        Entry entry;
+        while ((entry = pending.poll()) != null) {
+            batch.add(entry);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement insertDetection = db.compileStatement("INSERT INTO detections "
+                + "(image_id, label, confidence, x_min, y_min, x_max, y_max) VALUES (?, ?, ?, ?, ?, ?, ?)");
+        int rows = 0;
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (Entry e : batch) {
+                values.clear();
+                values.put("created_at", e.createdAt);
+                values.put("source", e.source);
+                values.put("width", e.width);
+                values.put("height", e.height);
+                values.put("backend", e.backend);
+                values.put("object_count", e.detections.size());
+                values.put("thumbnail", e.thumbnail);
+                long imageId = db.insertOrThrow("images", null, values);
+
+                float sx = e.width > 0 ? 1f / e.width : 0f;
+                float sy = e.height > 0 ? 1f / e.height : 0f;
+                for (HuggingFaceYOLOService.DetectedObject d : e.detections) {
+                    insertDetection.clearBindings();
+                    insertDetection.bindLong(1, imageId);
+                    insertDetection.bindString(2, d.getLabel());
+                    insertDetection.bindDouble(3, d.getConfidence());
+                    insertDetection.bindDouble(4, d.getXMin() * sx);
+                    insertDetection.bindDouble(5, d.getYMin() * sy);
+                    insertDetection.bindDouble(6, d.getXMax() * sx);
+                    insertDetection.bindDouble(7, d.getYMax() * sy);
+                    insertDetection.executeInsert();
+                    rows++;
+                }
+            }
+            db.setTransactionSuccessful();
+            Log.d(TAG, "Wrote " + batch.size() + " images, " + rows + " detections in one transaction, "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Could not write " + batch.size() + " history entries", e);
+        } finally {
+            db.endTransaction();
+            insertDetection.close();
+        }
+    }
+
+    /**
+     * Page of images, newest first. Blocking: call off the main thread.
+     * @param label         Only images with this label, or null for all images
+     * @param minConfidence Lowest confidence of that label to match (ignored without a label)
+     * @param beforeId      Id of the last item of the previous page, or 0 for the first page
+     */
+    public List<HistoryItem> query(String label, float minConfidence, long beforeId, int limit) {
+        long before = beforeId > 0 ? beforeId : Long.MAX_VALUE;
+        String sql;
+        String[] args;
+        if (label != null) {
+            // Range scan on idx_detections_label_confidence, then one row per image
+            sql = "SELECT i.id, i.created_at, i.source, i.width, i.height, i.backend, i.object_count, "
+                    + "i.thumbnail, MAX(d.confidence) "
+                    + "FROM detections d JOIN images i ON i.id = d.image_id "
+                    + "WHERE d.label = ? AND d.confidence >= ? AND d.image_id < ? "
+                    + "GROUP BY i.id ORDER BY i.id DESC LIMIT ?";
+            args = new String[]{label, Float.toString(minConfidence), Long.toString(before), Integer.toString(limit)};
+        } else {
+            sql = "SELECT i.id, i.created_at, i.source, i.width, i.height, i.backend, i.object_count, "
+                    + "i.thumbnail, (SELECT MAX(confidence) FROM detections WHERE image_id = i.id) "
+                    + "FROM images i WHERE i.id < ? ORDER BY i.id DESC LIMIT ?";
+            args = new String[]{Long.toString(before), Integer.toString(limit)};
+        }
+
+        List<HistoryItem> items = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(sql, args)) {
+            while (cursor.moveToNext()) {
+                items.add(new HistoryItem(cursor.getLong(0), cursor.getLong(1), cursor.getString(2),
+                        cursor.getInt(3), cursor.getInt(4), cursor.getString(5), cursor.getInt(6),
+                        cursor.getBlob(7), cursor.isNull(8) ? 0f : cursor.getFloat(8)));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Detections of one stored image, in the stored image's pixel coordinates. Blocking.
+     */
+    public List<HuggingFaceYOLOService.DetectedObject> getDetections(HistoryItem item) {
+        List<HuggingFaceYOLOService.DetectedObject> detections = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT label, confidence, x_min, y_min, x_max, y_max FROM detections "
+                        + "WHERE image_id = ? ORDER BY confidence DESC",
+                new String[]{Long.toString(item.id)})) {
+            while (cursor.moveToNext()) {
+                detections.add(new HuggingFaceYOLOService.DetectedObject(cursor.getString(0), cursor.getFloat(1),
+                        cursor.getFloat(2) * item.width, cursor.getFloat(3) * item.height,
+                        cursor.getFloat(4) * item.width, cursor.getFloat(5) * item.height));
+            }
+        }
+        return detections;
+    }
+
+    /**
+     * Distinct labels in the history, most frequent first. Blocking.
+     */
+    public List<String> getLabels() {
+        List<String> labels = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT label FROM detections GROUP BY label ORDER BY COUNT(*) DESC", null)) {
+            while (cursor.moveToNext()) {
+                labels.add(cursor.getString(0));
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Small JPEG of the image for history rows; call before the bitmap is recycled or reused
+     */
+    public static byte[] encodeThumbnail(Bitmap image) {
+        float scale = Math.min(1f, THUMBNAIL_SIZE / (float) Math.max(image.getWidth(), image.getHeight()));
+        Bitmap thumbnail = scale < 1f
+                ? Bitmap.createScaledBitmap(image, Math.max(1, Math.round(image.getWidth() * scale)),
+                        Math.max(1, Math.round(image.getHeight() * scale)), true)
+                : image;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 * 1024);
+        thumbnail.compress(Bitmap.CompressFormat.JPEG, THUMBNAIL_QUALITY, out);
+        if (thumbnail != image) {
+            thumbnail.recycle();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Draws detection boxes over a camera preview or a centerCrop ImageView.
+ * Boxes are given in source image coordinates and mapped like FILL_CENTER / centerCrop
+ * scaling, so the image is never copied and redraw cost does not depend on its resolution.
+ * Results are copied into reused arrays when they arrive and label texts are cached per
+ * label and percentage, so neither new results nor drawing allocate once warmed up.
+ */
+public class DetectionOverlayView extends View {
+
+    private static final float LABEL_HEIGHT = 40f;
+    private static final int MAX_PERCENT = 100;
+
+    private final Paint boxPaint = new Paint();
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint bgPaint = new Paint();
+    private final RectF rect = new RectF();
+    // "label NN%" texts and their widths, indexed by percentage
+    private final Map<String, String[]> labelTexts = new HashMap<>();
+    private final Map<String, float[]> labelTextWidths = new HashMap<>();
+
+    private float[] boxes = new float[0];
+    private String[] labels = new String[0];
+    private float[] labelWidths = new float[0];
+    private int count;
+    private int sourceWidth;
+    private int sourceHeight;
+
+    public DetectionOverlayView(Context context) {
+        this(context, null);
+    }
+
+    public DetectionOverlayView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+
+        boxPaint.setColor(Color.RED);
+        boxPaint.setStyle(Paint.Style.STROKE);
+        boxPaint.setStrokeWidth(4f);
+
+        textPaint.setColor(Color.RED);
+        textPaint.setTextSize(30f);
+        textPaint.setStyle(Paint.Style.FILL);
+        textPaint.setFakeBoldText(true);
+
+        bgPaint.setColor(Color.WHITE);
+        bgPaint.setStyle(Paint.Style.FILL);
+        bgPaint.setAlpha(200);
+    }
+
+    /**
+     * Show detections for a source image of the given size. Call on the main thread.
+     */
+    public void setDetections(List<HuggingFaceYOLOService.DetectedObject> detections, int sourceWidth, int sourceHeight) {
+        int n = detections.size();
+        if (labels.length < n) {
+            boxes = new float[n * 4];
+            labels = new String[n];
+            labelWidths = new float[n];
+        }
+        for (int i = 0; i < n; i++) {
+            HuggingFaceYOLOService.DetectedObject d = detections.get(i);
+            boxes[i * 4] = d.getXMin();
+            boxes[i * 4 + 1] = d.getYMin();
+            boxes[i * 4 + 2] = d.getXMax();
+            boxes[i * 4 + 3] = d.getYMax();
+            setLabel(i, d.getLabel(), d.getConfidence());
+        }
+        this.count = n;
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+        invalidate();
+    }
+
+    private void setLabel(int index, String label, float confidence) {
+        int percent = Math.max(0, Math.min(MAX_PERCENT, Math.round(confidence * 100)));
+        String[] texts = labelTexts.get(label);
+        float[] widths = labelTextWidths.get(label);
+        if (texts == null) {
+            texts = new String[MAX_PERCENT + 1];
+            widths = new float[MAX_PERCENT + 1];
+            labelTexts.put(label, texts);
+            labelTextWidths.put(label, widths);
+        }
+        if (texts[percent] == null) {
+            texts[percent] = label + " " + percent + "%";
+            widths[percent] = textPaint.measureText(texts[percent]);
+        }
+        labels[index] = texts[percent];
+        labelWidths[index] = widths[percent];
+    }
+
+    public void clear() {
+        count = 0;
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (count == 0 || sourceWidth == 0 || sourceHeight == 0) {
+            return;
+        }
+
+        // Same mapping as PreviewView's FILL_CENTER and ImageView's CENTER_CROP: scale to cover, then center
+        float scale = Math.max(getWidth() / (float) sourceWidth, getHeight() / (float) sourceHeight);
+        float dx = (getWidth() - sourceWidth * scale) / 2f;
+        float dy = (getHeight() - sourceHeight * scale) / 2f;
+
+        for (int i = 0; i < count; i++) {
+            rect.set(boxes[i * 4] * scale + dx, boxes[i * 4 + 1] * scale + dy,
+                    boxes[i * 4 + 2] * scale + dx, boxes[i * 4 + 3] * scale + dy);
+            canvas.drawRect(rect, boxPaint);
+
+            // Keep the label inside the view for boxes touching the top edge
+            float top = Math.max(rect.top, LABEL_HEIGHT);
+            canvas.drawRect(rect.left, top - LABEL_HEIGHT, rect.left + labelWidths[i] + 10, top, bgPaint);
+            canvas.drawText(labels[i], rect.left + 5, top - 10, textPaint);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Post-processing of raw detector output: per-class confidence thresholds, class-aware
+ * non-maximum suppression and top-K limiting.
+ * Works on primitive arrays held in a reusable Candidates buffer, so thousands of raw
+ * predictions (e.g. the 8400 anchors of an on-device yolov8n) cost no object per box;
+ * DetectedObjects are only created for the survivors.
+ * Instances are immutable and thread-safe; each thread needs its own Candidates.
+ */
+public final class DetectionPostProcessor {
+
+    public static final float DEFAULT_SCORE_THRESHOLD = 0.3f;
+    public static final float DEFAULT_IOU_THRESHOLD = 0.45f;
+    public static final int DEFAULT_MAX_DETECTIONS = 100;
+
+    /**
+     * Raw predictions as parallel primitive arrays, plus scratch space for processing.
+     * Grows as needed and is meant to be cleared and reused. Not thread-safe.
+     */
+    public static final class Candidates {
+        private float[] boxes;
+        private float[] scores;
+        private int[] classIds;
+        private String[] labels;
+        private int size;
+
+        // Scratch: sort keys, box areas and indices of the kept candidates
+        private long[] order;
+        private float[] areas;
+        private int[] kept;
+        private int keptCount;
+
+        public Candidates(int initialCapacity) {
+            int capacity = Math.max(16, initialCapacity);
+            boxes = new float[capacity * 4];
+            scores = new float[capacity];
+            classIds = new int[capacity];
+            labels = new String[capacity];
+            order = new long[capacity];
+            areas = new float[capacity];
+            kept = new int[capacity];
+        }
+
+        public void clear() {
+            // Drop label references so they can be collected
+            Arrays.fill(labels, 0, size, null);
+            size = 0;
+            keptCount = 0;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Add a box in (x1, y1, x2, y2) corners form
+         */
+        public void add(float x1, float y1, float x2, float y2, float score, int classId) {
+            add(x1, y1, x2, y2, score, classId, null);
+        }
+
+        /**
+         * Add a box with its label text (used when the label is not one of the class names)
+         */
+        public void add(float x1, float y1, float x2, float y2, float score, int classId, String label) {
+            if (size == scores.length) {
+                grow();
+            }
+            int b = size * 4;
+            boxes[b] = x1;
+            boxes[b + 1] = y1;
+            boxes[b + 2] = x2;
+            boxes[b + 3] = y2;
+            scores[size] = score;
+            classIds[size] = classId;
+            labels[size] = label;
+            size++;
+        }
+
+        /**
+         * Number of candidates kept by the last process() call
+         */
+        public int getKeptCount() {
+            return keptCount;
+        }
+
+        /**
+         * Candidate index of the n-th kept box, in descending score order
+         */
+        public int getKept(int n) {
+            return kept[n];
+        }
+
+        public float getX1(int i) { return boxes[i * 4]; }
+        public float getY1(int i) { return boxes[i * 4 + 1]; }
+        public float getX2(int i) { return boxes[i * 4 + 2]; }
+        public float getY2(int i) { return boxes[i * 4 + 3]; }
+        public float getScore(int i) { return scores[i]; }
+        public int getClassId(int i) { return classIds[i]; }
+        public String getLabel(int i) { return labels[i]; }
+
+        private void grow() {
+            int capacity = scores.length * 2;
+            boxes = Arrays.copyOf(boxes, capacity * 4);
+            scores = Arrays.copyOf(scores, capacity);
+            classIds = Arrays.copyOf(classIds, capacity);
+            labels = Arrays.copyOf(labels, capacity);
+            order = new long[capacity];
+            areas = new float[capacity];
+            kept = new int[capacity];
+        }
+    }
+
+    public static class Builder {
+        private final String[] classNames;
+        private float scoreThreshold = DEFAULT_SCORE_THRESHOLD;
+        private float iouThreshold = DEFAULT_IOU_THRESHOLD;
+        private int maxDetections = DEFAULT_MAX_DETECTIONS;
+        private boolean classAgnostic;
+        private final Map<String, Float> classThresholds = new HashMap<>();
+
+        /**
+         * @param classNames Class names indexed by class id (e.g. the COCO labels)
+         */
+        public Builder(String[] classNames) {
+            this.classNames = classNames.clone();
+        }
+
+        /**
+         * Minimum score for classes without their own threshold
+         */
+        public Builder scoreThreshold(float threshold) {
+            this.scoreThreshold = threshold;
+            return this;
+        }
+
+        /**
+         * Minimum score for one class, e.g. a higher bar for a class with many false positives
+         */
+        public Builder classThreshold(String className, float threshold) {
+            classThresholds.put(className, threshold);
+            return this;
+        }
+
+        /**
+         * Boxes overlapping a higher-scoring box by more than this IoU are suppressed
+         */
+        public Builder iouThreshold(float threshold) {
+            this.iouThreshold = threshold;
+            return this;
+        }
+
+        public Builder maxDetections(int maxDetections) {
+            this.maxDetections = maxDetections;
+            return this;
+        }
+
+        /**
+         * Suppress overlapping boxes across classes too (off by default)
+         */
+        public Builder classAgnostic(boolean classAgnostic) {
+            this.classAgnostic = classAgnostic;
+            return this;
+        }
+
+        public DetectionPostProcessor build() {
+            return new DetectionPostProcessor(this);
+        }
+    }
+
+    private final String[] classNames;
+    private final Map<String, Integer> classIds;
+    private final float[] thresholds;
+    private final float defaultThreshold;
+    private final float minThreshold;
+    private final float iouThreshold;
+    private final int maxDetections;
+    private final boolean classAgnostic;
+
+    private DetectionPostProcessor(Builder builder) {
+        this.classNames = builder.classNames;
+        this.classIds = new HashMap<>(classNames.length * 2);
+        for (int i = 0; i < classNames.length; i++) {
+            classIds.put(classNames[i], i);
+        }
+
+        // One slot per known class plus one for labels outside classNames
+        this.thresholds = new float[classNames.length + 1];
+        Arrays.fill(thresholds, builder.scoreThreshold);
+        float min = builder.scoreThreshold;
+        for (Map.Entry<String, Float> entry : builder.classThresholds.entrySet()) {
+            Integer id = classIds.get(entry.getKey());
+            if (id == null) {
+                throw new IllegalArgumentException("Unknown class: " + entry.getKey());
+            }
+            thresholds[id] = entry.getValue();
+            min = Math.min(min, entry.getValue());
+        }
+        this.defaultThreshold = builder.scoreThreshold;
+        this.minThreshold = min;
+        this.iouThreshold = builder.iouThreshold;
+        this.maxDetections = builder.maxDetections;
+        this.classAgnostic = builder.classAgnostic;
+    }
+
+    /**
+     * Class id of a label, or getUnknownClassId() if it is not one of the class names.
+     * Candidates with that id are told apart by their label text during NMS.
+     */
+    public int classIdOf(String label) {
+        Integer id = classIds.get(label);
+        return id != null ? id : classNames.length;
+    }
+
+    public int getUnknownClassId() {
+        return classNames.length;
+    }
+
+    /**
+     * Lowest threshold of any class: candidates below it can be dropped before they are stored
+     */
+    public float getMinThreshold() {
+        return minThreshold;
+    }
+
+    public float getThreshold(int classId) {
+        return classId >= 0 && classId < thresholds.length ? thresholds[classId] : defaultThreshold;
+    }
+
+    /**
+     * Filter, de-duplicate and limit the candidates. Does not allocate.
+     * @return Number of kept candidates, also available with their indices through
+     *         Candidates.getKeptCount() and getKept()
+     */
+    public int process(Candidates c) {
+        // 1. Confidence filter; sort keys pack the score above the index.
+        //    Scores are positive, so their IEEE bits sort like the values.
+        int n = 0;
+        for (int i = 0; i < c.size; i++) {
+            float score = c.scores[i];
+            if (score > getThreshold(c.classIds[i])) {
+                c.order[n++] = ((long) Float.floatToIntBits(score) << 32) | i;
+            }
+        }
+        Arrays.sort(c.order, 0, n);
+
+        // 2. Greedy NMS from the highest score down, stopping at top-K
+        int keptCount = 0;
+        for (int k = n - 1; k >= 0 && keptCount < maxDetections; k--) {
+            int i = (int) c.order[k];
+            int b = i * 4;
+            float x1 = c.boxes[b], y1 = c.boxes[b + 1], x2 = c.boxes[b + 2], y2 = c.boxes[b + 3];
+            float area = Math.max(0f, x2 - x1) * Math.max(0f, y2 - y1);
+            int classId = c.classIds[i];
+
+            boolean suppressed = false;
+            for (int m = 0; m < keptCount; m++) {
+                int j = c.kept[m];
+                if (!classAgnostic && !sameClass(c, i, j)) {
+                    continue;
+                }
+                int o = j * 4;
+                float w = Math.min(x2, c.boxes[o + 2]) - Math.max(x1, c.boxes[o]);
+                float h = Math.min(y2, c.boxes[o + 3]) - Math.max(y1, c.boxes[o + 1]);
+                if (w <= 0f || h <= 0f) {
+                    continue;
+                }
+                float intersection = w * h;
+                float union = area + c.areas[m] - intersection;
+                if (union > 0f && intersection > iouThreshold * union) {
+                    suppressed = true;
+                    break;
+                }
+            }
+            if (!suppressed) {
+                c.kept[keptCount] = i;
+                c.areas[keptCount] = area;
+                keptCount++;
+            }
+        }
+        c.keptCount = keptCount;
+        return keptCount;
+    }
+
+    /**
+     * Build DetectedObjects for the candidates kept by the last process() call
+     * @param transform Maps boxes from model-input to source image coordinates, or null
+     */
+    public List<HuggingFaceYOLOService.DetectedObject> toDetections(Candidates c, LetterboxTransform transform) {
+        List<HuggingFaceYOLOService.DetectedObject> detections = new ArrayList<>(c.keptCount);
+        for (int m = 0; m < c.keptCount; m++) {
+            int i = c.kept[m];
+            int b = i * 4;
+            float x1 = c.boxes[b], y1 = c.boxes[b + 1], x2 = c.boxes[b + 2], y2 = c.boxes[b + 3];
+            if (transform != null) {
+                x1 = transform.toSourceX(x1);
+                y1 = transform.toSourceY(y1);
+                x2 = transform.toSourceX(x2);
+                y2 = transform.toSourceY(y2);
+            }
+            detections.add(new HuggingFaceYOLOService.DetectedObject(labelOf(c, i), c.scores[i], x1, y1, x2, y2));
+        }
+        return detections;
+    }
+
+    /**
+     * Post-process detections that already exist as objects (e.g. merged results)
+     */
+    public List<HuggingFaceYOLOService.DetectedObject> process(List<HuggingFaceYOLOService.DetectedObject> detections) {
+        Candidates c = new Candidates(detections.size());
+        for (HuggingFaceYOLOService.DetectedObject d : detections) {
+            c.add(d.getXMin(), d.getYMin(), d.getXMax(), d.getYMax(), d.getConfidence(),
+                    classIdOf(d.getLabel()), d.getLabel());
+        }
+        process(c);
+        return toDetections(c, null);
+    }
+
+    /**
+     * Labels outside classNames share one class id but are still different classes
+     */
+    private boolean sameClass(Candidates c, int i, int j) {
+        if (c.classIds[i] != c.classIds[j]) {
+            return false;
+        }
+        if (c.classIds[i] != classNames.length) {
+            return true;
+        }
+        String label = c.labels[i];
+        return label == null ? c.labels[j] == null : label.equals(c.labels[j]);
+    }
+
+    private String labelOf(Candidates c, int i) {
+        String label = c.labels[i];
+        if (label != null) {
+            return label;
+        }
+        int classId = c.classIds[i];
+        return classId >= 0 && classId < classNames.length ? classNames[classId] : "Unknown";
+    }
+}
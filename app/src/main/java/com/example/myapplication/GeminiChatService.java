@@ -1,13 +1,18 @@
 package com.example.myapplication;
 
 import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -15,8 +20,10 @@ import okhttp3.RequestBody;
 import okhttp3.Response;
 
 import java.io.IOException;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service class for handling Google Gemini AI chatbot interactions
@@ -27,6 +34,8 @@ public class GeminiChatService {
     private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
     
     private static final String BASE_URL = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash:generateContent";
+    private static final long CALL_TIMEOUT_SECONDS = 60;
+    private static final String STREAM_URL = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash:streamGenerateContent";
     
     /**
      * Get API key from BuildConfig
@@ -76,10 +85,25 @@ public class GeminiChatService {
         return BASE_URL + "?key=" + apiKey;
     }
     
+    /**
+     * Get the streaming (server-sent events) Gemini API URL with API key
+     */
+    private static String getGeminiStreamUrl() {
+        String apiKey = getApiKey();
+        return STREAM_URL + "?alt=sse&key=" + apiKey;
+    }
+    
     private final OkHttpClient httpClient;
-    private final Gson gson;
-    private StringBuilder conversationContext;
-    private final Executor executor = Executors.newSingleThreadExecutor();
+    private final ResilientHttpCaller resilientCaller = ResilientHttpCaller.forEndpoint("Gemini");
+    private final GeminiSseReader sseReader;
+    private final ConversationHistory conversationHistory;
+    private final ResponseCache responseCache;
+    private final KeywordClassifier keywordClassifier;
+    private static KeywordClassifier sharedKeywordClassifier;
+    // One worker per service: a conversation's turns must be sent and recorded in order, so the
+    // next request is only built once the previous answer is in the history
+    private final RequestScheduler scheduler = new RequestScheduler("gemini", 1, 8,
+        RequestScheduler.BackPressurePolicy.DROP_OLDEST);
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
     
     // App context for better responses
@@ -106,11 +130,22 @@ public class GeminiChatService {
         void onError(String error);
     }
     
+    /**
+     * Callback for streamed responses. onPartial receives each new chunk of text
+     * as it arrives, onComplete receives the full response once the stream ends.
+     */
+    public interface StreamCallback {
+        void onPartial(String delta);
+        void onComplete(String response);
+        void onError(String error);
+    }
+    
     public GeminiChatService(Context context) {
-        this.httpClient = new OkHttpClient();
-        this.gson = new Gson();
-        this.conversationContext = new StringBuilder();
-        this.conversationContext.append(APP_CONTEXT).append("\n\n");
+        this.httpClient = HttpClientProvider.get();
+        this.sseReader = new GeminiSseReader();
+        this.conversationHistory = new ConversationHistory(APP_CONTEXT);
+        this.responseCache = ResponseCache.shared(context.getApplicationContext().getCacheDir());
+        this.keywordClassifier = getKeywordClassifier(context.getApplicationContext());
         
         // Validate API key on initialization
         String apiKey = getApiKey();
@@ -134,203 +169,389 @@ public class GeminiChatService {
         final String userMessage = message;
         
         // Check API key
-        String apiKey = getApiKey();
-        if (apiKey == null || apiKey.trim().isEmpty() || 
-            apiKey.equals("\"\"") || apiKey.equals("") ||
-            apiKey.equals("YOUR_API_KEY_HERE") || apiKey.equals("YOUR_KEY_HERE")) {
-            String errorMsg = "API key not configured.\n\n" +
-                "Please:\n" +
-                "1. Open local.properties file\n" +
-                "2. Add: GEMINI_API_KEY=YOUR_KEY\n" +
-                "3. Get key from: https://aistudio.google.com/app/apikey\n" +
-                "4. Sync Gradle and rebuild";
-            Log.e(TAG, errorMsg);
-            callback.onError(errorMsg);
+        if (!checkApiKey(callback::onError)) {
             return;
         }
         
-        final StringBuilder finalConversationContext = conversationContext;
+        final String tags = contextTags(userMessage);
+        final String processedMessage = userMessage + tags;
+        final String cacheKey = ResponseCache.buildKey(userMessage, tags);
+        String cachedResponse = responseCache.getFromMemory(cacheKey);
+        if (cachedResponse != null) {
+            recordCachedAnswer(processedMessage, cachedResponse);
+            mainHandler.post(() -> callback.onResponse(cachedResponse));
+            return;
+        }
         
-        executor.execute(() -> {
-            try {
-                String processedMessage = processMessage(userMessage);
-                String prompt = finalConversationContext.toString() + 
-                    "User: " + processedMessage + "\n\nAssistant:";
-                
-                // Build JSON request body
-                JsonObject requestBody = new JsonObject();
-                JsonArray contents = new JsonArray();
-                JsonObject content = new JsonObject();
-                JsonArray requestParts = new JsonArray();
-                JsonObject textPart = new JsonObject();
-                textPart.addProperty("text", prompt);
-                requestParts.add(textPart);
-                content.add("parts", requestParts);
-                contents.add(content);
-                requestBody.add("contents", contents);
-                
-                String jsonBody = gson.toJson(requestBody);
-                
-                Log.d(TAG, "Sending request to Gemini API...");
-                
-                // Create HTTP request
-                RequestBody body = RequestBody.create(jsonBody, JSON);
-                Request request = new Request.Builder()
-                    .url(getGeminiApiUrl())
-                    .post(body)
-                    .build();
-                
-                // Execute request
-                Response response = httpClient.newCall(request).execute();
-                
+        RequestScheduler.Task<String> task = signal -> {
+            String diskCachedResponse = responseCache.get(cacheKey);
+            if (diskCachedResponse != null) {
+                answerFromCache(processedMessage, diskCachedResponse);
+                return diskCachedResponse;
+            }
+            
+            ConversationHistory.Turn userTurn = conversationHistory.newUserTurn(processedMessage);
+            String jsonBody = conversationHistory.buildRequestJson(userTurn);
+            
+            Log.d(TAG, "Sending request to Gemini API (" + conversationHistory.describeMetrics() + ")");
+            
+            // Create HTTP request
+            RequestBody body = RequestBody.create(jsonBody, JSON);
+            Request request = new Request.Builder()
+                .url(getGeminiApiUrl())
+                .post(body)
+                .build();
+            
+            // Execute request with retries (each attempt bounded as a whole, the shared client only bounds each read)
+            Response response = resilientCaller.execute(httpClient, request, true,
+                TimeUnit.SECONDS.toMillis(CALL_TIMEOUT_SECONDS), signal);
+            
+            if (!response.isSuccessful()) {
+                String errorBody = response.body() != null ? response.body().string() : "Unknown error";
+                Log.e(TAG, "API request failed: " + response.code() + " - " + errorBody);
+                throw new ChatRequestException(describeHttpError(response.code(), errorBody));
+            }
+            
+            // Pull only candidates[0].content.parts[].text straight from the response stream
+            String responseText;
+            try (JsonReader reader = new JsonReader(response.body().charStream())) {
+                responseText = StreamingJsonParser.readGeminiText(reader);
+            } catch (MalformedJsonException | IllegalStateException e) {
+                Log.e(TAG, "Error parsing response: " + e.getMessage());
+                responseText = null;
+            }
+            
+            if (responseText == null || responseText.isEmpty()) {
+                throw new ChatRequestException("No response received from AI. Please try again.");
+            }
+            
+            // Update conversation context
+            conversationHistory.addExchange(userTurn, responseText);
+            responseCache.put(cacheKey, responseText);
+            return responseText;
+        };
+        
+        scheduler.submit(coalescingKey(cacheKey, false), this, task, new RequestScheduler.Listener<String>() {
+            @Override
+            public void onSuccess(String responseText) {
+                // Return response on main thread
+                mainHandler.post(() -> callback.onResponse(responseText));
+            }
+            
+            @Override
+            public void onFailure(Exception error) {
+                final String finalErrorMessage = describeFailure(error);
+                mainHandler.post(() -> callback.onError(finalErrorMessage));
+            }
+        });
+    }
+    
+    /**
+     * Send a message and stream the answer back chunk by chunk (streamGenerateContent over SSE).
+     * The first words reach the UI as soon as Gemini emits them instead of after the full answer.
+     * @param message User's message
+     * @param callback Callback for partial chunks, the completed response or an error
+     */
+    public void sendMessageStreaming(String message, StreamCallback callback) {
+        final String userMessage = message;
+        
+        // Check API key
+        if (!checkApiKey(callback::onError)) {
+            return;
+        }
+        
+        final String tags = contextTags(userMessage);
+        final String processedMessage = userMessage + tags;
+        final String cacheKey = ResponseCache.buildKey(userMessage, tags);
+        String cachedResponse = responseCache.getFromMemory(cacheKey);
+        if (cachedResponse != null) {
+            recordCachedAnswer(processedMessage, cachedResponse);
+            mainHandler.post(() -> callback.onComplete(cachedResponse));
+            return;
+        }
+        
+        RequestScheduler.Task<String> task = signal -> {
+            String diskCachedResponse = responseCache.get(cacheKey);
+            if (diskCachedResponse != null) {
+                answerFromCache(processedMessage, diskCachedResponse);
+                return diskCachedResponse;
+            }
+            
+            ConversationHistory.Turn userTurn = conversationHistory.newUserTurn(processedMessage);
+            String jsonBody = conversationHistory.buildRequestJson(userTurn);
+            
+            Log.d(TAG, "Sending streaming request to Gemini API (" + conversationHistory.describeMetrics() + ")");
+            
+            RequestBody body = RequestBody.create(jsonBody, JSON);
+            Request request = new Request.Builder()
+                .url(getGeminiStreamUrl())
+                .header("Accept", "text/event-stream")
+                .post(body)
+                .build();
+            
+            final long startTime = System.currentTimeMillis();
+            // Retries can only happen before the stream starts; a broken stream is reported as an error
+            try (Response response = resilientCaller.execute(httpClient, request, true, 0, signal)) {
                 if (!response.isSuccessful()) {
                     String errorBody = response.body() != null ? response.body().string() : "Unknown error";
-                    Log.e(TAG, "API request failed: " + response.code() + " - " + errorBody);
-                    
-                    String userErrorMessage = "Error: " + response.code();
-                    if (errorBody.contains("API key") || errorBody.contains("invalid") || 
-                        errorBody.contains("INVALID_ARGUMENT") || errorBody.contains("PERMISSION_DENIED")) {
-                        userErrorMessage = "Invalid API key.\n\n" +
-                            "Fixes:\n" +
-                            "1. Get key from: https://aistudio.google.com/app/apikey\n" +
-                            "2. Enable 'Generative Language API'\n" +
-                            "3. Add to local.properties: GEMINI_API_KEY=YOUR_KEY\n" +
-                            "4. Sync Gradle and rebuild\n" +
-                            "5. Check for spaces/newlines in key";
-                    } else if (errorBody.contains("quota") || errorBody.contains("QUOTA_EXCEEDED")) {
-                        userErrorMessage = "API quota exceeded. Please check your Gemini API quota.";
-                    }
-                    
-                    final String finalErrorMessage = userErrorMessage;
-                    mainHandler.post(() -> callback.onError(finalErrorMessage));
-                    return;
+                    Log.e(TAG, "Streaming request failed: " + response.code() + " - " + errorBody);
+                    throw new ChatRequestException(describeHttpError(response.code(), errorBody));
                 }
                 
-                // Parse response
-                String responseBody = response.body().string();
-                JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
-                
-                // Extract text from response
-                String responseText = null;
-                try {
-                    JsonArray candidates = jsonResponse.getAsJsonArray("candidates");
-                    if (candidates != null && candidates.size() > 0) {
-                        JsonObject candidate = candidates.get(0).getAsJsonObject();
-                        JsonObject contentObj = candidate.getAsJsonObject("content");
-                        if (contentObj != null) {
-                            JsonArray parts = contentObj.getAsJsonArray("parts");
-                            if (parts != null && parts.size() > 0) {
-                                JsonObject part = parts.get(0).getAsJsonObject();
-                                responseText = part.get("text").getAsString();
-                            }
-                        }
+                final boolean[] firstChunk = {true};
+                String responseText = sseReader.read(response.body().source(), delta -> {
+                    if (firstChunk[0]) {
+                        firstChunk[0] = false;
+                        Log.d(TAG, "Time to first token: " + (System.currentTimeMillis() - startTime) + " ms");
                     }
-                } catch (Exception e) {
-                    Log.e(TAG, "Error parsing response: " + e.getMessage());
-                    Log.e(TAG, "Response body: " + responseBody);
-                }
+                    mainHandler.post(() -> {
+                        if (!signal.isCancelled()) {
+                            callback.onPartial(delta);
+                        }
+                    });
+                });
                 
-                if (responseText != null && !responseText.isEmpty()) {
-                    // Update conversation context
-                    finalConversationContext.append("User: ").append(processedMessage).append("\n\n");
-                    finalConversationContext.append("Assistant: ").append(responseText).append("\n\n");
-                    
-                    final String finalResponseText = responseText;
-                    
-                    // Return response on main thread
-                    mainHandler.post(() -> callback.onResponse(finalResponseText));
-                } else {
-                    mainHandler.post(() -> callback.onError("No response received from AI. Please try again."));
-                }
+                Log.d(TAG, "Stream completed in " + (System.currentTimeMillis() - startTime) + " ms");
                 
-            } catch (IOException e) {
-                Log.e(TAG, "Network error sending message to Gemini", e);
-                String errorMsg = e.getMessage();
-                if (errorMsg != null && (errorMsg.contains("timeout") || errorMsg.contains("network"))) {
-                    errorMsg = "Network error. Please check your internet connection and try again.";
-                } else {
-                    errorMsg = "Error communicating with AI service: " + errorMsg;
+                if (responseText.isEmpty()) {
+                    throw new ChatRequestException("No response received from AI. Please try again.");
                 }
-                final String finalErrorMessage = errorMsg;
-                mainHandler.post(() -> callback.onError(finalErrorMessage));
-            } catch (Exception e) {
-                Log.e(TAG, "Error sending message to Gemini", e);
-                String actualError = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
                 
-                // Provide user-friendly error messages
-                String userErrorMessage;
-                if (actualError != null) {
-                    if (actualError.contains("API key") || actualError.contains("invalid") || 
-                        actualError.contains("INVALID_ARGUMENT") || actualError.contains("PERMISSION_DENIED")) {
-                        userErrorMessage = "Invalid API key.\n\n" +
-                            "Fixes:\n" +
-                            "1. Get key from: https://aistudio.google.com/app/apikey\n" +
-                            "2. Enable 'Generative Language API'\n" +
-                            "3. Add to local.properties: GEMINI_API_KEY=YOUR_KEY\n" +
-                            "4. Sync Gradle and rebuild\n" +
-                            "5. Check for spaces/newlines in key";
-                    } else {
-                        userErrorMessage = "Error: " + actualError;
-                    }
-                } else {
-                    userErrorMessage = "Error communicating with AI service.";
-                }
-                
-                final String finalErrorMessage = userErrorMessage;
+                // Update conversation context
+                conversationHistory.addExchange(userTurn, responseText);
+                responseCache.put(cacheKey, responseText);
+                return responseText;
+            }
+        };
+        
+        scheduler.submit(coalescingKey(cacheKey, true), this, task, new RequestScheduler.Listener<String>() {
+            @Override
+            public void onSuccess(String responseText) {
+                mainHandler.post(() -> callback.onComplete(responseText));
+            }
+            
+            @Override
+            public void onFailure(Exception error) {
+                final String finalErrorMessage = describeFailure(error);
                 mainHandler.post(() -> callback.onError(finalErrorMessage));
             }
         });
     }
     
     /**
-     * Process and enhance the message for better context understanding
+     * Cancel this service's queued and running requests (their callbacks will not be called)
      */
-    private String processMessage(String message) {
-        String lowerMessage = message.toLowerCase();
-        StringBuilder processed = new StringBuilder(message);
-        
-        // Product-related keywords
-        if (lowerMessage.contains("product") || lowerMessage.contains("item") || 
-            lowerMessage.contains("buy") || lowerMessage.contains("purchase") ||
-            lowerMessage.contains("price") || lowerMessage.contains("cost")) {
-            processed.append(" [Context: Product Catalog Query]");
+    public void cancelPendingRequests() {
+        scheduler.cancelAll(this);
+        Log.d(TAG, "Cancelled pending requests (" + scheduler.describeMetrics() + ")");
+    }
+    
+    /**
+     * Cancel pending requests automatically when the owner (Activity or Fragment view) is destroyed
+     */
+    public void bindToLifecycle(LifecycleOwner owner) {
+        owner.getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onDestroy(@NonNull LifecycleOwner lifecycleOwner) {
+                cancelPendingRequests();
+            }
+        });
+    }
+    
+    /**
+     * Identical prompts sent while one is still pending share its result. The scheduler belongs
+     * to this service, so requests of other services never coalesce with these.
+     */
+    private static String coalescingKey(String cacheKey, boolean streaming) {
+        return (streaming ? "stream|" : "once|") + cacheKey;
+    }
+    
+    /**
+     * Failure with a message that can be shown to the user as is
+     */
+    private static class ChatRequestException extends Exception {
+        ChatRequestException(String message) {
+            super(message);
         }
-        
-        // Navigation-related keywords
-        if (lowerMessage.contains("navigate") || lowerMessage.contains("go to") || 
-            lowerMessage.contains("screen") || lowerMessage.contains("menu") ||
-            lowerMessage.contains("how to") || lowerMessage.contains("where")) {
-            processed.append(" [Context: App Navigation Query]");
+    }
+    
+    private String describeFailure(Exception error) {
+        if (error instanceof ChatRequestException) {
+            return error.getMessage();
+        } else if (error instanceof ResilientHttpCaller.CircuitOpenException) {
+            Log.w(TAG, "Failing fast: " + resilientCaller.describe());
+            return "The AI service is having problems right now. " + error.getMessage();
+        } else if (error instanceof RejectedExecutionException) {
+            return error.getMessage();
+        } else if (error instanceof IOException) {
+            Log.e(TAG, "Network error sending message to Gemini", error);
+            return describeNetworkError((IOException) error);
         }
-        
-        // Chat-related keywords
-        if (lowerMessage.contains("chat") || lowerMessage.contains("message") || 
-            lowerMessage.contains("talk") || lowerMessage.contains("contact")) {
-            processed.append(" [Context: Chat Feature Query]");
+        Log.e(TAG, "Error sending message to Gemini", error);
+        return describeError(error);
+    }
+    
+    /**
+     * Reply from the memory cache at once but record the exchange on the scheduler's worker,
+     * behind the requests already queued, so the history keeps the order messages were sent in.
+     * No owner: cancelling the caller's requests must not leave the exchange out of the history.
+     */
+    private void recordCachedAnswer(String processedMessage, String cachedResponse) {
+        scheduler.submit(null, null, signal -> {
+            answerFromCache(processedMessage, cachedResponse);
+            return cachedResponse;
+        }, new RequestScheduler.Listener<String>() {
+            @Override
+            public void onSuccess(String responseText) {
+            }
+            
+            @Override
+            public void onFailure(Exception error) {
+                Log.w(TAG, "Cached answer not recorded in the conversation: " + error.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Record a cached answer in the conversation so follow-up questions keep their context
+     */
+    private void answerFromCache(String processedMessage, String cachedResponse) {
+        conversationHistory.addExchange(conversationHistory.newUserTurn(processedMessage), cachedResponse);
+        Log.d(TAG, "Answered from response cache (" + responseCache.describeStats() + ")");
+    }
+    
+    /**
+     * Report a missing API key through the given error sink
+     * @return true if the key is configured
+     */
+    private boolean checkApiKey(ErrorSink errorSink) {
+        String apiKey = getApiKey();
+        if (apiKey == null || apiKey.trim().isEmpty() || 
+            apiKey.equals("\"\"") || apiKey.equals("") ||
+            apiKey.equals("YOUR_API_KEY_HERE") || apiKey.equals("YOUR_KEY_HERE")) {
+            String errorMsg = "API key not configured.\n\n" +
+                "Please:\n" +
+                "1. Open local.properties file\n" +
+                "2. Add: GEMINI_API_KEY=YOUR_KEY\n" +
+                "3. Get key from: https://aistudio.google.com/app/apikey\n" +
+                "4. Sync Gradle and rebuild";
+            Log.e(TAG, errorMsg);
+            errorSink.onError(errorMsg);
+            return false;
         }
-        
-        // Authentication-related keywords
-        if (lowerMessage.contains("login") || lowerMessage.contains("signup") || 
-            lowerMessage.contains("register") || lowerMessage.contains("account") ||
-            lowerMessage.contains("sign in") || lowerMessage.contains("sign out")) {
-            processed.append(" [Context: Authentication Query]");
+        return true;
+    }
+    
+    private interface ErrorSink {
+        void onError(String error);
+    }
+    
+    /**
+     * Map an unsuccessful HTTP response to a user-friendly error message
+     */
+    private String describeHttpError(int code, String errorBody) {
+        if (errorBody.contains("API key") || errorBody.contains("invalid") || 
+            errorBody.contains("INVALID_ARGUMENT") || errorBody.contains("PERMISSION_DENIED")) {
+            return INVALID_KEY_MESSAGE;
+        } else if (errorBody.contains("quota") || errorBody.contains("QUOTA_EXCEEDED")) {
+            return "API quota exceeded. Please check your Gemini API quota.";
         }
-        
-        // Feature-related keywords
-        if (lowerMessage.contains("feature") || lowerMessage.contains("function") ||
-            lowerMessage.contains("what can") || lowerMessage.contains("help")) {
-            processed.append(" [Context: App Features Query]");
+        return "Error: " + code;
+    }
+    
+    private String describeNetworkError(IOException e) {
+        String errorMsg = e.getMessage();
+        if (errorMsg != null && (errorMsg.contains("timeout") || errorMsg.contains("network"))) {
+            return "Network error. Please check your internet connection and try again.";
+        }
+        return "Error communicating with AI service: " + errorMsg;
+    }
+    
+    private String describeError(Exception e) {
+        String actualError = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        if (actualError.contains("API key") || actualError.contains("invalid") || 
+            actualError.contains("INVALID_ARGUMENT") || actualError.contains("PERMISSION_DENIED")) {
+            return INVALID_KEY_MESSAGE;
+        }
+        return "Error: " + actualError;
+    }
+    
+    private static final String INVALID_KEY_MESSAGE = "Invalid API key.\n\n" +
+        "Fixes:\n" +
+        "1. Get key from: https://aistudio.google.com/app/apikey\n" +
+        "2. Enable 'Generative Language API'\n" +
+        "3. Add to local.properties: GEMINI_API_KEY=YOUR_KEY\n" +
+        "4. Sync Gradle and rebuild\n" +
+        "5. Check for spaces/newlines in key";
+    
+    /**
+     * Process and enhance the message for better context understanding.
+     * Returns the context tags appended to the message for the detected query categories.
+     */
+    private String contextTags(String message) {
+        long matched = keywordClassifier.match(message);
+        if (matched == 0) {
+            return "";
+        }
+        StringBuilder processed = new StringBuilder();
+        List<String> tags = keywordClassifier.getTags();
+        for (int i = 0; i < tags.size(); i++) {
+            if ((matched & (1L << i)) != 0) {
+                processed.append(" [Context: ").append(tags.get(i)).append("]");
+            }
         }
-        
         return processed.toString();
     }
     
+    /**
+     * Compile the keyword tables from resources once per process
+     */
+    private static synchronized KeywordClassifier getKeywordClassifier(Context context) {
+        if (sharedKeywordClassifier == null) {
+            Resources resources = context.getResources();
+            KeywordClassifier.Builder builder = new KeywordClassifier.Builder();
+            TypedArray groups = resources.obtainTypedArray(R.array.chatbot_keyword_groups);
+            try {
+                for (int i = 0; i < groups.length(); i++) {
+                    String[] group = resources.getStringArray(groups.getResourceId(i, 0));
+                    if (group.length > 1) {
+                        builder.addGroup(group[0], Arrays.copyOfRange(group, 1, group.length));
+                    }
+                }
+            } finally {
+                groups.recycle();
+            }
+            sharedKeywordClassifier = builder.build();
+        }
+        return sharedKeywordClassifier;
+    }
+    
     /**
      * Reset the chat session
      */
     public void resetChat() {
-        conversationContext.setLength(0);
-        conversationContext.append(APP_CONTEXT).append("\n\n");
+        conversationHistory.clear();
+    }
+    
+    /**
+     * Conversation window with per-request payload-size metrics
+     */
+    public ConversationHistory getConversationHistory() {
+        return conversationHistory;
+    }
+    
+    /**
+     * Shared answer cache with hit/miss counters
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+    
+    /**
+     * Open a pooled connection to the Gemini host ahead of the first message
+     */
+    public void prewarmConnection() {
+        HttpClientProvider.prewarm(BASE_URL);
     }
     
     /**
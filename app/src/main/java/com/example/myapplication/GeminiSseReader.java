@@ -0,0 +1,75 @@
+package com.example.myapplication;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import okio.BufferedSource;
+
+/**
+ * Reads a Gemini streamGenerateContent response sent as server-sent events (alt=sse)
+ * and hands every text chunk to a listener as soon as its event has arrived
+ */
+public class GeminiSseReader {
+
+    public interface Listener {
+        void onText(String delta);
+    }
+
+    /**
+     * Read events until the stream ends
+     * @return The full response text (all chunks concatenated)
+     */
+    public String read(BufferedSource source, Listener listener) throws IOException {
+        StringBuilder fullText = new StringBuilder();
+        StringBuilder eventData = new StringBuilder();
+
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (line.isEmpty()) {
+                // Blank line terminates an event
+                dispatch(eventData, fullText, listener);
+            } else if (line.startsWith("data:")) {
+                String payload = line.substring(5);
+                if (payload.startsWith(" ")) {
+                    payload = payload.substring(1);
+                }
+                if (eventData.length() > 0) {
+                    eventData.append('\n');
+                }
+                eventData.append(payload);
+            }
+            // Comments (":") and other SSE fields (event, id, retry) are not used by Gemini
+        }
+
+        // Stream may end without a trailing blank line
+        dispatch(eventData, fullText, listener);
+        return fullText.toString();
+    }
+
+    private void dispatch(StringBuilder eventData, StringBuilder fullText, Listener listener) {
+        if (eventData.length() == 0) {
+            return;
+        }
+        String json = eventData.toString();
+        eventData.setLength(0);
+
+        String text = extractText(json);
+        if (text != null && !text.isEmpty()) {
+            fullText.append(text);
+            listener.onText(text);
+        }
+    }
+
+    /**
+     * Extract candidates[0].content.parts[*].text from one streamed chunk
+     */
+    private String extractText(String json) {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            return StreamingJsonParser.readGeminiText(reader);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.myapplication;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Process-wide HTTP layer shared by all network services (Gemini, Hugging Face).
+ * One connection pool, dispatcher and TLS session cache, so reopening a screen reuses
+ * warm HTTP/2 connections instead of paying a fresh TCP + TLS handshake.
+ */
+public final class HttpClientProvider {
+    private static final String TAG = "HttpClientProvider";
+
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final int MAX_REQUESTS = 16;
+    // Enforced for enqueued calls by the dispatcher and for synchronous calls by ResilientHttpCaller
+    static final int MAX_REQUESTS_PER_HOST = 4;
+
+    // Re-warm a host only if its connection may have been evicted from the pool
+    private static final long PREWARM_INTERVAL_MS = TimeUnit.MINUTES.toMillis(KEEP_ALIVE_MINUTES) - 30_000;
+
+    private static volatile OkHttpClient sharedClient;
+    private static final Map<String, Long> lastPrewarm = new ConcurrentHashMap<>();
+
+    private HttpClientProvider() {
+    }
+
+    /**
+     * Get the shared client (default timeouts: connect 15s, read/write 30s)
+     */
+    public static OkHttpClient get() {
+        OkHttpClient client = sharedClient;
+        if (client == null) {
+            synchronized (HttpClientProvider.class) {
+                client = sharedClient;
+                if (client == null) {
+                    client = build();
+                    sharedClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Get a client with different timeouts that still shares the pool, dispatcher and TLS state
+     */
+    public static OkHttpClient withTimeouts(long connectTimeout, long readTimeout, TimeUnit unit) {
+        return get().newBuilder()
+                .connectTimeout(connectTimeout, unit)
+                .readTimeout(readTimeout, unit)
+                .writeTimeout(readTimeout, unit)
+                .build();
+    }
+
+    /**
+     * Open (or refresh) a pooled connection to the host of the given URL in the background,
+     * so the first real request skips DNS, TCP and TLS setup
+     */
+    public static void prewarm(String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null) {
+            return;
+        }
+        String origin = httpUrl.scheme() + "://" + httpUrl.host() + ":" + httpUrl.port();
+        long now = System.currentTimeMillis();
+        Long last = lastPrewarm.get(origin);
+        if (last != null && now - last < PREWARM_INTERVAL_MS) {
+            return;
+        }
+        lastPrewarm.put(origin, now);
+
+        Request request = new Request.Builder()
+                .url(origin + "/")
+                .head()
+                .build();
+        Call call = get().newCall(request);
+        call.timeout().timeout(10, TimeUnit.SECONDS);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                lastPrewarm.remove(origin);
+                Log.d(TAG, "Pre-warm failed for " + origin + ": " + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                // Status is irrelevant, only the pooled connection matters
+                Log.d(TAG, "Pre-warmed " + origin + " (" + response.protocol() + ")");
+                response.close();
+            }
+        });
+    }
+
+    private static OkHttpClient build() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(15, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(true)
+                .build();
+    }
+}
@@ -2,43 +2,34 @@ package com.example.myapplication;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.util.Base64;
+import android.net.Uri;
 import android.util.Log;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executor;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
-
 /**
- * Service for YOLO object detection using Hugging Face Inference API
- * Uses API-based inference (no local model training)
+ * Service for YOLO object detection
+ * Runs on the device when the yolov8n model is installed and falls back to the
+ * Hugging Face Inference API otherwise (see DetectionBackendSelector)
  */
 public class HuggingFaceYOLOService {
     private static final String TAG = "HuggingFaceYOLO";
+    // Tiles detected at once in tiled mode
+    private static final int TILE_THREADS = 4;
     
-    // Hugging Face Inference API endpoint for YOLO models
-    // Using ultralytics/yolov8 which is a popular YOLO model on Hugging Face
-    private static final String API_URL = "https://api-inference.huggingface.co/models/ultralytics/yolov8n";
-    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
-    
-    private final OkHttpClient client;
-    private final Executor executor;
-    private final Gson gson;
-    private String apiToken;
+    private final RemoteDetectionBackend remoteBackend;
+    private final OnDeviceDetectionBackend onDeviceBackend;
+    private final DetectionBackendSelector selector;
+    private final DetectionCache cache;
+    private final DetectionPostProcessor postProcessor;
+    private final ExecutorService executor;
+    private final ExecutorService tileExecutor;
+    private volatile TiledDetector tiledDetector;
     
     /**
      * Represents a detected object with bounding box and confidence
@@ -68,116 +59,88 @@ public class HuggingFaceYOLOService {
         public float getYMax() { return yMax; }
     }
     
+    /**
+     * Detections of one image with the backend that produced them
+     */
+    public static class DetectionResult {
+        public final List<DetectedObject> detections;
+        public final String backendName;
+        // Answered from the detection cache, nothing was run
+        public final boolean fromCache;
+        
+        public DetectionResult(List<DetectedObject> detections, String backendName) {
+            this(detections, backendName, false);
+        }
+        
+        public DetectionResult(List<DetectedObject> detections, String backendName, boolean fromCache) {
+            this.detections = detections;
+            this.backendName = backendName;
+            this.fromCache = fromCache;
+        }
+    }
+    
     public interface DetectionCallback {
-        void onSuccess(List<DetectedObject> detections);
+        void onSuccess(DetectionResult result);
         void onError(String error);
     }
     
     public HuggingFaceYOLOService(Context context) {
-        this.client = new OkHttpClient.Builder()
-                .connectTimeout(30, java.util.concurrent.TimeUnit.SECONDS)
-                .readTimeout(60, java.util.concurrent.TimeUnit.SECONDS)
-                .build();
+        // Same thresholds and NMS for both backends
+        this.postProcessor = new DetectionPostProcessor.Builder(
+                context.getResources().getStringArray(R.array.coco_labels)).build();
+        this.remoteBackend = new RemoteDetectionBackend(postProcessor);
+        this.onDeviceBackend = new OnDeviceDetectionBackend(context, postProcessor);
+        this.selector = new DetectionBackendSelector(context, onDeviceBackend, remoteBackend);
         this.executor = Executors.newSingleThreadExecutor();
-        this.gson = new Gson();
-        this.apiToken = getApiToken();
-    }
-    
-    private String getApiToken() {
-        try {
-            Class<?> buildConfigClass = Class.forName("com.example.myapplication.BuildConfig");
-            java.lang.reflect.Field field = buildConfigClass.getField("HUGGINGFACE_API_TOKEN");
-            String token = (String) field.get(null);
-            
-            // Remove quotes if present
-            if (token != null && token.startsWith("\"") && token.endsWith("\"")) {
-                token = token.substring(1, token.length() - 1);
-            }
-            
-            // Clean and trim
-            token = token != null ? token.trim() : "";
-            
-            // Log for debugging (first 10 chars only for security)
-            if (!token.isEmpty()) {
-                String preview = token.length() > 10 ? token.substring(0, 10) + "..." : token.substring(0, Math.min(token.length(), 10));
-                Log.d(TAG, "Hugging Face API token loaded: " + preview + " (length: " + token.length() + ")");
-            } else {
-                Log.w(TAG, "Hugging Face API token is empty or not configured");
-            }
-            
-            return token;
-        } catch (ClassNotFoundException e) {
-            Log.e(TAG, "BuildConfig class not found. Please sync Gradle: File → Sync Project with Gradle Files");
-            return "";
-        } catch (Exception e) {
-            Log.w(TAG, "Could not read Hugging Face API token from BuildConfig: " + e.getMessage());
-            Log.w(TAG, "Please ensure: 1) local.properties has HUGGINGFACE_API_TOKEN, 2) Gradle is synced, 3) Project is rebuilt");
-            return "";
-        }
+        this.cache = DetectionCache.shared(context.getApplicationContext().getCacheDir());
+        this.tileExecutor = Executors.newFixedThreadPool(TILE_THREADS);
+        setTiling(TiledDetector.DEFAULT_TILE_SIZE, TiledDetector.DEFAULT_OVERLAP);
     }
     
     /**
-     * Convert bitmap to base64 string for API request
+     * Detect objects in an image using YOLO, on the device or via the Hugging Face Inference API
      */
-    private String bitmapToBase64(Bitmap bitmap) {
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, 90, byteArrayOutputStream);
-        byte[] byteArray = byteArrayOutputStream.toByteArray();
-        return Base64.encodeToString(byteArray, Base64.NO_WRAP);
+    public void detectObjects(Bitmap image, DetectionCallback callback) {
+        runAsync(() -> detectObjectsSync(image), callback);
     }
     
     /**
-     * Detect objects in an image using YOLO via Hugging Face Inference API
+     * Detect objects in a large image tile by tile (see detectObjectsTiledSync)
      */
-    public void detectObjects(Bitmap image, DetectionCallback callback) {
-        // Refresh token in case BuildConfig was updated
-        apiToken = getApiToken();
-        
-        if (apiToken == null || apiToken.isEmpty() || apiToken.equals("\"\"")) {
-            callback.onError("Hugging Face API token not configured. Please:\n1. Add HUGGINGFACE_API_TOKEN to local.properties\n2. Sync Gradle\n3. Rebuild project");
-            return;
-        }
-        
-        // Validate token format (should start with hf_)
-        if (!apiToken.startsWith("hf_")) {
-            Log.w(TAG, "Warning: API token doesn't start with 'hf_'. Make sure it's a valid Hugging Face token.");
-        }
-        
+    public void detectObjectsTiled(Bitmap image, DetectionCallback callback) {
+        runAsync(() -> detectObjectsTiledSync(image), callback);
+    }
+    
+    /**
+     * Detect objects in the original pixels of an image tile by tile; boxes are in whole bitmap
+     * coordinates. Tiles are decoded from uri at full resolution, the whole-image pass uses the
+     * smaller whole bitmap. Falls back to tiling whole when the format has no region decoding.
+     */
+    public void detectObjectsTiled(ImageLoader loader, Uri uri, Bitmap whole, DetectionCallback callback) {
+        runAsync(() -> {
+            ImageLoader.Regions regions;
+            try {
+                regions = loader.openRegions(uri);
+            } catch (IOException e) {
+                Log.w(TAG, "No region decoding, tiling the loaded bitmap: " + e.getMessage());
+                return detectObjectsTiledSync(whole);
+            }
+            try {
+                DetectionResult result = detectObjectsTiledSync(regions, whole);
+                return new DetectionResult(scale(result.detections, whole.getWidth() / (float) regions.width,
+                        whole.getHeight() / (float) regions.height), result.backendName);
+            } finally {
+                regions.close();
+            }
+        }, callback);
+    }
+    
+    private void runAsync(Callable<DetectionResult> detection, DetectionCallback callback) {
         executor.execute(() -> {
             try {
-                String base64Image = bitmapToBase64(image);
-                
-                // Create JSON request body
-                JsonObject requestBody = new JsonObject();
-                requestBody.addProperty("inputs", base64Image);
-                
-                // Create HTTP request
-                RequestBody body = RequestBody.create(requestBody.toString(), JSON);
-                Request request = new Request.Builder()
-                        .url(API_URL)
-                        .header("Authorization", "Bearer " + apiToken)
-                        .header("Content-Type", "application/json")
-                        .post(body)
-                        .build();
-                
-                Log.d(TAG, "Sending request to Hugging Face API...");
-                
-                // Execute request
-                try (Response response = client.newCall(request).execute()) {
-                    if (!response.isSuccessful()) {
-                        String errorBody = response.body() != null ? response.body().string() : "Unknown error";
-                        Log.e(TAG, "API request failed: " + response.code() + " - " + errorBody);
-                        callback.onError("API request failed: " + response.code() + ". " + errorBody);
-                        return;
-                    }
-                    
-                    String responseBody = response.body().string();
-                    Log.d(TAG, "API response received");
-                    
-                    // Parse response
-                    List<DetectedObject> detections = parseResponse(responseBody);
-                    callback.onSuccess(detections);
-                }
+                callback.onSuccess(detection.call());
+            } catch (DetectionBackend.DetectionException e) {
+                callback.onError(e.getMessage());
             } catch (IOException e) {
                 Log.e(TAG, "Error during API call", e);
                 callback.onError("Network error: " + e.getMessage());
@@ -189,55 +152,193 @@ public class HuggingFaceYOLOService {
     }
     
     /**
-     * Parse Hugging Face API response to extract detected objects
+     * Detect objects on the calling thread, answering repeated images from the cache.
+     * Must not be called on the main thread.
+     */
+    public DetectionResult detectObjectsSync(Bitmap image) throws IOException {
+        return detectObjectsSync(image, true);
+    }
+    
+    /**
+     * Detect objects on the calling thread, trying the selected backends in order.
+     * Must not be called on the main thread.
+     * @param useCache Whether to look up and store results in the perceptual-hash cache
+     *                 (pointless for a live camera feed, where every frame differs slightly)
      */
-    private List<DetectedObject> parseResponse(String responseBody) {
-        List<DetectedObject> detections = new ArrayList<>();
+    public DetectionResult detectObjectsSync(Bitmap image, boolean useCache) throws IOException {
+        DetectionBackendSelector.Mode mode = selector.getMode();
+        List<DetectionBackend> backends = selector.select();
+        if (backends.isEmpty()) {
+            throw new DetectionBackend.DetectionException("No detection backend available. Please:\n"
+                    + "1. Add HUGGINGFACE_API_TOKEN to local.properties and rebuild, or\n"
+                    + "2. Add " + OnDeviceDetectionBackend.MODEL_ASSET + " to the app assets");
+        }
         
-        try {
-            // Hugging Face returns an array of detection results
-            JsonArray jsonArray = gson.fromJson(responseBody, JsonArray.class);
-            
-            if (jsonArray != null && jsonArray.size() > 0) {
-                JsonArray detectionsArray = jsonArray.get(0).getAsJsonObject().getAsJsonArray("predictions");
-                
-                if (detectionsArray != null) {
-                    for (JsonElement element : detectionsArray) {
-                        JsonObject detection = element.getAsJsonObject();
-                        
-                        String label = detection.has("label") ? detection.get("label").getAsString() : "Unknown";
-                        float score = detection.has("score") ? detection.get("score").getAsFloat() : 0f;
-                        
-                        // Get bounding box coordinates
-                        JsonObject box = detection.getAsJsonObject("box");
-                        if (box != null) {
-                            float xMin = box.has("xmin") ? box.get("xmin").getAsFloat() : 0f;
-                            float yMin = box.has("ymin") ? box.get("ymin").getAsFloat() : 0f;
-                            float xMax = box.has("xmax") ? box.get("xmax").getAsFloat() : 0f;
-                            float yMax = box.has("ymax") ? box.get("ymax").getAsFloat() : 0f;
-                            
-                            // Filter out low confidence detections
-                            if (score > 0.3f) {
-                                detections.add(new DetectedObject(label, score, xMin, yMin, xMax, yMax));
-                            }
-                        }
-                    }
-                }
+        long hash = 0;
+        if (useCache) {
+            // Only results of the backend that would run now
+            DetectionBackend preferred = backends.get(0);
+            hash = DetectionCache.hash(image);
+            List<DetectedObject> cached = cache.get(cacheScope(mode, preferred), hash,
+                    image.getWidth(), image.getHeight());
+            if (cached != null) {
+                Log.d(TAG, "Detection answered from cache: " + cache.describeStats());
+                return new DetectionResult(cached, preferred.getName(), true);
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error parsing API response: " + e.getMessage());
-            // If parsing fails, try alternative format
-            Log.d(TAG, "Response body: " + responseBody);
         }
         
-        return detections;
+        IOException failure = null;
+        for (DetectionBackend backend : backends) {
+            try {
+                List<DetectedObject> detections = backend.detect(image);
+                if (useCache) {
+                    cache.put(cacheScope(mode, backend), hash, image.getWidth(), image.getHeight(), detections);
+                }
+                return new DetectionResult(detections, backend.getName());
+            } catch (IOException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                // Native inference errors surface as runtime exceptions
+                failure = new DetectionBackend.DetectionException("Error: " + e.getMessage(), e);
+            }
+            Log.w(TAG, backend.getName() + " detection failed: " + failure.getMessage());
+        }
+        throw failure;
+    }
+    
+    private static String cacheScope(DetectionBackendSelector.Mode mode, DetectionBackend backend) {
+        return mode + "/" + backend.getName();
+    }
+    
+    /**
+     * Detect objects in overlapping tiles of the image, for high-resolution photos where
+     * small objects would vanish in the resize to the model input. Slower than
+     * detectObjectsSync: one detection per tile plus one for the whole image.
+     * Runs on the device only (see isOnDeviceAvailable): a 12 MP photo is some twenty tiles,
+     * too many uploads for the remote API.
+     * Boxes are in image coordinates. Must not be called on the main thread.
+     */
+    public DetectionResult detectObjectsTiledSync(Bitmap image) throws IOException {
+        return detectTiled(image.getWidth(), image.getHeight(), image,
+                tile -> Bitmap.createBitmap(image, tile.x, tile.y, tile.width, tile.height));
+    }
+    
+    /**
+     * Tiled detection on full-resolution regions of an image (see detectObjectsTiledSync)
+     * @param whole The whole image at any size, for the whole-image pass
+     */
+    public DetectionResult detectObjectsTiledSync(ImageLoader.Regions regions, Bitmap whole) throws IOException {
+        return detectTiled(regions.width, regions.height, whole,
+                tile -> regions.decode(tile.x, tile.y, tile.width, tile.height));
+    }
+    
+    private interface TileSource {
+        /**
+         * New bitmap of the tile's pixels, recycled after detection
+         */
+        Bitmap crop(TiledDetector.Tile tile) throws IOException;
+    }
+    
+    private DetectionResult detectTiled(int width, int height, Bitmap whole, TileSource source) throws IOException {
+        if (!onDeviceBackend.isAvailable()) {
+            throw new DetectionBackend.DetectionException("Tiled detection needs the on-device model ("
+                    + OnDeviceDetectionBackend.MODEL_ASSET + " in the app assets)");
+        }
+        long start = System.currentTimeMillis();
+        List<DetectedObject> detections = tiledDetector.detect(width, height, tile -> {
+            boolean wholeTile = tile.width == width && tile.height == height;
+            Bitmap crop = wholeTile ? whole : source.crop(tile);
+            try {
+                List<DetectedObject> tileDetections;
+                try {
+                    tileDetections = onDeviceBackend.detect(crop);
+                } catch (RuntimeException e) {
+                    // Native inference errors surface as runtime exceptions
+                    throw new DetectionBackend.DetectionException("Error: " + e.getMessage(), e);
+                }
+                return scale(tileDetections, tile.width / (float) crop.getWidth(),
+                        tile.height / (float) crop.getHeight());
+            } finally {
+                if (crop != whole) {
+                    crop.recycle();
+                }
+            }
+        });
+        Log.d(TAG, "Tiled detection of " + width + "x" + height + " found "
+                + detections.size() + " objects in " + (System.currentTimeMillis() - start) + " ms");
+        return new DetectionResult(detections, "tiled " + onDeviceBackend.getName());
+    }
+    
+    private static List<DetectedObject> scale(List<DetectedObject> detections, float scaleX, float scaleY) {
+        if (scaleX == 1f && scaleY == 1f) {
+            return detections;
+        }
+        List<DetectedObject> scaled = new ArrayList<>(detections.size());
+        for (DetectedObject d : detections) {
+            scaled.add(new DetectedObject(d.getLabel(), d.getConfidence(), d.getXMin() * scaleX,
+                    d.getYMin() * scaleY, d.getXMax() * scaleX, d.getYMax() * scaleY));
+        }
+        return scaled;
+    }
+    
+    /**
+     * Tile size and overlap for tiled detection, in image pixels
+     */
+    public void setTiling(int tileSize, int overlap) {
+        tiledDetector = new TiledDetector(postProcessor, tileSize, overlap, true, tileExecutor);
+    }
+    
+    /**
+     * Abort the Hugging Face calls in flight, e.g. when the batch they belong to is cancelled.
+     * On-device inference cannot be interrupted and finishes.
+     */
+    public void cancelRemoteCalls() {
+        remoteBackend.cancelCalls();
+    }
+    
+    public void setBackendMode(DetectionBackendSelector.Mode mode) {
+        selector.setMode(mode);
+    }
+    
+    /**
+     * Open a pooled connection to the Hugging Face host ahead of the first detection
+     */
+    public void prewarmConnection() {
+        if (!onDeviceBackend.isAvailable() && remoteBackend.isAvailable()) {
+            remoteBackend.prewarmConnection();
+        }
+    }
+    
+    /**
+     * Whether any backend can run (on-device model installed or API token configured)
+     */
+    public boolean isAvailable() {
+        return !selector.select().isEmpty();
+    }
+    
+    /**
+     * Whether the on-device model is installed, the only backend fast and free enough for a camera
+     * feed or tiled detection
+     */
+    public boolean isOnDeviceAvailable() {
+        return onDeviceBackend.isAvailable();
     }
     
     /**
      * Check if API token is configured
      */
     public boolean isApiTokenConfigured() {
-        return apiToken != null && !apiToken.isEmpty() && !apiToken.equals("\"\"");
+        return remoteBackend.isAvailable();
+    }
+    
+    /**
+     * Release the detection thread, the tile workers and the on-device interpreter, and abort
+     * Hugging Face calls in flight
+     */
+    public void close() {
+        executor.shutdown();
+        tileExecutor.shutdownNow();
+        remoteBackend.close();
+        onDeviceBackend.close();
     }
 }
-
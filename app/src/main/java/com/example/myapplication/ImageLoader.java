@@ -0,0 +1,428 @@
+package com.example.myapplication;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads picked images off the main thread.
+ * Reads the bounds first and decodes with an inSampleSize close to the display size
+ * (never the full-resolution ARGB_8888 image), applies the EXIF orientation and delivers
+ * a display-sized and a model-sized bitmap on the main thread. Decode and render targets
+ * come from a BitmapPool, so repeated selections reuse the same memory.
+ * Only the latest load is delivered; results of superseded loads go back to the pool.
+ * Tiled detection reads the original pixels region by region instead (see openRegions).
+ */
+public class ImageLoader {
+
+    private static final String TAG = "ImageLoader";
+    // Upper bound for the display bitmap, whatever the screen size
+    private static final int MAX_DISPLAY_SIZE = 2048;
+
+    /**
+     * Decoded image: display bitmap for the UI, model bitmap for detection
+     */
+    public static class Loaded {
+        public final Bitmap display;
+        public final Bitmap model;
+        // Size of the original image after orientation
+        public final int sourceWidth;
+        public final int sourceHeight;
+        public final int inSampleSize;
+        public final long decodeMs;
+
+        Loaded(Bitmap display, Bitmap model, int sourceWidth, int sourceHeight, int inSampleSize, long decodeMs) {
+            this.display = display;
+            this.model = model;
+            this.sourceWidth = sourceWidth;
+            this.sourceHeight = sourceHeight;
+            this.inSampleSize = inSampleSize;
+            this.decodeMs = decodeMs;
+        }
+    }
+
+    /**
+     * Full-resolution regions of an image, decoded one at a time so the whole image is never in memory.
+     * Coordinates are in the oriented image; the region decoder handles one decode at a time.
+     */
+    public static class Regions implements Closeable {
+        public final int width;
+        public final int height;
+        private final BitmapRegionDecoder decoder;
+        private final int orientation;
+        // Oriented image coordinates to stored pixel coordinates
+        private final Matrix toStored = new Matrix();
+
+        Regions(BitmapRegionDecoder decoder, int orientation) {
+            this.decoder = decoder;
+            this.orientation = orientation;
+            int storedWidth = decoder.getWidth();
+            int storedHeight = decoder.getHeight();
+            boolean swap = exifRotationDegrees(orientation) % 180 != 0;
+            this.width = swap ? storedHeight : storedWidth;
+            this.height = swap ? storedWidth : storedHeight;
+
+            Matrix toOriented = new Matrix();
+            applyOrientation(toOriented, orientation);
+            RectF bounds = new RectF(0, 0, storedWidth, storedHeight);
+            toOriented.mapRect(bounds);
+            toOriented.postTranslate(-bounds.left, -bounds.top);
+            toOriented.invert(toStored);
+        }
+
+        /**
+         * Pixels of a region at full resolution, oriented. The caller recycles the bitmap.
+         */
+        public Bitmap decode(int x, int y, int regionWidth, int regionHeight) throws IOException {
+            RectF area = new RectF(x, y, x + regionWidth, y + regionHeight);
+            toStored.mapRect(area);
+            Rect stored = new Rect(Math.round(area.left), Math.round(area.top),
+                    Math.round(area.right), Math.round(area.bottom));
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+            Bitmap region = decoder.decodeRegion(stored, options);
+            if (region == null) {
+                throw new IOException("Could not decode region " + stored);
+            }
+            if (orientation <= ExifInterface.ORIENTATION_NORMAL) {
+                return region;
+            }
+            Matrix matrix = new Matrix();
+            applyOrientation(matrix, orientation);
+            Bitmap oriented = Bitmap.createBitmap(region, 0, 0, region.getWidth(), region.getHeight(), matrix, false);
+            if (oriented != region) {
+                region.recycle();
+            }
+            return oriented;
+        }
+
+        @Override
+        public void close() {
+            decoder.recycle();
+        }
+    }
+
+    public interface Callback {
+        void onLoaded(Loaded image);
+        void onError(String error);
+    }
+
+    private final ContentResolver contentResolver;
+    private final int displaySize;
+    private final int modelSize;
+    private final BitmapPool pool;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger generation = new AtomicInteger();
+    // Only read while drawing, shared by all decoding threads
+    private final Paint scalePaint = new Paint(Paint.FILTER_BITMAP_FLAG | Paint.ANTI_ALIAS_FLAG);
+
+    public ImageLoader(Context context) {
+        this.contentResolver = context.getContentResolver();
+        int screenSize = Math.max(context.getResources().getDisplayMetrics().widthPixels,
+                context.getResources().getDisplayMetrics().heightPixels);
+        this.displaySize = Math.min(MAX_DISPLAY_SIZE, screenSize);
+        this.modelSize = ImagePreprocessor.DEFAULT_INPUT_SIZE;
+        // Room for a couple of display bitmaps plus decode buffers
+        this.pool = new BitmapPool(Runtime.getRuntime().maxMemory() / 8);
+    }
+
+    /**
+     * Decode uri in the background; the callback runs on the main thread unless a newer load superseded this one
+     */
+    public void load(Uri uri, Callback callback) {
+        int id = generation.incrementAndGet();
+        executor.execute(() -> {
+            Loaded loaded;
+            try {
+                loaded = decode(uri, displaySize);
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Could not load " + uri, e);
+                String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                mainHandler.post(() -> {
+                    if (id == generation.get()) {
+                        callback.onError(message);
+                    }
+                });
+                return;
+            } catch (OutOfMemoryError e) {
+                Log.e(TAG, "Out of memory loading " + uri, e);
+                pool.clear();
+                mainHandler.post(() -> {
+                    if (id == generation.get()) {
+                        callback.onError("Image is too large");
+                    }
+                });
+                return;
+            }
+            mainHandler.post(() -> {
+                if (id == generation.get()) {
+                    callback.onLoaded(loaded);
+                } else {
+                    release(loaded);
+                }
+            });
+        });
+    }
+
+    /**
+     * Decode uri on the calling thread straight to the model input size, for batch work
+     * where nothing is displayed. The display and model bitmaps of the result are the same.
+     * Safe to call from several threads; release the result when done.
+     */
+    public Loaded loadForModel(Uri uri) throws IOException {
+        return decode(uri, modelSize);
+    }
+
+    /**
+     * Open uri for full-resolution region decoding on the calling thread. Close the result when done.
+     * Fails for formats the region decoder does not support (JPEG, PNG and WebP are).
+     */
+    public Regions openRegions(Uri uri) throws IOException {
+        int orientation = readOrientation(uri);
+        BitmapRegionDecoder decoder;
+        try (InputStream in = open(uri)) {
+            decoder = BitmapRegionDecoder.newInstance(in, false);
+        }
+        if (decoder == null) {
+            throw new IOException("Region decoding not supported for " + uri);
+        }
+        return new Regions(decoder, orientation);
+    }
+
+    /**
+     * Return the bitmaps of an image that is no longer shown or detected
+     */
+    public void release(Loaded image) {
+        if (image == null) {
+            return;
+        }
+        pool.put(image.display);
+        if (image.model != image.display) {
+            pool.put(image.model);
+        }
+    }
+
+    public void close() {
+        generation.incrementAndGet();
+        executor.shutdownNow();
+        pool.clear();
+    }
+
+    private Loaded decode(Uri uri, int maxSide) throws IOException {
+        long start = SystemClock.elapsedRealtime();
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = open(uri)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Unsupported image format");
+        }
+        int width = options.outWidth;
+        int height = options.outHeight;
+        int orientation = readOrientation(uri);
+
+        int sampleSize = calculateInSampleSize(width, height, maxSide);
+        Bitmap decoded = decodeSampled(uri, sampleSize, width, height);
+
+        int rotation = exifRotationDegrees(orientation);
+        boolean swap = rotation == 90 || rotation == 270;
+        int orientedWidth = swap ? height : width;
+        int orientedHeight = swap ? width : height;
+
+        Bitmap display = renderDisplay(decoded, orientation, orientedWidth, orientedHeight, maxSide);
+        if (display != decoded) {
+            pool.put(decoded);
+        }
+        Bitmap model = renderModel(display);
+
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        Log.d(TAG, "Loaded " + width + "x" + height + " sample=" + sampleSize + " orientation=" + orientation
+                + " display=" + display.getWidth() + "x" + display.getHeight()
+                + " model=" + model.getWidth() + "x" + model.getHeight()
+                + " in " + elapsed + " ms, pool " + pool.describeStats());
+        return new Loaded(display, model, orientedWidth, orientedHeight, sampleSize, elapsed);
+    }
+
+    private Bitmap decodeSampled(Uri uri, int sampleSize, int width, int height) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        options.inMutable = true;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        int sampledWidth = (width + sampleSize - 1) / sampleSize;
+        int sampledHeight = (height + sampleSize - 1) / sampleSize;
+        options.inBitmap = pool.getForDecode(sampledWidth, sampledHeight, Bitmap.Config.ARGB_8888);
+
+        Bitmap decoded;
+        try (InputStream in = open(uri)) {
+            decoded = BitmapFactory.decodeStream(in, null, options);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap could not be reused for this image; decode into a fresh one
+            pool.put(options.inBitmap);
+            options.inBitmap = null;
+            try (InputStream in = open(uri)) {
+                decoded = BitmapFactory.decodeStream(in, null, options);
+            }
+        }
+        if (decoded == null) {
+            throw new IOException("Could not decode image");
+        }
+        return decoded;
+    }
+
+    /**
+     * Scale to maxSide and apply the EXIF orientation in a single draw
+     */
+    private Bitmap renderDisplay(Bitmap decoded, int orientation, int orientedWidth, int orientedHeight, int maxSide) {
+        float scale = fitScale(orientedWidth, orientedHeight, maxSide);
+        int targetWidth = Math.max(1, Math.round(orientedWidth * scale));
+        int targetHeight = Math.max(1, Math.round(orientedHeight * scale));
+        boolean swap = exifRotationDegrees(orientation) % 180 != 0;
+        int decodedOrientedWidth = swap ? decoded.getHeight() : decoded.getWidth();
+
+        if (orientation <= ExifInterface.ORIENTATION_NORMAL
+                && decoded.getWidth() == targetWidth && decoded.getHeight() == targetHeight) {
+            return decoded;
+        }
+
+        Matrix matrix = new Matrix();
+        applyOrientation(matrix, orientation);
+        float drawScale = (float) targetWidth / decodedOrientedWidth;
+        matrix.postScale(drawScale, drawScale);
+        // Move the transformed image back to the origin
+        RectF bounds = new RectF(0, 0, decoded.getWidth(), decoded.getHeight());
+        matrix.mapRect(bounds);
+        matrix.postTranslate(-bounds.left, -bounds.top);
+
+        Bitmap target = pool.get(targetWidth, targetHeight, Bitmap.Config.ARGB_8888);
+        target.eraseColor(0);
+        new Canvas(target).drawBitmap(decoded, matrix, scalePaint);
+        return target;
+    }
+
+    /**
+     * Downscale the display bitmap to the model input size; no upscaling
+     */
+    private Bitmap renderModel(Bitmap display) {
+        float scale = fitScale(display.getWidth(), display.getHeight(), modelSize);
+        if (scale >= 1f) {
+            return display;
+        }
+        int targetWidth = Math.max(1, Math.round(display.getWidth() * scale));
+        int targetHeight = Math.max(1, Math.round(display.getHeight() * scale));
+        Bitmap target = pool.get(targetWidth, targetHeight, Bitmap.Config.ARGB_8888);
+        new Canvas(target).drawBitmap(display, null, new Rect(0, 0, targetWidth, targetHeight), scalePaint);
+        return target;
+    }
+
+    private int readOrientation(Uri uri) {
+        try (InputStream in = open(uri)) {
+            return new ExifInterface(in).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException | RuntimeException e) {
+            // No or unreadable EXIF: keep the pixels as they are
+            Log.w(TAG, "No EXIF orientation: " + e.getMessage());
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    private InputStream open(Uri uri) throws IOException {
+        InputStream in = contentResolver.openInputStream(uri);
+        if (in == null) {
+            throw new IOException("Could not open " + uri);
+        }
+        return in;
+    }
+
+    private static void applyOrientation(Matrix matrix, int orientation) {
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.setScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.setRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.setRotate(180);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.setRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.setRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.setRotate(-90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.setRotate(-90);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Largest power of two that keeps the longer side of the decoded image at least maxSide
+     */
+    static int calculateInSampleSize(int width, int height, int maxSide) {
+        int longSide = Math.max(width, height);
+        int sampleSize = 1;
+        while (longSide / (sampleSize * 2) >= maxSide) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Scale that fits the longer side within maxSide, never above 1
+     */
+    static float fitScale(int width, int height, int maxSide) {
+        int longSide = Math.max(width, height);
+        return longSide <= maxSide ? 1f : (float) maxSide / longSide;
+    }
+
+    /**
+     * Clockwise rotation encoded in an EXIF orientation value, mirrored variants included
+     */
+    static int exifRotationDegrees(int orientation) {
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                return 90;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                return 180;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                return 270;
+            default:
+                return 0;
+        }
+    }
+}
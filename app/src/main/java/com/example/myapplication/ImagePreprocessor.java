@@ -0,0 +1,113 @@
+package com.example.myapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * Prepares images for the detection model before upload.
+ * Letterbox-resizes to the model input size (yolov8n works on 640px input, so sending a
+ * 12 MP photo only costs bandwidth) and encodes JPEG with a quality chosen to stay under
+ * a byte budget. The LetterboxTransform of each result maps returned boxes back to the
+ * original image.
+ * Not thread-safe: the letterbox bitmap is reused between calls, so use one instance per worker thread.
+ */
+public class ImagePreprocessor {
+
+    public static final int DEFAULT_INPUT_SIZE = 640;
+    public static final int DEFAULT_MAX_BYTES = 96 * 1024;
+
+    private static final int MAX_QUALITY = 90;
+    private static final int MIN_QUALITY = 50;
+    private static final int QUALITY_STEP = 10;
+    // Gray padding, as used by the YOLO letterbox
+    private static final int PAD_COLOR = Color.rgb(114, 114, 114);
+
+    /**
+     * Encoded model input with the geometry needed to map results back
+     */
+    public static class Prepared {
+        // Shared with the preprocessor: valid until its next prepare() call
+        public final ReusableByteBuffer jpeg;
+        public final int quality;
+        public final LetterboxTransform transform;
+
+        Prepared(ReusableByteBuffer jpeg, int quality, LetterboxTransform transform) {
+            this.jpeg = jpeg;
+            this.quality = quality;
+            this.transform = transform;
+        }
+    }
+
+    private final int inputSize;
+    private final int maxBytes;
+    private final Paint scalePaint = new Paint(Paint.FILTER_BITMAP_FLAG | Paint.ANTI_ALIAS_FLAG);
+    private final Rect destRect = new Rect();
+    // Encoded once per image and uploaded straight from here, without copies
+    private final ReusableByteBuffer encodeBuffer = new ReusableByteBuffer(DEFAULT_MAX_BYTES);
+
+    private Bitmap letterbox;
+    private Canvas letterboxCanvas;
+    // Starting quality for the next image, adapted to what fit the budget last time
+    private int quality = 80;
+
+    public ImagePreprocessor() {
+        this(DEFAULT_INPUT_SIZE, DEFAULT_MAX_BYTES);
+    }
+
+    public ImagePreprocessor(int inputSize, int maxBytes) {
+        this.inputSize = inputSize;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Letterbox and encode an image
+     */
+    public Prepared prepare(Bitmap source) {
+        LetterboxTransform transform = new LetterboxTransform(source.getWidth(), source.getHeight(), inputSize, false);
+        Bitmap input = letterbox(source, transform);
+
+        int q = quality;
+        encode(input, q);
+        while (encodeBuffer.size() > maxBytes && q > MIN_QUALITY) {
+            q = Math.max(MIN_QUALITY, q - QUALITY_STEP);
+            encode(input, q);
+        }
+
+        // Detailed scenes keep the lowered quality; simple ones earn some of it back
+        if (encodeBuffer.size() < maxBytes / 2) {
+            quality = Math.min(MAX_QUALITY, q + QUALITY_STEP / 2);
+        } else {
+            quality = q;
+        }
+        return new Prepared(encodeBuffer, q, transform);
+    }
+
+    /**
+     * Draw the source into the reused letterbox bitmap described by transform.
+     * The returned bitmap is overwritten by the next call.
+     */
+    public Bitmap letterbox(Bitmap source, LetterboxTransform transform) {
+        int size = transform.getTargetSize();
+        if (letterbox == null || letterbox.getWidth() != size) {
+            if (letterbox != null) {
+                letterbox.recycle();
+            }
+            letterbox = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+            letterboxCanvas = new Canvas(letterbox);
+        }
+
+        letterboxCanvas.drawColor(PAD_COLOR);
+        destRect.set(transform.getPadX(), transform.getPadY(),
+                transform.getPadX() + transform.getScaledWidth(), transform.getPadY() + transform.getScaledHeight());
+        letterboxCanvas.drawBitmap(source, null, destRect, scalePaint);
+        return letterbox;
+    }
+
+    private void encode(Bitmap bitmap, int jpegQuality) {
+        encodeBuffer.reset();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, jpegQuality, encodeBuffer);
+    }
+}
@@ -0,0 +1,326 @@
+package com.example.myapplication;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Intent-tagging engine that finds keyword groups in a message in a single pass.
+ * Keywords are compiled into an Aho-Corasick automaton, so classification cost is linear
+ * in the text length no matter how many keywords the tables contain.
+ * Matching is case-insensitive, treats every whitespace character as a space,
+ * and can require keywords to start (or start and end) on a word boundary.
+ * Instances are immutable and thread-safe.
+ */
+public class KeywordClassifier {
+
+    public static final int MAX_GROUPS = 64;
+
+    public enum Boundary {
+        /** Match anywhere, like String.contains */
+        NONE,
+        /** Keyword must start a word ("help" matches "helpful" but "where" not "somewhere") */
+        WORD_START,
+        /** Keyword must be a whole word */
+        WHOLE_WORD
+    }
+
+    /**
+     * Collects keyword groups; each group becomes one tag
+     */
+    public static class Builder {
+        private final List<String> tags = new ArrayList<>();
+        private final List<String[]> keywordGroups = new ArrayList<>();
+        private Boundary boundary = Boundary.WORD_START;
+
+        public Builder addGroup(String tag, String... keywords) {
+            if (tags.size() == MAX_GROUPS) {
+                throw new IllegalStateException("At most " + MAX_GROUPS + " keyword groups are supported");
+            }
+            tags.add(tag);
+            keywordGroups.add(keywords.clone());
+            return this;
+        }
+
+        public Builder boundary(Boundary boundary) {
+            this.boundary = boundary;
+            return this;
+        }
+
+        public KeywordClassifier build() {
+            return new KeywordClassifier(this);
+        }
+    }
+
+    private final List<String> tags;
+    private final Boundary boundary;
+    private final long allGroupsMask;
+
+    // Automaton, one entry per state. Transitions are sorted by character for binary search.
+    private char[][] transitionChars;
+    private int[][] transitionTargets;
+    private int[] failure;
+    // Dense root transitions for ASCII, the state the automaton sits in most of the time
+    private int[] rootAscii;
+    // Keywords ending at a state (including those reached through failure links)
+    private int[][] outputGroups;
+    private int[][] outputLengths;
+
+    private KeywordClassifier(Builder builder) {
+        this.tags = Collections.unmodifiableList(new ArrayList<>(builder.tags));
+        this.boundary = builder.boundary;
+        this.allGroupsMask = tags.size() == MAX_GROUPS ? -1L : (1L << tags.size()) - 1;
+        compile(builder.keywordGroups);
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    /**
+     * Classify the text in one pass
+     * @return Bit mask of matched groups (bit i set for the i-th group added)
+     */
+    public long match(CharSequence text) {
+        long matched = 0;
+        int state = 0;
+        int length = text.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = normalize(text.charAt(i));
+            state = next(state, c);
+
+            int[] groups = outputGroups[state];
+            if (groups.length == 0) {
+                continue;
+            }
+            int[] lengths = outputLengths[state];
+            for (int k = 0; k < groups.length; k++) {
+                long bit = 1L << groups[k];
+                if ((matched & bit) == 0 && isOnBoundary(text, i - lengths[k] + 1, i)) {
+                    matched |= bit;
+                }
+            }
+            if (matched == allGroupsMask) {
+                break;
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * Classify the text and return the matched tags in the order their groups were added
+     */
+    public List<String> classify(CharSequence text) {
+        long mask = match(text);
+        List<String> result = new ArrayList<>(Long.bitCount(mask));
+        for (int g = 0; g < tags.size(); g++) {
+            if ((mask & (1L << g)) != 0) {
+                result.add(tags.get(g));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Automaton steps (transitions taken plus failure links followed) to scan the whole text.
+     * Aho-Corasick takes at most two per character whatever the table size; for tests.
+     */
+    int countSteps(CharSequence text) {
+        int steps = 0;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = normalize(text.charAt(i));
+            while (true) {
+                steps++;
+                if (state == 0 && c < 128) {
+                    state = rootAscii[c];
+                    break;
+                }
+                int target = transition(state, c);
+                if (target >= 0) {
+                    state = target;
+                    break;
+                }
+                if (state == 0) {
+                    break;
+                }
+                state = failure[state];
+            }
+        }
+        return steps;
+    }
+
+    private boolean isOnBoundary(CharSequence text, int start, int end) {
+        if (boundary == Boundary.NONE) {
+            return true;
+        }
+        if (start > 0 && isWordChar(text.charAt(start - 1))) {
+            return false;
+        }
+        if (boundary == Boundary.WHOLE_WORD && end + 1 < text.length() && isWordChar(text.charAt(end + 1))) {
+            return false;
+        }
+        return true;
+    }
+
+    private int next(int state, char c) {
+        while (true) {
+            if (state == 0 && c < 128) {
+                return rootAscii[c];
+            }
+            int target = transition(state, c);
+            if (target >= 0) {
+                return target;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failure[state];
+        }
+    }
+
+    private int transition(int state, char c) {
+        char[] chars = transitionChars[state];
+        int index = Arrays.binarySearch(chars, c);
+        return index >= 0 ? transitionTargets[state][index] : -1;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static char normalize(char c) {
+        if (c < 128) {
+            if (c >= 'A' && c <= 'Z') {
+                return (char) (c + ('a' - 'A'));
+            }
+            return (c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0x0B) ? ' ' : c;
+        }
+        return Character.isWhitespace(c) ? ' ' : Character.toLowerCase(c);
+    }
+
+    /**
+     * Build the trie, then failure links and merged outputs breadth-first
+     */
+    private void compile(List<String[]> keywordGroups) {
+        // Trie construction with growable per-state lists
+        List<StringBuilder> chars = new ArrayList<>();
+        List<List<Integer>> targets = new ArrayList<>();
+        List<List<int[]>> outputs = new ArrayList<>();
+        chars.add(new StringBuilder());
+        targets.add(new ArrayList<>());
+        outputs.add(new ArrayList<>());
+
+        for (int g = 0; g < keywordGroups.size(); g++) {
+            for (String keyword : keywordGroups.get(g)) {
+                String normalized = normalizeKeyword(keyword);
+                if (normalized.isEmpty()) {
+                    continue;
+                }
+                int state = 0;
+                for (int i = 0; i < normalized.length(); i++) {
+                    char c = normalized.charAt(i);
+                    int index = chars.get(state).indexOf(String.valueOf(c));
+                    if (index >= 0) {
+                        state = targets.get(state).get(index);
+                    } else {
+                        int newState = chars.size();
+                        chars.add(new StringBuilder());
+                        targets.add(new ArrayList<>());
+                        outputs.add(new ArrayList<>());
+                        chars.get(state).append(c);
+                        targets.get(state).add(newState);
+                        state = newState;
+                    }
+                }
+                outputs.get(state).add(new int[]{g, normalized.length()});
+            }
+        }
+
+        int stateCount = chars.size();
+        transitionChars = new char[stateCount][];
+        transitionTargets = new int[stateCount][];
+        for (int s = 0; s < stateCount; s++) {
+            sortTransitions(s, chars.get(s).toString().toCharArray(), targets.get(s));
+        }
+
+        rootAscii = new int[128];
+        for (char c = 0; c < 128; c++) {
+            rootAscii[c] = Math.max(transition(0, c), 0);
+        }
+
+        // Failure links, merging outputs of the failure state (already complete in BFS order)
+        failure = new int[stateCount];
+        outputGroups = new int[stateCount][];
+        outputLengths = new int[stateCount][];
+        setOutputs(0, outputs.get(0));
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int target : transitionTargets[0]) {
+            failure[target] = 0;
+            queue.add(target);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            List<int[]> merged = outputs.get(state);
+            int fail = failure[state];
+            for (int k = 0; k < outputGroups[fail].length; k++) {
+                merged.add(new int[]{outputGroups[fail][k], outputLengths[fail][k]});
+            }
+            setOutputs(state, merged);
+
+            char[] stateChars = transitionChars[state];
+            for (int k = 0; k < stateChars.length; k++) {
+                int child = transitionTargets[state][k];
+                int f = failure[state];
+                int childFailure;
+                while (true) {
+                    int target = transition(f, stateChars[k]);
+                    if (target >= 0) {
+                        childFailure = target;
+                        break;
+                    }
+                    if (f == 0) {
+                        childFailure = 0;
+                        break;
+                    }
+                    f = failure[f];
+                }
+                failure[child] = childFailure;
+                queue.add(child);
+            }
+        }
+    }
+
+    private void sortTransitions(int state, char[] stateChars, List<Integer> stateTargets) {
+        Integer[] order = new Integer[stateChars.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Character.compare(stateChars[a], stateChars[b]));
+
+        transitionChars[state] = new char[order.length];
+        transitionTargets[state] = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            transitionChars[state][i] = stateChars[order[i]];
+            transitionTargets[state][i] = stateTargets.get(order[i]);
+        }
+    }
+
+    private void setOutputs(int state, List<int[]> outputs) {
+        outputGroups[state] = new int[outputs.size()];
+        outputLengths[state] = new int[outputs.size()];
+        for (int i = 0; i < outputs.size(); i++) {
+            outputGroups[state][i] = outputs.get(i)[0];
+            outputLengths[state][i] = outputs.get(i)[1];
+        }
+    }
+
+    private static String normalizeKeyword(String keyword) {
+        return keyword.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+}
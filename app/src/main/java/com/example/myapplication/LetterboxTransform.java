@@ -0,0 +1,75 @@
+package com.example.myapplication;
+
+/**
+ * Geometry of a letterbox resize: the source image is scaled uniformly to fit a
+ * targetSize x targetSize square and centered, the remaining area is padding.
+ * Maps boxes reported in model-input coordinates back to the original image.
+ */
+public class LetterboxTransform {
+
+    private final int sourceWidth;
+    private final int sourceHeight;
+    private final int targetSize;
+    private final float scale;
+    private final int scaledWidth;
+    private final int scaledHeight;
+    private final int padX;
+    private final int padY;
+
+    /**
+     * @param allowUpscale Whether images smaller than targetSize are enlarged.
+     *                     Upscaling adds upload bytes without adding detail, so it is usually off.
+     */
+    public LetterboxTransform(int sourceWidth, int sourceHeight, int targetSize, boolean allowUpscale) {
+        if (sourceWidth <= 0 || sourceHeight <= 0 || targetSize <= 0) {
+            throw new IllegalArgumentException("Invalid size " + sourceWidth + "x" + sourceHeight + " -> " + targetSize);
+        }
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+
+        float fit = Math.min(targetSize / (float) sourceWidth, targetSize / (float) sourceHeight);
+        this.scale = allowUpscale ? fit : Math.min(1f, fit);
+        this.scaledWidth = Math.max(1, Math.round(sourceWidth * scale));
+        this.scaledHeight = Math.max(1, Math.round(sourceHeight * scale));
+        // Without upscaling a small image keeps its size and the square shrinks to its longer side
+        this.targetSize = allowUpscale ? targetSize : Math.max(scaledWidth, scaledHeight);
+        this.padX = (this.targetSize - scaledWidth) / 2;
+        this.padY = (this.targetSize - scaledHeight) / 2;
+    }
+
+    public int getSourceWidth() { return sourceWidth; }
+    public int getSourceHeight() { return sourceHeight; }
+    public int getTargetSize() { return targetSize; }
+    public float getScale() { return scale; }
+    public int getScaledWidth() { return scaledWidth; }
+    public int getScaledHeight() { return scaledHeight; }
+    public int getPadX() { return padX; }
+    public int getPadY() { return padY; }
+
+    /**
+     * Map an x coordinate in model-input space to the original image, clamped to its bounds
+     */
+    public float toSourceX(float x) {
+        return clamp((x - padX) / scale, sourceWidth);
+    }
+
+    /**
+     * Map a y coordinate in model-input space to the original image, clamped to its bounds
+     */
+    public float toSourceY(float y) {
+        return clamp((y - padY) / scale, sourceHeight);
+    }
+
+    /**
+     * Map a detection from model-input coordinates back to the original image
+     */
+    public HuggingFaceYOLOService.DetectedObject toSource(HuggingFaceYOLOService.DetectedObject detection) {
+        return new HuggingFaceYOLOService.DetectedObject(detection.getLabel(), detection.getConfidence(),
+                toSourceX(detection.getXMin()), toSourceY(detection.getYMin()),
+                toSourceX(detection.getXMax()), toSourceY(detection.getYMax()));
+    }
+
+    private static float clamp(float value, int max) {
+        return Math.max(0f, Math.min(max, value));
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.myapplication;
+
+import android.Manifest;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Size;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+import androidx.camera.core.Preview;
+import androidx.camera.core.resolutionselector.ResolutionSelector;
+import androidx.camera.core.resolutionselector.ResolutionStrategy;
+import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
+
+import com.example.myapplication.databinding.ActivityLiveDetectionBinding;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Live object detection on the camera feed.
+ * Frames come from a CameraX ImageAnalysis with the KEEP_ONLY_LATEST strategy and are
+ * analyzed one at a time: while a detection runs the camera keeps replacing the pending
+ * frame, so the next detection always starts on the newest frame and stale frames never queue.
+ * Only the on-device backend is used.
+ */
+public class LiveDetectionActivity extends AppCompatActivity {
+
+    private static final String TAG = "LiveDetectionActivity";
+    private static final int CAMERA_PERMISSION_REQUEST = 100;
+    // Close to the model input size; larger frames only cost conversion time
+    private static final Size ANALYSIS_SIZE = new Size(640, 480);
+    // Weight of the newest sample in the smoothed HUD numbers
+    private static final float SMOOTHING = 0.2f;
+    // The HUD text is rebuilt at most this often; the overlay still follows every frame
+    private static final long HUD_INTERVAL_MS = 250;
+
+    private ActivityLiveDetectionBinding binding;
+    private HuggingFaceYOLOService yoloService;
+    private ExecutorService analysisExecutor;
+    // Only used on the analysis thread
+    private final YuvToRgbConverter converter = new YuvToRgbConverter();
+
+    // HUD statistics, analysis thread only
+    private long lastResultAt;
+    private float smoothedFps;
+    private float smoothedConvertMs;
+    private float smoothedDetectMs;
+    private long framesAnalyzed;
+    private long hudUpdatedAt;
+    private final StringBuilder hudText = new StringBuilder(96);
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        binding = ActivityLiveDetectionBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
+
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setTitle("Live Detection");
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+        binding.toolbar.setNavigationOnClickListener(v -> finish());
+
+        yoloService = new HuggingFaceYOLOService(this);
+        // Never the remote API: every analyzed frame would be a paid upload with a network round trip
+        yoloService.setBackendMode(DetectionBackendSelector.Mode.ON_DEVICE);
+        if (!yoloService.isOnDeviceAvailable()) {
+            Toast.makeText(this, "Live detection needs the on-device model", Toast.LENGTH_LONG).show();
+            finish();
+            return;
+        }
+        analysisExecutor = Executors.newSingleThreadExecutor();
+
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA)
+                == PackageManager.PERMISSION_GRANTED) {
+            startCamera();
+        } else {
+            ActivityCompat.requestPermissions(this,
+                    new String[]{Manifest.permission.CAMERA},
+                    CAMERA_PERMISSION_REQUEST);
+        }
+    }
+
+    private void startCamera() {
+        ListenableFuture<ProcessCameraProvider> providerFuture = ProcessCameraProvider.getInstance(this);
+        providerFuture.addListener(() -> {
+            try {
+                bindUseCases(providerFuture.get());
+            } catch (ExecutionException | InterruptedException e) {
+                Log.e(TAG, "Could not start camera", e);
+                Toast.makeText(this, "Could not start camera", Toast.LENGTH_SHORT).show();
+                finish();
+            }
+        }, ContextCompat.getMainExecutor(this));
+    }
+
+    private void bindUseCases(ProcessCameraProvider provider) {
+        Preview preview = new Preview.Builder().build();
+        preview.setSurfaceProvider(binding.previewView.getSurfaceProvider());
+
+        ImageAnalysis analysis = new ImageAnalysis.Builder()
+                .setResolutionSelector(new ResolutionSelector.Builder()
+                        .setResolutionStrategy(new ResolutionStrategy(ANALYSIS_SIZE,
+                                ResolutionStrategy.FALLBACK_RULE_CLOSEST_HIGHER_THEN_LOWER))
+                        .build())
+                // Latest frame wins: frames arriving during a detection replace each other
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                .setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_YUV_420_888)
+                .build();
+        analysis.setAnalyzer(analysisExecutor, this::analyze);
+
+        provider.unbindAll();
+        // Bound to the activity lifecycle: the camera stops in onPause/onStop
+        provider.bindToLifecycle(this, CameraSelector.DEFAULT_BACK_CAMERA, preview, analysis);
+    }
+
+    private void analyze(@NonNull ImageProxy image) {
+        long start = SystemClock.elapsedRealtime();
+        Bitmap frame;
+        try {
+            frame = converter.convert(image);
+        } finally {
+            // Release the camera buffer before the (much longer) detection
+            image.close();
+        }
+        long converted = SystemClock.elapsedRealtime();
+
+        HuggingFaceYOLOService.DetectionResult result;
+        try {
+            result = yoloService.detectObjectsSync(frame, false);
+        } catch (Exception e) {
+            Log.w(TAG, "Detection failed: " + e.getMessage());
+            String message = "Detection failed: " + e.getMessage();
+            runOnUiThread(() -> binding.textViewHud.setText(message));
+            return;
+        }
+        long done = SystemClock.elapsedRealtime();
+        List<HuggingFaceYOLOService.DetectedObject> detections = result.detections;
+
+        framesAnalyzed++;
+        smoothedConvertMs = smooth(smoothedConvertMs, converted - start);
+        smoothedDetectMs = smooth(smoothedDetectMs, done - converted);
+        if (lastResultAt > 0) {
+            smoothedFps = smooth(smoothedFps, 1000f / Math.max(1, done - lastResultAt));
+        }
+        lastResultAt = done;
+
+        int frameWidth = frame.getWidth();
+        int frameHeight = frame.getHeight();
+        String hud = null;
+        if (done - hudUpdatedAt >= HUD_INTERVAL_MS) {
+            hudUpdatedAt = done;
+            hud = buildHud(result.backendName, frameWidth, frameHeight, detections.size());
+        }
+        String hudUpdate = hud;
+        runOnUiThread(() -> {
+            if (isDestroyed()) {
+                return;
+            }
+            binding.overlayView.setDetections(detections, frameWidth, frameHeight);
+            if (hudUpdate != null) {
+                binding.textViewHud.setText(hudUpdate);
+            }
+        });
+    }
+
+    /**
+     * HUD text from the smoothed statistics, appended without a Formatter
+     */
+    private String buildHud(String backendName, int frameWidth, int frameHeight, int objectCount) {
+        hudText.setLength(0);
+        int fpsTenths = Math.round(smoothedFps * 10);
+        hudText.append(fpsTenths / 10).append('.').append(fpsTenths % 10).append(" FPS | convert ")
+                .append(Math.round(smoothedConvertMs)).append(" ms | detect ")
+                .append(Math.round(smoothedDetectMs)).append(" ms\n")
+                .append(backendName).append(" | ").append(frameWidth).append('x').append(frameHeight)
+                .append(" | ").append(objectCount).append(" objects | frame ").append(framesAnalyzed);
+        return hudText.toString();
+    }
+
+    private static float smooth(float average, float sample) {
+        return average == 0f ? sample : average + SMOOTHING * (sample - average);
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+
+        if (requestCode == CAMERA_PERMISSION_REQUEST) {
+            if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+                startCamera();
+            } else {
+                Toast.makeText(this, "Camera permission is required", Toast.LENGTH_SHORT).show();
+                finish();
+            }
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (analysisExecutor != null) {
+            analysisExecutor.shutdown();
+        }
+        if (yoloService != null) {
+            yoloService.close();
+        }
+    }
+}
@@ -1,11 +1,21 @@
 package com.example.myapplication;
 
+import com.google.firebase.database.Exclude;
+import com.google.firebase.database.ServerValue;
+
+import java.util.HashMap;
+import java.util.Map;
+
 public class Message {
     private String messageId;
     private String senderId;
     private String receiverId;
     private String message;
     private long timestamp;
+    // Set by the server when it stores the message; orders delta sync (see ChatMessagePager)
+    private long serverTime;
+    // Local only: queued in the outbox and not yet acknowledged by the server
+    private boolean pending;
 
     @SuppressWarnings("unused")
     public Message() {
@@ -65,4 +75,37 @@ public class Message {
     public void setTimestamp(long timestamp) {
         this.timestamp = timestamp;
     }
+
+    public long getServerTime() {
+        return serverTime;
+    }
+
+    @SuppressWarnings("unused")
+    public void setServerTime(long serverTime) {
+        this.serverTime = serverTime;
+    }
+
+    /**
+     * Fields to write for a new message, with the server time filled in by the server
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("messageId", messageId);
+        map.put("senderId", senderId);
+        map.put("receiverId", receiverId);
+        map.put("message", message);
+        map.put("timestamp", timestamp);
+        map.put("serverTime", ServerValue.TIMESTAMP);
+        return map;
+    }
+
+    @Exclude
+    public boolean isPending() {
+        return pending;
+    }
+
+    @Exclude
+    public void setPending(boolean pending) {
+        this.pending = pending;
+    }
 }
@@ -4,11 +4,6 @@ import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.RectF;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.MediaStore;
@@ -22,7 +17,6 @@ import androidx.core.content.ContextCompat;
 
 import com.example.myapplication.databinding.ActivityObjectDetectionBinding;
 
-import java.io.IOException;
 import java.util.List;
 
 /**
@@ -39,7 +33,12 @@ public class ObjectDetectionActivity extends AppCompatActivity {
     
     private ActivityObjectDetectionBinding binding;
     private HuggingFaceYOLOService yoloService;
-    private Bitmap currentImage;
+    private ImageLoader imageLoader;
+    // Display bitmap is shown, model bitmap is sent to detection
+    private ImageLoader.Loaded currentImage;
+    // Content Uri of the current image for the history, null for camera thumbnails
+    private String currentSource;
+    private boolean detectionInFlight;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -49,6 +48,7 @@ public class ObjectDetectionActivity extends AppCompatActivity {
         
         // Initialize YOLO service
         yoloService = new HuggingFaceYOLOService(this);
+        imageLoader = new ImageLoader(this);
         
         // Setup toolbar
         if (getSupportActionBar() != null) {
@@ -57,16 +57,33 @@ public class ObjectDetectionActivity extends AppCompatActivity {
         }
         binding.toolbar.setNavigationOnClickListener(v -> finish());
         
-        // Check API token
-        if (!yoloService.isApiTokenConfigured()) {
-            binding.textViewStatus.setText("Hugging Face API token not configured.\n\nPlease add HUGGINGFACE_API_TOKEN to local.properties");
+        // Check that a detection backend is available (on-device model or API token)
+        if (!yoloService.isAvailable()) {
+            binding.textViewStatus.setText("Object detection not configured.\n\nPlease add HUGGINGFACE_API_TOKEN to local.properties or install the on-device model");
             binding.buttonDetect.setEnabled(false);
+        } else {
+            // Warm up the connection while the user picks an image
+            yoloService.prewarmConnection();
         }
         
         // Button click listeners
         binding.buttonTakePhoto.setOnClickListener(v -> takePhoto());
         binding.buttonSelectImage.setOnClickListener(v -> selectImage());
         binding.buttonDetect.setOnClickListener(v -> detectObjects());
+        binding.buttonLiveCamera.setOnClickListener(v ->
+                startActivity(new Intent(this, LiveDetectionActivity.class)));
+        // Live mode and tiling run on the device only
+        binding.buttonLiveCamera.setEnabled(yoloService.isOnDeviceAvailable());
+        binding.checkBoxTiled.setEnabled(yoloService.isOnDeviceAvailable());
+        if (!yoloService.isOnDeviceAvailable()) {
+            binding.checkBoxTiled.setChecked(false);
+            binding.checkBoxTiled.setText("Tiled detection (needs the on-device model)");
+        }
+        binding.buttonBatch.setOnClickListener(v ->
+                startActivity(new Intent(this, BatchDetectionActivity.class)));
+        binding.buttonBatch.setEnabled(yoloService.isAvailable());
+        binding.buttonHistory.setOnClickListener(v ->
+                startActivity(new Intent(this, DetectionHistoryActivity.class)));
     }
     
     private void takePhoto() {
@@ -110,24 +127,44 @@ public class ObjectDetectionActivity extends AppCompatActivity {
         binding.buttonDetect.setEnabled(false);
         binding.textViewStatus.setText("Detecting objects...");
         
-        yoloService.detectObjects(currentImage, new HuggingFaceYOLOService.DetectionCallback() {
+        ImageLoader.Loaded image = currentImage;
+        String source = currentSource;
+        // Tiled mode reads the original pixels, where small objects still have them; boxes come
+        // back in display bitmap coordinates
+        boolean tiled = binding.checkBoxTiled.isChecked();
+        Bitmap input = tiled ? image.display : image.model;
+        detectionInFlight = true;
+        HuggingFaceYOLOService.DetectionCallback callback = new HuggingFaceYOLOService.DetectionCallback() {
             @Override
-            public void onSuccess(List<HuggingFaceYOLOService.DetectedObject> detections) {
+            public void onSuccess(HuggingFaceYOLOService.DetectionResult result) {
+                List<HuggingFaceYOLOService.DetectedObject> detections = result.detections;
+                // A cached result is already in the history
+                if (!result.fromCache) {
+                    // Still on the detection thread, where the bitmap cannot be released yet
+                    DetectionHistoryStore.getInstance(ObjectDetectionActivity.this).record(
+                            new DetectionHistoryStore.Entry(source, input.getWidth(), input.getHeight(),
+                                    result.backendName, DetectionHistoryStore.encodeThumbnail(input),
+                                    detections));
+                }
                 runOnUiThread(() -> {
+                    detectionInFlight = false;
                     binding.progressBar.setVisibility(View.GONE);
                     binding.buttonDetect.setEnabled(true);
+                    if (image != currentImage) {
+                        // A different image was loaded meanwhile
+                        return;
+                    }
                     
+                    // Boxes are in input bitmap coordinates; both bitmaps have the same aspect ratio
+                    binding.overlayView.setDetections(detections, input.getWidth(), input.getHeight());
                     if (detections.isEmpty()) {
                         binding.textViewStatus.setText("No objects detected");
-                        binding.imageViewResult.setImageBitmap(currentImage);
                     } else {
-                        // Draw bounding boxes on image
-                        Bitmap annotatedImage = drawDetections(currentImage, detections);
-                        binding.imageViewResult.setImageBitmap(annotatedImage);
-                        
                         // Display detection results
                         StringBuilder statusText = new StringBuilder();
-                        statusText.append("Detected ").append(detections.size()).append(" object(s):\n\n");
+                        statusText.append("Detected ").append(detections.size()).append(" object(s)")
+                                .append(" (").append(result.backendName)
+                                .append(result.fromCache ? ", cached" : "").append("):\n\n");
                         for (HuggingFaceYOLOService.DetectedObject obj : detections) {
                             statusText.append(String.format("• %s (%.1f%% confidence)\n", 
                                     obj.getLabel(), obj.getConfidence() * 100));
@@ -140,60 +177,22 @@ public class ObjectDetectionActivity extends AppCompatActivity {
             @Override
             public void onError(String error) {
                 runOnUiThread(() -> {
+                    detectionInFlight = false;
                     binding.progressBar.setVisibility(View.GONE);
                     binding.buttonDetect.setEnabled(true);
                     binding.textViewStatus.setText("Error: " + error);
                     Toast.makeText(ObjectDetectionActivity.this, error, Toast.LENGTH_LONG).show();
                 });
             }
-        });
-    }
-    
-    /**
-     * Draw bounding boxes and labels on the image
-     */
-    private Bitmap drawDetections(Bitmap original, List<HuggingFaceYOLOService.DetectedObject> detections) {
-        Bitmap mutableBitmap = original.copy(Bitmap.Config.ARGB_8888, true);
-        Canvas canvas = new Canvas(mutableBitmap);
-        
-        Paint boxPaint = new Paint();
-        boxPaint.setColor(Color.RED);
-        boxPaint.setStyle(Paint.Style.STROKE);
-        boxPaint.setStrokeWidth(4f);
-        
-        Paint textPaint = new Paint();
-        textPaint.setColor(Color.RED);
-        textPaint.setTextSize(30f);
-        textPaint.setStyle(Paint.Style.FILL);
-        textPaint.setFakeBoldText(true);
-        
-        Paint bgPaint = new Paint();
-        bgPaint.setColor(Color.WHITE);
-        bgPaint.setStyle(Paint.Style.FILL);
-        bgPaint.setAlpha(200);
-        
-        for (HuggingFaceYOLOService.DetectedObject detection : detections) {
-            float xMin = detection.getXMin();
-            float yMin = detection.getYMin();
-            float xMax = detection.getXMax();
-            float yMax = detection.getYMax();
-            
-            // Draw bounding box
-            RectF rect = new RectF(xMin, yMin, xMax, yMax);
-            canvas.drawRect(rect, boxPaint);
-            
-            // Draw label with confidence
-            String label = detection.getLabel() + " " + String.format("%.1f%%", detection.getConfidence() * 100);
-            
-            // Draw background for text
-            float textWidth = textPaint.measureText(label);
-            canvas.drawRect(xMin, yMin - 40, xMin + textWidth + 10, yMin, bgPaint);
-            
-            // Draw text
-            canvas.drawText(label, xMin + 5, yMin - 10, textPaint);
+        };
+        if (tiled && source != null) {
+            yoloService.detectObjectsTiled(imageLoader, Uri.parse(source), input, callback);
+        } else if (tiled) {
+            // Camera thumbnail, no original to read
+            yoloService.detectObjectsTiled(input, callback);
+        } else {
+            yoloService.detectObjects(input, callback);
         }
-        
-        return mutableBitmap;
     }
     
     @Override
@@ -204,26 +203,53 @@ public class ObjectDetectionActivity extends AppCompatActivity {
             if (requestCode == REQUEST_IMAGE_CAPTURE && data != null) {
                 Bundle extras = data.getExtras();
                 if (extras != null) {
+                    // Small thumbnail: used as is for display and detection
                     Bitmap imageBitmap = (Bitmap) extras.get("data");
-                    currentImage = imageBitmap;
-                    binding.imageViewResult.setImageBitmap(imageBitmap);
-                    binding.buttonDetect.setEnabled(true);
-                    binding.textViewStatus.setText("Image loaded. Click 'Detect Objects' to analyze.");
+                    if (imageBitmap != null) {
+                        showImage(new ImageLoader.Loaded(imageBitmap, imageBitmap,
+                                imageBitmap.getWidth(), imageBitmap.getHeight(), 1, 0), null);
+                    }
                 }
             } else if (requestCode == REQUEST_IMAGE_PICK && data != null) {
                 Uri imageUri = data.getData();
-                try {
-                    currentImage = MediaStore.Images.Media.getBitmap(getContentResolver(), imageUri);
-                    binding.imageViewResult.setImageBitmap(currentImage);
-                    binding.buttonDetect.setEnabled(true);
-                    binding.textViewStatus.setText("Image loaded. Click 'Detect Objects' to analyze.");
-                } catch (IOException e) {
-                    Toast.makeText(this, "Error loading image: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                if (imageUri == null) {
+                    return;
                 }
+                binding.progressBar.setVisibility(View.VISIBLE);
+                binding.buttonDetect.setEnabled(false);
+                binding.textViewStatus.setText("Loading image...");
+                imageLoader.load(imageUri, new ImageLoader.Callback() {
+                    @Override
+                    public void onLoaded(ImageLoader.Loaded image) {
+                        binding.progressBar.setVisibility(View.GONE);
+                        showImage(image, imageUri.toString());
+                    }
+                    
+                    @Override
+                    public void onError(String error) {
+                        binding.progressBar.setVisibility(View.GONE);
+                        binding.buttonDetect.setEnabled(currentImage != null);
+                        Toast.makeText(ObjectDetectionActivity.this, "Error loading image: " + error, Toast.LENGTH_SHORT).show();
+                    }
+                });
             }
         }
     }
     
+    private void showImage(ImageLoader.Loaded image, String source) {
+        ImageLoader.Loaded previous = currentImage;
+        currentImage = image;
+        currentSource = source;
+        binding.imageViewResult.setImageBitmap(image.display);
+        binding.overlayView.clear();
+        binding.buttonDetect.setEnabled(true);
+        binding.textViewStatus.setText("Image loaded. Click 'Detect Objects' to analyze.");
+        // The old bitmaps can be reused once nothing shows or detects them
+        if (previous != null && !detectionInFlight) {
+            imageLoader.release(previous);
+        }
+    }
+    
     @Override
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
@@ -246,9 +272,8 @@ public class ObjectDetectionActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (currentImage != null && !currentImage.isRecycled()) {
-            currentImage.recycle();
-        }
+        yoloService.close();
+        imageLoader.close();
     }
 }
 
@@ -0,0 +1,247 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * YOLO detection on the device CPU with TensorFlow Lite (XNNPACK delegate, multithreaded).
+ * Expects an int8-quantized yolov8n exported with
+ * `yolo export model=yolov8n.pt format=tflite int8=True` and placed in assets as MODEL_ASSET;
+ * without it the backend reports itself unavailable and the remote API is used.
+ * The model outputs [1, 4 + classes, anchors] (or its transpose) with xywh boxes normalized to
+ * the input size.
+ */
+public class OnDeviceDetectionBackend implements DetectionBackend {
+    private static final String TAG = "OnDeviceYOLO";
+
+    public static final String MODEL_ASSET = "yolov8n_int8.tflite";
+
+    private final Context context;
+    private final String[] labels;
+    private final int numThreads;
+    private final DetectionPostProcessor postProcessor;
+    // Reused for the thousands of raw anchors of every frame
+    private final DetectionPostProcessor.Candidates candidates = new DetectionPostProcessor.Candidates(1024);
+
+    private Boolean modelPresent;
+    // Set by close; a detection queued behind it must not load a new interpreter
+    private boolean closed;
+    private Interpreter interpreter;
+    private int inputSize;
+    private ByteBuffer inputBuffer;
+    private ByteBuffer outputBuffer;
+    private int[] pixels;
+    private float[] outputs;
+    // Quantized value of every 8-bit channel value, so filling the input needs no float math
+    private final byte[] quantizedChannel = new byte[256];
+    private boolean floatInput;
+    private ImagePreprocessor letterboxer;
+
+    public OnDeviceDetectionBackend(Context context, DetectionPostProcessor postProcessor) {
+        this.context = context.getApplicationContext();
+        this.labels = this.context.getResources().getStringArray(R.array.coco_labels);
+        this.postProcessor = postProcessor;
+        // Leave cores for the UI and the camera pipeline
+        this.numThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    @Override
+    public String getName() {
+        return "on-device";
+    }
+
+    @Override
+    public synchronized boolean isAvailable() {
+        if (modelPresent == null) {
+            try (AssetFileDescriptor ignored = context.getAssets().openFd(MODEL_ASSET)) {
+                modelPresent = true;
+            } catch (IOException e) {
+                Log.i(TAG, "No on-device model (" + MODEL_ASSET + "), using the remote API only");
+                modelPresent = false;
+            }
+        }
+        return modelPresent;
+    }
+
+    /**
+     * The interpreter is not thread-safe, so detections run one at a time
+     */
+    @Override
+    public synchronized List<HuggingFaceYOLOService.DetectedObject> detect(Bitmap image) throws IOException {
+        if (closed) {
+            throw new DetectionException("On-device detection is closed");
+        }
+        if (!isAvailable()) {
+            throw new DetectionException("On-device model is not installed");
+        }
+        ensureInterpreter();
+
+        long start = System.nanoTime();
+        LetterboxTransform transform = new LetterboxTransform(image.getWidth(), image.getHeight(), inputSize, true);
+        fillInput(letterboxer.letterbox(image, transform));
+        long preprocessed = System.nanoTime();
+
+        outputBuffer.rewind();
+        interpreter.run(inputBuffer, outputBuffer);
+        long inferred = System.nanoTime();
+
+        List<HuggingFaceYOLOService.DetectedObject> detections = decode(transform);
+        Log.d(TAG, "Detected " + detections.size() + " objects: preprocess "
+                + TimeUnit.NANOSECONDS.toMillis(preprocessed - start) + " ms, inference "
+                + TimeUnit.NANOSECONDS.toMillis(inferred - preprocessed) + " ms, decode "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inferred) + " ms");
+        return detections;
+    }
+
+    private void ensureInterpreter() throws IOException {
+        if (interpreter != null) {
+            return;
+        }
+        try {
+            Interpreter.Options options = new Interpreter.Options()
+                    .setNumThreads(numThreads)
+                    .setUseXNNPACK(true);
+            interpreter = new Interpreter(loadModel(), options);
+        } catch (IllegalArgumentException e) {
+            modelPresent = false;
+            throw new DetectionException("On-device model could not be loaded", e);
+        }
+
+        Tensor input = interpreter.getInputTensor(0);
+        // NHWC: [1, size, size, 3]
+        inputSize = input.shape()[1];
+        floatInput = input.dataType() == DataType.FLOAT32;
+        if (!floatInput) {
+            float scale = input.quantizationParams().getScale();
+            int zeroPoint = input.quantizationParams().getZeroPoint();
+            boolean signed = input.dataType() == DataType.INT8;
+            for (int v = 0; v < 256; v++) {
+                int q = Math.round(v / 255f / scale) + zeroPoint;
+                q = signed ? Math.max(-128, Math.min(127, q)) : Math.max(0, Math.min(255, q));
+                quantizedChannel[v] = (byte) q;
+            }
+        }
+        inputBuffer = ByteBuffer.allocateDirect(input.numBytes()).order(ByteOrder.nativeOrder());
+        outputBuffer = ByteBuffer.allocateDirect(interpreter.getOutputTensor(0).numBytes())
+                .order(ByteOrder.nativeOrder());
+        pixels = new int[inputSize * inputSize];
+        outputs = new float[interpreter.getOutputTensor(0).numElements()];
+        letterboxer = new ImagePreprocessor(inputSize, ImagePreprocessor.DEFAULT_MAX_BYTES);
+
+        Log.i(TAG, "Loaded " + MODEL_ASSET + ": input " + Arrays.toString(input.shape()) + " " + input.dataType()
+                + ", output " + Arrays.toString(interpreter.getOutputTensor(0).shape())
+                + ", " + numThreads + " threads");
+    }
+
+    private MappedByteBuffer loadModel() throws IOException {
+        // Memory-mapped straight from the APK (the asset is stored uncompressed)
+        try (AssetFileDescriptor fd = context.getAssets().openFd(MODEL_ASSET);
+             FileInputStream stream = new FileInputStream(fd.getFileDescriptor())) {
+            return stream.getChannel().map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getDeclaredLength());
+        }
+    }
+
+    private void fillInput(Bitmap letterboxed) {
+        letterboxed.getPixels(pixels, 0, inputSize, 0, 0, inputSize, inputSize);
+        inputBuffer.rewind();
+        for (int pixel : pixels) {
+            int r = (pixel >> 16) & 0xFF;
+            int g = (pixel >> 8) & 0xFF;
+            int b = pixel & 0xFF;
+            if (floatInput) {
+                inputBuffer.putFloat(r / 255f);
+                inputBuffer.putFloat(g / 255f);
+                inputBuffer.putFloat(b / 255f);
+            } else {
+                inputBuffer.put(quantizedChannel[r]);
+                inputBuffer.put(quantizedChannel[g]);
+                inputBuffer.put(quantizedChannel[b]);
+            }
+        }
+        inputBuffer.rewind();
+    }
+
+    /**
+     * Turn the raw output into boxes in source image coordinates
+     */
+    private List<HuggingFaceYOLOService.DetectedObject> decode(LetterboxTransform transform) {
+        Tensor output = interpreter.getOutputTensor(0);
+        readOutputs(output);
+
+        int[] shape = output.shape();
+        // [1, 4 + classes, anchors] as exported by ultralytics, or [1, anchors, 4 + classes]
+        boolean channelsFirst = shape[1] < shape[2];
+        int channels = channelsFirst ? shape[1] : shape[2];
+        int anchors = channelsFirst ? shape[2] : shape[1];
+        int classes = Math.min(channels - 4, labels.length);
+
+        // Anchors are filtered by their best class; NMS and top-K run on primitive arrays
+        float minScore = postProcessor.getMinThreshold();
+        candidates.clear();
+        for (int i = 0; i < anchors; i++) {
+            int bestClass = -1;
+            float bestScore = minScore;
+            for (int c = 0; c < classes; c++) {
+                float score = value(channelsFirst, 4 + c, i, anchors, channels);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestClass = c;
+                }
+            }
+            if (bestClass < 0) {
+                continue;
+            }
+            float cx = value(channelsFirst, 0, i, anchors, channels) * inputSize;
+            float cy = value(channelsFirst, 1, i, anchors, channels) * inputSize;
+            float w = value(channelsFirst, 2, i, anchors, channels) * inputSize;
+            float h = value(channelsFirst, 3, i, anchors, channels) * inputSize;
+            candidates.add(cx - w / 2, cy - h / 2, cx + w / 2, cy + h / 2, bestScore, bestClass);
+        }
+        postProcessor.process(candidates);
+        return postProcessor.toDetections(candidates, transform);
+    }
+
+    private float value(boolean channelsFirst, int channel, int anchor, int anchors, int channels) {
+        return outputs[channelsFirst ? channel * anchors + anchor : anchor * channels + channel];
+    }
+
+    private void readOutputs(Tensor output) {
+        outputBuffer.rewind();
+        if (output.dataType() == DataType.FLOAT32) {
+            outputBuffer.asFloatBuffer().get(outputs);
+            return;
+        }
+        float scale = output.quantizationParams().getScale();
+        int zeroPoint = output.quantizationParams().getZeroPoint();
+        boolean signed = output.dataType() == DataType.INT8;
+        for (int i = 0; i < outputs.length; i++) {
+            int q = signed ? outputBuffer.get(i) : outputBuffer.get(i) & 0xFF;
+            outputs[i] = (q - zeroPoint) * scale;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (interpreter != null) {
+            interpreter.close();
+            interpreter = null;
+        }
+    }
+}
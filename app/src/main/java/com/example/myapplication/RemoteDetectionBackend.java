@@ -0,0 +1,278 @@
+package com.example.myapplication;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * YOLO detection through the Hugging Face Inference API (ultralytics/yolov8n).
+ * Needs network access and HUGGINGFACE_API_TOKEN.
+ * Each attempt is bounded as a whole by CALL_TIMEOUT_SECONDS, and calls in flight are aborted
+ * by cancelCalls (e.g. a cancelled batch) and close.
+ */
+public class RemoteDetectionBackend implements DetectionBackend {
+    private static final String TAG = "HuggingFaceYOLO";
+
+    // Hugging Face Inference API endpoint for YOLO models
+    // Using ultralytics/yolov8 which is a popular YOLO model on Hugging Face
+    private static final String API_URL = "https://api-inference.huggingface.co/models/ultralytics/yolov8n";
+    private static final MediaType JPEG = MediaType.get("image/jpeg");
+    // Upload, inference and response of one attempt; the client's timeouts only bound each read
+    private static final long CALL_TIMEOUT_SECONDS = 90;
+
+    private final OkHttpClient client;
+    private final ResilientHttpCaller resilientCaller = ResilientHttpCaller.forEndpoint("Hugging Face");
+    // The encode buffer is uploaded in place, so every worker thread needs its own preprocessor
+    private final ThreadLocal<ImagePreprocessor> preprocessor = new ThreadLocal<ImagePreprocessor>() {
+        @Override
+        protected ImagePreprocessor initialValue() {
+            return new ImagePreprocessor();
+        }
+    };
+    private final DetectionPostProcessor postProcessor;
+    private volatile String apiToken;
+    private final Set<CallSignal> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    /**
+     * Cancellation of one detect call, set by cancelCalls or close
+     */
+    private static class CallSignal implements RequestScheduler.CancellationSignal {
+        private volatile boolean cancelled;
+        private Runnable onCancel;
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void setOnCancelListener(Runnable listener) {
+            boolean runNow;
+            synchronized (this) {
+                onCancel = listener;
+                runNow = cancelled;
+            }
+            if (runNow && listener != null) {
+                listener.run();
+            }
+        }
+
+        void cancel() {
+            Runnable listener;
+            synchronized (this) {
+                cancelled = true;
+                listener = onCancel;
+            }
+            if (listener != null) {
+                listener.run();
+            }
+        }
+    }
+
+    public RemoteDetectionBackend(DetectionPostProcessor postProcessor) {
+        this.postProcessor = postProcessor;
+        // Shares the process-wide connection pool; inference can take a while to respond
+        this.client = HttpClientProvider.withTimeouts(30, 60, TimeUnit.SECONDS);
+        this.apiToken = getApiToken();
+    }
+
+    private String getApiToken() {
+        try {
+            Class<?> buildConfigClass = Class.forName("com.example.myapplication.BuildConfig");
+            java.lang.reflect.Field field = buildConfigClass.getField("HUGGINGFACE_API_TOKEN");
+            String token = (String) field.get(null);
+
+            // Remove quotes if present
+            if (token != null && token.startsWith("\"") && token.endsWith("\"")) {
+                token = token.substring(1, token.length() - 1);
+            }
+
+            // Clean and trim
+            token = token != null ? token.trim() : "";
+
+            // Log for debugging (first 10 chars only for security)
+            if (!token.isEmpty()) {
+                String preview = token.length() > 10 ? token.substring(0, 10) + "..." : token.substring(0, Math.min(token.length(), 10));
+                Log.d(TAG, "Hugging Face API token loaded: " + preview + " (length: " + token.length() + ")");
+            } else {
+                Log.w(TAG, "Hugging Face API token is empty or not configured");
+            }
+
+            return token;
+        } catch (ClassNotFoundException e) {
+            Log.e(TAG, "BuildConfig class not found. Please sync Gradle: File → Sync Project with Gradle Files");
+            return "";
+        } catch (Exception e) {
+            Log.w(TAG, "Could not read Hugging Face API token from BuildConfig: " + e.getMessage());
+            Log.w(TAG, "Please ensure: 1) local.properties has HUGGINGFACE_API_TOKEN, 2) Gradle is synced, 3) Project is rebuilt");
+            return "";
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Hugging Face API";
+    }
+
+    /**
+     * Check if API token is configured
+     */
+    @Override
+    public boolean isAvailable() {
+        String token = apiToken;
+        return token != null && !token.isEmpty() && !token.equals("\"\"");
+    }
+
+    /**
+     * Whether the endpoint's circuit breaker currently lets calls through
+     */
+    public boolean isReachable() {
+        return resilientCaller.getCircuitBreaker().getState() != CircuitBreaker.State.OPEN;
+    }
+
+    @Override
+    public List<HuggingFaceYOLOService.DetectedObject> detect(Bitmap image) throws IOException {
+        // Refresh token in case BuildConfig was updated
+        apiToken = getApiToken();
+        String token = apiToken;
+
+        if (closed) {
+            throw new DetectionException("Remote detection is closed");
+        }
+        if (!isAvailable()) {
+            throw new DetectionException("Hugging Face API token not configured. Please:\n1. Add HUGGINGFACE_API_TOKEN to local.properties\n2. Sync Gradle\n3. Rebuild project");
+        }
+
+        // Validate token format (should start with hf_)
+        if (!token.startsWith("hf_")) {
+            Log.w(TAG, "Warning: API token doesn't start with 'hf_'. Make sure it's a valid Hugging Face token.");
+        }
+
+        long start = System.nanoTime();
+        long heapBefore = usedHeap();
+        // Model-sized letterboxed JPEG instead of the full-resolution image
+        ImagePreprocessor.Prepared prepared = preprocessor.get().prepare(image);
+        Log.d(TAG, "Prepared " + image.getWidth() + "x" + image.getHeight() + " image as "
+                + prepared.transform.getTargetSize() + "px JPEG q" + prepared.quality
+                + ", " + prepared.jpeg.size() + " bytes, heap " + describeHeap(heapBefore));
+
+        // Raw image bytes streamed from the encode buffer (the API also accepts
+        // base64 in JSON, which costs several copies of the image and +33% upload)
+        RequestBody body = prepared.jpeg.toRequestBody(JPEG);
+        Request request = new Request.Builder()
+                .url(API_URL)
+                .header("Authorization", "Bearer " + token)
+                .post(body)
+                .build();
+
+        Log.d(TAG, "Sending request to Hugging Face API...");
+
+        // Execute request (retried on 503 while the model loads, fails fast during outages)
+        CallSignal signal = new CallSignal();
+        inFlight.add(signal);
+        if (closed) {
+            // close() may have missed this call
+            signal.cancel();
+        }
+        try (Response response = resilientCaller.execute(client, request, true,
+                TimeUnit.SECONDS.toMillis(CALL_TIMEOUT_SECONDS), signal)) {
+            if (!response.isSuccessful()) {
+                String errorBody = response.body() != null ? response.body().string() : "Unknown error";
+                Log.e(TAG, "API request failed: " + response.code() + " - " + errorBody);
+                throw new DetectionException("API request failed: " + response.code() + ". " + errorBody);
+            }
+
+            Log.d(TAG, "API response received");
+
+            // Parse response straight from the stream, then drop duplicates and low scores
+            DetectionPostProcessor.Candidates candidates = parseResponse(response.body().charStream());
+            postProcessor.process(candidates);
+            // Boxes come back in letterbox coordinates
+            List<HuggingFaceYOLOService.DetectedObject> detections =
+                    postProcessor.toDetections(candidates, prepared.transform);
+            Log.d(TAG, "Detection took " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                    + " ms, " + candidates.size() + " predictions -> " + detections.size()
+                    + ", heap " + describeHeap(heapBefore));
+            return detections;
+        } catch (ResilientHttpCaller.CircuitOpenException e) {
+            Log.w(TAG, "Failing fast: " + resilientCaller.describe());
+            throw new DetectionException(e.getMessage(), e);
+        } catch (IOException e) {
+            if (signal.isCancelled()) {
+                throw new DetectionException("Detection cancelled", e);
+            }
+            throw e;
+        } finally {
+            inFlight.remove(signal);
+        }
+    }
+
+    /**
+     * Abort the calls in flight; they fail with "Detection cancelled". Later calls run normally.
+     */
+    public void cancelCalls() {
+        for (CallSignal signal : inFlight) {
+            signal.cancel();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Used heap and growth since a detection started, for tracking per-detection memory
+     */
+    private static String describeHeap(long heapBefore) {
+        long used = usedHeap();
+        return String.format(Locale.US, "%d KB (%+d KB)", used / 1024, (used - heapBefore) / 1024);
+    }
+
+    /**
+     * Parse Hugging Face API response to extract detected objects
+     */
+    private DetectionPostProcessor.Candidates parseResponse(Reader responseReader) throws IOException {
+        DetectionPostProcessor.Candidates candidates = new DetectionPostProcessor.Candidates(32);
+        try (JsonReader reader = new JsonReader(responseReader)) {
+            StreamingJsonParser.readDetections(reader, postProcessor, candidates);
+        } catch (MalformedJsonException | IllegalStateException e) {
+            Log.e(TAG, "Error parsing API response: " + e.getMessage());
+            candidates.clear();
+        }
+        return candidates;
+    }
+
+    /**
+     * Open a pooled connection to the Hugging Face host ahead of the first detection
+     */
+    public void prewarmConnection() {
+        HttpClientProvider.prewarm(API_URL);
+    }
+
+    /**
+     * Abort the calls in flight and refuse new ones; the HTTP client is shared process-wide and stays open
+     */
+    @Override
+    public void close() {
+        closed = true;
+        cancelCalls();
+    }
+}
@@ -0,0 +1,385 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Managed executor for network requests.
+ * - Bounded worker pool and queue with a configurable back-pressure policy
+ * - Cancellation per request or per owner (an Activity/Fragment), propagated to the running task
+ * - Coalescing: a request with the same key as one already queued or running shares its result
+ * - Queue wait time and service time measured separately
+ * Listeners are called on the worker thread; cancelled requests are never reported.
+ */
+public class RequestScheduler {
+
+    public enum BackPressurePolicy {
+        /** Fail the new request when the queue is full */
+        REJECT_NEWEST,
+        /** Fail the oldest queued request to make room for the new one */
+        DROP_OLDEST
+    }
+
+    /**
+     * Lets a running task observe cancellation, e.g. to abort its HTTP call
+     */
+    public interface CancellationSignal {
+        boolean isCancelled();
+
+        /** The listener runs immediately if the request is already cancelled */
+        void setOnCancelListener(Runnable listener);
+    }
+
+    public interface Task<T> {
+        T execute(CancellationSignal signal) throws Exception;
+    }
+
+    public interface Listener<T> {
+        void onSuccess(T result);
+        void onFailure(Exception error);
+    }
+
+    /**
+     * Handle of one submitted request (one per caller, even when coalesced)
+     */
+    public final class Handle {
+        private final Job<?> job;
+        private final Object owner;
+        private final Listener<?> listener;
+        private volatile boolean cancelled;
+
+        private Handle(Job<?> job, Object owner, Listener<?> listener) {
+            this.job = job;
+            this.owner = owner;
+            this.listener = listener;
+        }
+
+        /**
+         * Stop reporting to this caller; the request itself is cancelled once no caller is left
+         */
+        public void cancel() {
+            cancelHandle(this);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final class Job<T> implements Runnable, CancellationSignal {
+        private final String key;
+        private final Task<T> task;
+        private final List<Handle> handles = new ArrayList<>();
+        private final long submittedAtNanos = System.nanoTime();
+        private volatile boolean cancelled;
+        private boolean started;
+        private Runnable onCancel;
+
+        private Job(String key, Task<T> task) {
+            this.key = key;
+            this.task = task;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void setOnCancelListener(Runnable listener) {
+            boolean runNow;
+            synchronized (lock) {
+                onCancel = listener;
+                runNow = cancelled;
+            }
+            if (runNow && listener != null) {
+                listener.run();
+            }
+        }
+
+        @Override
+        public void run() {
+            long startNanos = System.nanoTime();
+            synchronized (lock) {
+                if (cancelled) {
+                    return;
+                }
+                started = true;
+                totalQueueWaitNanos += startNanos - submittedAtNanos;
+                startedCount++;
+            }
+
+            T result = null;
+            Exception error = null;
+            try {
+                result = task.execute(this);
+            } catch (Exception e) {
+                error = e;
+            }
+
+            List<Handle> toNotify;
+            synchronized (lock) {
+                totalServiceNanos += System.nanoTime() - startNanos;
+                completedCount++;
+                detach(this);
+                toNotify = new ArrayList<>(handles);
+                for (Handle handle : toNotify) {
+                    forgetOwner(handle);
+                }
+            }
+            if (cancelled) {
+                return;
+            }
+            for (Handle handle : toNotify) {
+                if (!handle.isCancelled()) {
+                    deliver(handle, result, error);
+                }
+            }
+        }
+    }
+
+    private final Object lock = new Object();
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final BackPressurePolicy policy;
+    private final Map<String, Job<?>> inFlight = new HashMap<>();
+    private final Map<Object, List<Handle>> handlesByOwner = new HashMap<>();
+
+    // Metrics (guarded by lock)
+    private long submittedCount;
+    private long coalescedCount;
+    private long rejectedCount;
+    private long cancelledCount;
+    private long startedCount;
+    private long completedCount;
+    private long totalQueueWaitNanos;
+    private long totalServiceNanos;
+
+    public RequestScheduler(String name, int workers, int queueCapacity, BackPressurePolicy policy) {
+        this.name = name;
+        this.policy = policy;
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Submit a request
+     * @param key Coalescing key (requests with equal keys share one execution), or null
+     * @param owner Object whose cancelAll cancels this request (e.g. the Activity), or null
+     */
+    public <T> Handle submit(String key, Object owner, Task<T> task, Listener<T> listener) {
+        Job<T> job;
+        Handle handle;
+        synchronized (lock) {
+            submittedCount++;
+            if (key != null) {
+                @SuppressWarnings("unchecked")
+                Job<T> existing = (Job<T>) inFlight.get(key);
+                if (existing != null && !existing.cancelled) {
+                    coalescedCount++;
+                    handle = new Handle(existing, owner, listener);
+                    existing.handles.add(handle);
+                    rememberOwner(handle);
+                    return handle;
+                }
+            }
+
+            job = new Job<>(key, task);
+            handle = new Handle(job, owner, listener);
+            job.handles.add(handle);
+            if (key != null) {
+                inFlight.put(key, job);
+            }
+            rememberOwner(handle);
+        }
+
+        enqueue(job);
+        return handle;
+    }
+
+    /**
+     * Cancel every request submitted with the given owner
+     */
+    public void cancelAll(Object owner) {
+        List<Handle> handles;
+        synchronized (lock) {
+            List<Handle> owned = handlesByOwner.remove(owner);
+            if (owned == null) {
+                return;
+            }
+            handles = new ArrayList<>(owned);
+        }
+        for (Handle handle : handles) {
+            cancelHandle(handle);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public long getAverageQueueWaitMillis() {
+        synchronized (lock) {
+            return startedCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalQueueWaitNanos / startedCount);
+        }
+    }
+
+    public long getAverageServiceTimeMillis() {
+        synchronized (lock) {
+            return completedCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalServiceNanos / completedCount);
+        }
+    }
+
+    /**
+     * One-line summary for logging
+     */
+    public String describeMetrics() {
+        synchronized (lock) {
+            return name + ": submitted " + submittedCount + ", coalesced " + coalescedCount
+                    + ", rejected " + rejectedCount + ", cancelled " + cancelledCount
+                    + ", completed " + completedCount + ", queued " + executor.getQueue().size()
+                    + ", avg wait " + (startedCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalQueueWaitNanos / startedCount))
+                    + " ms, avg service " + (completedCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalServiceNanos / completedCount))
+                    + " ms";
+        }
+    }
+
+    private void enqueue(Job<?> job) {
+        while (true) {
+            try {
+                executor.execute(job);
+                return;
+            } catch (RejectedExecutionException e) {
+                if (executor.isShutdown()) {
+                    reject(job, "Request scheduler is shut down");
+                    return;
+                }
+                if (policy == BackPressurePolicy.REJECT_NEWEST) {
+                    reject(job, "Too many pending requests, please try again");
+                    return;
+                }
+                // DROP_OLDEST: fail the head of the queue and retry
+                Runnable oldest = executor.getQueue().poll();
+                if (oldest instanceof Job) {
+                    reject((Job<?>) oldest, "Request dropped because newer requests are waiting");
+                }
+            }
+        }
+    }
+
+    private void reject(Job<?> job, String reason) {
+        List<Handle> toNotify;
+        synchronized (lock) {
+            rejectedCount++;
+            job.cancelled = true;
+            detach(job);
+            toNotify = new ArrayList<>(job.handles);
+            for (Handle handle : toNotify) {
+                forgetOwner(handle);
+            }
+        }
+        RejectedExecutionException error = new RejectedExecutionException(reason);
+        for (Handle handle : toNotify) {
+            if (!handle.isCancelled()) {
+                deliver(handle, null, error);
+            }
+        }
+    }
+
+    private void cancelHandle(Handle handle) {
+        Runnable onCancel = null;
+        Job<?> job = handle.job;
+        synchronized (lock) {
+            if (handle.cancelled) {
+                return;
+            }
+            handle.cancelled = true;
+            forgetOwner(handle);
+
+            boolean anyActive = false;
+            for (Handle other : job.handles) {
+                if (!other.cancelled) {
+                    anyActive = true;
+                    break;
+                }
+            }
+            if (!anyActive && !job.cancelled) {
+                job.cancelled = true;
+                cancelledCount++;
+                detach(job);
+                onCancel = job.started ? job.onCancel : null;
+            }
+        }
+        if (job.cancelled) {
+            // Free the queue slot right away if the job has not started
+            executor.remove(job);
+        }
+        if (onCancel != null) {
+            onCancel.run();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void deliver(Handle handle, T result, Exception error) {
+        Listener<T> listener = (Listener<T>) handle.listener;
+        if (error != null) {
+            listener.onFailure(error);
+        } else {
+            listener.onSuccess(result);
+        }
+    }
+
+    private void detach(Job<?> job) {
+        if (job.key != null && inFlight.get(job.key) == job) {
+            inFlight.remove(job.key);
+        }
+    }
+
+    private void rememberOwner(Handle handle) {
+        if (handle.owner == null) {
+            return;
+        }
+        List<Handle> owned = handlesByOwner.get(handle.owner);
+        if (owned == null) {
+            owned = new ArrayList<>();
+            handlesByOwner.put(handle.owner, owned);
+        }
+        owned.add(handle);
+    }
+
+    private void forgetOwner(Handle handle) {
+        if (handle.owner == null) {
+            return;
+        }
+        List<Handle> owned = handlesByOwner.get(handle.owner);
+        if (owned != null) {
+            owned.remove(handle);
+            if (owned.isEmpty()) {
+                handlesByOwner.remove(handle.owner);
+            }
+        }
+    }
+}
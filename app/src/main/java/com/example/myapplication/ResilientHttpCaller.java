@@ -0,0 +1,297 @@
+package com.example.myapplication;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * Resilience layer shared by the AI services.
+ * Retries idempotent calls on network errors, 429 and 5xx with exponential backoff and full jitter,
+ * honors Retry-After, and guards each endpoint with a CircuitBreaker so that during a provider
+ * outage calls fail fast instead of hitting the failing endpoint on every user tap.
+ * Calls run synchronously, which the OkHttp dispatcher's per-host limit does not cover, so at
+ * most HttpClientProvider.MAX_REQUESTS_PER_HOST calls per host are open at once across all
+ * callers; a permit is held until the response body is closed.
+ * One instance per endpoint is shared process-wide through forEndpoint().
+ */
+public class ResilientHttpCaller {
+
+    /**
+     * Thrown without a network call while the endpoint's circuit breaker is open
+     */
+    public static class CircuitOpenException extends IOException {
+        private final long retryAfterMillis;
+
+        CircuitOpenException(String endpoint, long retryAfterMillis) {
+            super(endpoint + " is temporarily unavailable. Please try again in "
+                    + Math.max(1, TimeUnit.MILLISECONDS.toSeconds(retryAfterMillis + 999)) + " seconds.");
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        public long getRetryAfterMillis() {
+            return retryAfterMillis;
+        }
+    }
+
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final long DEFAULT_BASE_DELAY_MS = 500;
+    private static final long DEFAULT_MAX_DELAY_MS = 8_000;
+    // Longer Retry-After values are not worth blocking a user-facing request for
+    private static final long MAX_RETRY_AFTER_MS = 15_000;
+    private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    private static final long DEFAULT_OPEN_DURATION_MS = 30_000;
+    private static final long SLEEP_SLICE_MS = 100;
+
+    private static final Map<String, ResilientHttpCaller> registry = new LinkedHashMap<>();
+    private static final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    private final String endpoint;
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final CircuitBreaker circuitBreaker;
+    private final Random random = new Random();
+
+    private long retryCount;
+
+    /**
+     * Shared caller for an endpoint (created with default settings on first use)
+     */
+    public static synchronized ResilientHttpCaller forEndpoint(String endpoint) {
+        ResilientHttpCaller caller = registry.get(endpoint);
+        if (caller == null) {
+            caller = new ResilientHttpCaller(endpoint, DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MS,
+                    DEFAULT_MAX_DELAY_MS, new CircuitBreaker(endpoint, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION_MS));
+            registry.put(endpoint, caller);
+        }
+        return caller;
+    }
+
+    /**
+     * State of every registered endpoint, for monitoring
+     */
+    public static synchronized List<String> describeAll() {
+        List<String> states = new ArrayList<>();
+        for (ResilientHttpCaller caller : registry.values()) {
+            states.add(caller.describe());
+        }
+        return states;
+    }
+
+    public ResilientHttpCaller(String endpoint, int maxAttempts, long baseDelayMillis, long maxDelayMillis,
+                               CircuitBreaker circuitBreaker) {
+        this.endpoint = endpoint;
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Execute a request through the circuit breaker, retrying if it is idempotent.
+     * Returns the last response (possibly unsuccessful) once retries are exhausted; the caller
+     * must close it.
+     * @param callTimeoutMillis Timeout of each attempt as a whole, or 0 for the client's read timeouts only
+     * @param signal Cancellation of the owning request, or null. Cancels the current attempt
+     *               and stops further retries.
+     */
+    public Response execute(OkHttpClient client, Request request, boolean idempotent, long callTimeoutMillis,
+                            RequestScheduler.CancellationSignal signal) throws IOException {
+        int attempts = idempotent ? maxAttempts : 1;
+
+        for (int attempt = 1; ; attempt++) {
+            Semaphore permits = acquireHostPermit(request, signal);
+            if (!circuitBreaker.allowRequest()) {
+                permits.release();
+                throw new CircuitOpenException(endpoint, circuitBreaker.getRemainingOpenMillis());
+            }
+
+            Call call = client.newCall(request);
+            if (callTimeoutMillis > 0) {
+                call.timeout().timeout(callTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            if (signal != null) {
+                signal.setOnCancelListener(call::cancel);
+            }
+
+            Response response;
+            try {
+                response = releaseOnClose(call.execute(), permits);
+            } catch (IOException e) {
+                permits.release();
+                if (call.isCanceled()) {
+                    // Cancelled by the owner, not an endpoint failure
+                    circuitBreaker.recordIgnored();
+                    throw e;
+                }
+                circuitBreaker.recordFailure();
+                if (attempt >= attempts || isCancelled(signal)) {
+                    throw e;
+                }
+                backOff(attempt, -1, signal);
+                continue;
+            }
+
+            if (!isRetryable(response.code())) {
+                // Success, or a client error that says nothing about endpoint health
+                circuitBreaker.recordSuccess();
+                return response;
+            }
+
+            circuitBreaker.recordFailure();
+            if (attempt >= attempts || isCancelled(signal)) {
+                return response;
+            }
+            long retryAfter = parseRetryAfter(response.header("Retry-After"));
+            response.close();
+            if (retryAfter > MAX_RETRY_AFTER_MS) {
+                // Server asked for a longer pause than a user will wait: fail now, don't burn quota
+                throw new IOException(endpoint + " asked to retry after "
+                        + TimeUnit.MILLISECONDS.toSeconds(retryAfter) + " seconds");
+            }
+            backOff(attempt, retryAfter, signal);
+        }
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public synchronized long getRetryCount() {
+        return retryCount;
+    }
+
+    public String describe() {
+        return circuitBreaker.describe() + ", retries " + getRetryCount();
+    }
+
+    static boolean isRetryable(int code) {
+        return code == 429 || code == 500 || code == 502 || code == 503 || code == 504;
+    }
+
+    /**
+     * Delay before the next attempt: Retry-After if given, otherwise exponential backoff with full jitter
+     */
+    long computeDelay(int attempt, long retryAfterMillis) {
+        if (retryAfterMillis >= 0) {
+            return retryAfterMillis;
+        }
+        long cap = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+        return (long) (random.nextDouble() * cap);
+    }
+
+    /**
+     * Parse a Retry-After header (delta seconds or HTTP date)
+     * @return Delay in milliseconds, or -1 if absent or invalid
+     */
+    static long parseRetryAfter(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return -1;
+        }
+        value = value.trim();
+        try {
+            return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(value)));
+        } catch (NumberFormatException ignored) {
+            // Not delta-seconds, try the HTTP-date form
+        }
+        try {
+            SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+            Date date = format.parse(value);
+            return date == null ? -1 : Math.max(0, date.getTime() - System.currentTimeMillis());
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Wait for one of the request host's permits, giving up when the owner cancels
+     */
+    private static Semaphore acquireHostPermit(Request request, RequestScheduler.CancellationSignal signal)
+            throws IOException {
+        Semaphore permits = hostPermits.computeIfAbsent(request.url().host(),
+                host -> new Semaphore(HttpClientProvider.MAX_REQUESTS_PER_HOST, true));
+        try {
+            while (!permits.tryAcquire(SLEEP_SLICE_MS, TimeUnit.MILLISECONDS)) {
+                if (isCancelled(signal)) {
+                    throw new IOException("Canceled");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a connection slot", e);
+        }
+        return permits;
+    }
+
+    /**
+     * Same response, with the host permit released once its body is closed
+     */
+    private static Response releaseOnClose(Response response, Semaphore permits) {
+        ResponseBody body = response.body();
+        if (body == null) {
+            permits.release();
+            return response;
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        BufferedSource source = Okio.buffer(new ForwardingSource(body.source()) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (released.compareAndSet(false, true)) {
+                        permits.release();
+                    }
+                }
+            }
+        });
+        return response.newBuilder()
+                .body(ResponseBody.create(source, body.contentType(), body.contentLength()))
+                .build();
+    }
+
+    private void backOff(int attempt, long retryAfterMillis, RequestScheduler.CancellationSignal signal)
+            throws IOException {
+        synchronized (this) {
+            retryCount++;
+        }
+        long remaining = computeDelay(attempt, retryAfterMillis);
+        try {
+            while (remaining > 0) {
+                if (isCancelled(signal)) {
+                    throw new IOException("Canceled");
+                }
+                long slice = Math.min(remaining, SLEEP_SLICE_MS);
+                Thread.sleep(slice);
+                remaining -= slice;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to retry", e);
+        }
+    }
+
+    private static boolean isCancelled(RequestScheduler.CancellationSignal signal) {
+        return signal != null && signal.isCancelled();
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.myapplication;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded LRU cache of chatbot answers for repeated (FAQ-style) questions.
+ * Keys are the normalized message plus its context tags; entries expire after a TTL and
+ * are evicted by entry count and total size. An optional on-disk tier keeps answers
+ * across process restarts. Hit/miss counters are exposed for monitoring.
+ */
+public class ResponseCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 100;
+    private static final long DEFAULT_MAX_BYTES = 256 * 1024;
+    private static final long DEFAULT_TTL_MS = TimeUnit.HOURS.toMillis(24);
+    private static final int DEFAULT_MAX_DISK_ENTRIES = 500;
+    private static final String DISK_DIR_NAME = "gemini_responses";
+
+    private static ResponseCache sharedInstance;
+
+    private static class Entry {
+        final String value;
+        final long expiresAt;
+        final int sizeBytes;
+
+        Entry(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.sizeBytes = value.length() * 2;
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final File diskDir;
+    private final int maxDiskEntries;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+
+    private long hitCount;
+    private long diskHitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Process-wide cache shared by every chatbot screen
+     * @param cacheDir App cache directory for the disk tier, or null for memory only
+     */
+    public static synchronized ResponseCache shared(File cacheDir) {
+        if (sharedInstance == null) {
+            File diskDir = cacheDir != null ? new File(cacheDir, DISK_DIR_NAME) : null;
+            sharedInstance = new ResponseCache(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES, DEFAULT_TTL_MS,
+                diskDir, DEFAULT_MAX_DISK_ENTRIES);
+        }
+        return sharedInstance;
+    }
+
+    public ResponseCache(int maxEntries, long maxBytes, long ttlMillis, File diskDir, int maxDiskEntries) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+        this.diskDir = diskDir;
+        this.maxDiskEntries = maxDiskEntries;
+    }
+
+    /**
+     * Build a cache key from the raw user message and the context tags derived from it.
+     * Case, surrounding whitespace, repeated spaces and trailing punctuation are ignored.
+     */
+    public static String buildKey(String message, String contextTags) {
+        String normalized = message.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+        int end = normalized.length();
+        while (end > 0 && "?!.,;:".indexOf(normalized.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return normalized.substring(0, end).trim() + "|" + contextTags;
+    }
+
+    /**
+     * Look up the memory tier only (cheap enough for the main thread)
+     */
+    public synchronized String getFromMemory(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            removeEntry(key);
+            return null;
+        }
+        hitCount++;
+        return entry.value;
+    }
+
+    /**
+     * Look up the memory tier, then the disk tier (disk I/O, call off the main thread).
+     * Disk hits are promoted back into memory.
+     */
+    public String get(String key) {
+        String value = getFromMemory(key);
+        if (value != null) {
+            return value;
+        }
+
+        Entry diskEntry = readFromDisk(key);
+        synchronized (this) {
+            if (diskEntry == null) {
+                missCount++;
+                return null;
+            }
+            diskHitCount++;
+            putInMemory(key, diskEntry);
+            return diskEntry.value;
+        }
+    }
+
+    /**
+     * Store an answer in memory and, if enabled, on disk (disk I/O, call off the main thread)
+     */
+    public void put(String key, String value) {
+        Entry entry = new Entry(value, System.currentTimeMillis() + ttlMillis);
+        synchronized (this) {
+            putInMemory(key, entry);
+        }
+        writeToDisk(key, entry);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+        if (diskDir != null) {
+            File[] files = diskDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    public synchronized long getHitCount() { return hitCount; }
+    public synchronized long getDiskHitCount() { return diskHitCount; }
+    public synchronized long getMissCount() { return missCount; }
+    public synchronized long getEvictionCount() { return evictionCount; }
+    public synchronized int size() { return entries.size(); }
+
+    /**
+     * One-line summary for logging
+     */
+    public synchronized String describeStats() {
+        return "entries " + entries.size() + " (" + currentBytes + " bytes), hits " + hitCount
+            + " (disk " + diskHitCount + "), misses " + missCount + ", evictions " + evictionCount;
+    }
+
+    private void putInMemory(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            currentBytes -= previous.sizeBytes;
+        }
+        currentBytes += entry.sizeBytes;
+
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || currentBytes > maxBytes) && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            if (eldest.getValue() == entry) {
+                // Never evict the entry that was just added
+                continue;
+            }
+            currentBytes -= eldest.getValue().sizeBytes;
+            it.remove();
+            evictionCount++;
+        }
+    }
+
+    private void removeEntry(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            currentBytes -= removed.sizeBytes;
+        }
+    }
+
+    private Entry readFromDisk(String key) {
+        if (diskDir == null) {
+            return null;
+        }
+        File file = new File(diskDir, fileNameFor(key));
+        if (!file.exists()) {
+            return null;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] data = new byte[(int) file.length()];
+            int read = 0;
+            while (read < data.length) {
+                int n = in.read(data, read, data.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            String content = new String(data, 0, read, StandardCharsets.UTF_8);
+
+            // Format: expiry millis, newline, cached key, newline, answer
+            int firstBreak = content.indexOf('\n');
+            int secondBreak = firstBreak >= 0 ? content.indexOf('\n', firstBreak + 1) : -1;
+            if (secondBreak < 0) {
+                file.delete();
+                return null;
+            }
+            long expiresAt = Long.parseLong(content.substring(0, firstBreak));
+            String storedKey = content.substring(firstBreak + 1, secondBreak);
+            if (expiresAt <= System.currentTimeMillis() || !storedKey.equals(escapeKey(key))) {
+                file.delete();
+                return null;
+            }
+            return new Entry(content.substring(secondBreak + 1), expiresAt);
+        } catch (IOException | NumberFormatException e) {
+            file.delete();
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, Entry entry) {
+        if (diskDir == null || (!diskDir.exists() && !diskDir.mkdirs())) {
+            return;
+        }
+        File file = new File(diskDir, fileNameFor(key));
+        String content = entry.expiresAt + "\n" + escapeKey(key) + "\n" + entry.value;
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            file.delete();
+            return;
+        }
+        trimDisk();
+    }
+
+    /**
+     * Delete the oldest files once the disk tier holds too many entries
+     */
+    private void trimDisk() {
+        File[] files = diskDir.listFiles();
+        if (files == null || files.length <= maxDiskEntries) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i < files.length - maxDiskEntries; i++) {
+            files[i].delete();
+        }
+    }
+
+    private static String escapeKey(String key) {
+        return key.replace("\n", " ");
+    }
+
+    private static String fileNameFor(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format(Locale.ROOT, "%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+}
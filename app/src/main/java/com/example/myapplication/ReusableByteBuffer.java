@@ -0,0 +1,54 @@
+package com.example.myapplication;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * Growable byte buffer that is reset and reused between requests.
+ * Unlike ByteArrayOutputStream.toByteArray() it exposes its content without a copy,
+ * and can be uploaded directly as a RequestBody.
+ * Not thread-safe.
+ */
+public class ReusableByteBuffer extends ByteArrayOutputStream {
+
+    public ReusableByteBuffer(int initialCapacity) {
+        super(initialCapacity);
+    }
+
+    /**
+     * Backing array; only the first size() bytes are valid, until the next reset or write
+     */
+    public synchronized byte[] array() {
+        return buf;
+    }
+
+    /**
+     * Request body streaming the current content from the backing array.
+     * It can be written more than once (e.g. on retries) as long as the buffer is not
+     * modified while the request is in flight.
+     */
+    public RequestBody toRequestBody(MediaType contentType) {
+        final byte[] bytes = buf;
+        final int length = count;
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return contentType;
+            }
+
+            @Override
+            public long contentLength() {
+                return length;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                sink.write(bytes, 0, length);
+            }
+        };
+    }
+}
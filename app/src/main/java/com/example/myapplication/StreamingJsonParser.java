@@ -0,0 +1,206 @@
+package com.example.myapplication;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pull-parsers for the AI service responses.
+ * They read only the fields the app uses straight from the response stream and skip
+ * everything else, without building the body String or a Gson JsonObject/JsonArray tree.
+ */
+public final class StreamingJsonParser {
+
+    private StreamingJsonParser() {
+    }
+
+    /**
+     * Read the text of the first candidate of a Gemini generateContent response
+     * ({"candidates":[{"content":{"parts":[{"text":...}]}}]}), concatenating its parts.
+     * Other candidates and fields are skipped.
+     * @return The text, or null if the response has none
+     */
+    public static String readGeminiText(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        String text = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("candidates".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                if (reader.hasNext()) {
+                    text = readCandidateText(reader);
+                }
+                while (reader.hasNext()) {
+                    reader.skipValue();
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return text;
+    }
+
+    private static String readCandidateText(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        String text = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("content".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("parts".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        text = readPartsText(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return text;
+    }
+
+    private static String readPartsText(JsonReader reader) throws IOException {
+        String single = null;
+        StringBuilder multiple = null;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("text".equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                    String partText = reader.nextString();
+                    // Usually one part: avoid a StringBuilder copy in that case
+                    if (single == null && multiple == null) {
+                        single = partText;
+                    } else {
+                        if (multiple == null) {
+                            multiple = new StringBuilder(single);
+                        }
+                        multiple.append(partText);
+                    }
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+        return multiple != null ? multiple.toString() : single;
+    }
+
+    /**
+     * Read Hugging Face object-detection results with a score above minScore.
+     * Accepts the standard format ([{"score","label","box":{...}}, ...]) as well as
+     * results wrapped in a "predictions" array.
+     */
+    public static List<HuggingFaceYOLOService.DetectedObject> readDetections(JsonReader reader, float minScore)
+            throws IOException {
+        DetectionPostProcessor.Candidates candidates = new DetectionPostProcessor.Candidates(16);
+        readDetections(reader, null, minScore, candidates);
+
+        List<HuggingFaceYOLOService.DetectedObject> detections = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            detections.add(new HuggingFaceYOLOService.DetectedObject(candidates.getLabel(i), candidates.getScore(i),
+                    candidates.getX1(i), candidates.getY1(i), candidates.getX2(i), candidates.getY2(i)));
+        }
+        return detections;
+    }
+
+    /**
+     * Read Hugging Face object-detection results into primitive candidate arrays for post-processing,
+     * dropping those below the processor's lowest class threshold
+     */
+    public static void readDetections(JsonReader reader, DetectionPostProcessor processor,
+                                      DetectionPostProcessor.Candidates out) throws IOException {
+        readDetections(reader, processor, processor.getMinThreshold(), out);
+    }
+
+    private static void readDetections(JsonReader reader, DetectionPostProcessor processor, float minScore,
+                                       DetectionPostProcessor.Candidates out) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            readDetectionOrWrapper(reader, processor, minScore, out);
+        }
+        reader.endArray();
+    }
+
+    private static void readDetectionOrWrapper(JsonReader reader, DetectionPostProcessor processor, float minScore,
+                                               DetectionPostProcessor.Candidates out)
+            throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        String label = "Unknown";
+        float score = 0f;
+        boolean hasBox = false;
+        float xMin = 0f, yMin = 0f, xMax = 0f, yMax = 0f;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            JsonToken token = reader.peek();
+            if ("predictions".equals(name) && token == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    readDetectionOrWrapper(reader, processor, minScore, out);
+                }
+                reader.endArray();
+            } else if ("label".equals(name) && token == JsonToken.STRING) {
+                label = reader.nextString();
+            } else if ("score".equals(name) && token == JsonToken.NUMBER) {
+                score = (float) reader.nextDouble();
+            } else if ("box".equals(name) && token == JsonToken.BEGIN_OBJECT) {
+                hasBox = true;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String coordinate = reader.nextName();
+                    if (reader.peek() != JsonToken.NUMBER) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    float value = (float) reader.nextDouble();
+                    switch (coordinate) {
+                        case "xmin": xMin = value; break;
+                        case "ymin": yMin = value; break;
+                        case "xmax": xMax = value; break;
+                        case "ymax": yMax = value; break;
+                        default: break;
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        // Filter out low confidence detections
+        if (hasBox && score > minScore) {
+            int classId = processor != null ? processor.classIdOf(label) : -1;
+            out.add(xMin, yMin, xMax, yMax, score, classId, label);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.myapplication;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Tiled inference for images much larger than the model input.
+ * The image is split into overlapping tiles that are detected in parallel, so small objects
+ * keep enough pixels after the model's resize. Tile boxes are moved to image coordinates and
+ * merged with cross-tile NMS. Boxes cut by an inner tile edge are dropped: the overlap lets a
+ * neighbouring tile see those objects whole, and an additional full-image pass covers objects
+ * larger than the overlap.
+ */
+public class TiledDetector {
+
+    public static final int DEFAULT_TILE_SIZE = 1024;
+    public static final int DEFAULT_OVERLAP = 128;
+
+    // Boxes this close to an inner tile edge count as cut
+    private static final float EDGE_MARGIN = 2f;
+
+    /**
+     * Region of the image, in image pixels
+     */
+    public static final class Tile {
+        public final int x;
+        public final int y;
+        public final int width;
+        public final int height;
+
+        Tile(int x, int y, int width, int height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    public interface RegionDetector {
+        /**
+         * Detect objects in one tile; boxes are in tile coordinates. Called from several threads.
+         */
+        List<HuggingFaceYOLOService.DetectedObject> detect(Tile tile) throws IOException;
+    }
+
+    private final DetectionPostProcessor postProcessor;
+    private final int tileSize;
+    private final int overlap;
+    private final boolean includeFullImage;
+    private final ExecutorService executor;
+
+    /**
+     * @param overlap          Pixels shared by neighbouring tiles; objects up to this size are never cut everywhere
+     * @param includeFullImage Also detect on the whole image, for objects larger than the overlap
+     * @param executor         Runs the tiles; its size bounds the tiles in flight
+     */
+    public TiledDetector(DetectionPostProcessor postProcessor, int tileSize, int overlap,
+                         boolean includeFullImage, ExecutorService executor) {
+        if (tileSize <= 0 || overlap < 0 || overlap >= tileSize) {
+            throw new IllegalArgumentException("Need 0 <= overlap < tileSize, got " + overlap + " / " + tileSize);
+        }
+        this.postProcessor = postProcessor;
+        this.tileSize = tileSize;
+        this.overlap = overlap;
+        this.includeFullImage = includeFullImage;
+        this.executor = executor;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getOverlap() {
+        return overlap;
+    }
+
+    /**
+     * Detect objects in a width x height image, one detector call per tile
+     */
+    public List<HuggingFaceYOLOService.DetectedObject> detect(int width, int height, RegionDetector detector)
+            throws IOException {
+        List<Tile> tiles = planTiles(width, height, tileSize, overlap);
+        if (tiles.size() > 1 && includeFullImage) {
+            tiles.add(new Tile(0, 0, width, height));
+        }
+
+        List<Future<List<HuggingFaceYOLOService.DetectedObject>>> futures = new ArrayList<>(tiles.size());
+        for (Tile tile : tiles) {
+            futures.add(executor.submit(() -> detector.detect(tile)));
+        }
+
+        List<HuggingFaceYOLOService.DetectedObject> merged = new ArrayList<>();
+        try {
+            for (int t = 0; t < tiles.size(); t++) {
+                collect(tiles.get(t), futures.get(t).get(), width, height, merged);
+            }
+        } catch (ExecutionException e) {
+            cancel(futures);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Tile detection failed", cause);
+        } catch (InterruptedException e) {
+            cancel(futures);
+            Thread.currentThread().interrupt();
+            throw new IOException("Tiled detection interrupted", e);
+        }
+        return postProcessor.process(merged);
+    }
+
+    /**
+     * Move a tile's boxes to image coordinates, dropping those cut by an inner tile edge
+     */
+    private static void collect(Tile tile, List<HuggingFaceYOLOService.DetectedObject> detections,
+                                int width, int height, List<HuggingFaceYOLOService.DetectedObject> out) {
+        boolean innerLeft = tile.x > 0;
+        boolean innerTop = tile.y > 0;
+        boolean innerRight = tile.x + tile.width < width;
+        boolean innerBottom = tile.y + tile.height < height;
+        for (HuggingFaceYOLOService.DetectedObject d : detections) {
+            if ((innerLeft && d.getXMin() <= EDGE_MARGIN)
+                    || (innerTop && d.getYMin() <= EDGE_MARGIN)
+                    || (innerRight && d.getXMax() >= tile.width - EDGE_MARGIN)
+                    || (innerBottom && d.getYMax() >= tile.height - EDGE_MARGIN)) {
+                continue;
+            }
+            out.add(new HuggingFaceYOLOService.DetectedObject(d.getLabel(), d.getConfidence(),
+                    d.getXMin() + tile.x, d.getYMin() + tile.y, d.getXMax() + tile.x, d.getYMax() + tile.y));
+        }
+    }
+
+    private static void cancel(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Grid of tiles of at most tileSize covering the image, neighbours sharing at least overlap
+     * pixels. The last row and column are aligned to the image edge rather than running past it.
+     * An image that fits in one tile gets a single tile.
+     */
+    static List<Tile> planTiles(int width, int height, int tileSize, int overlap) {
+        int[] xs = starts(width, tileSize, overlap);
+        int[] ys = starts(height, tileSize, overlap);
+        List<Tile> tiles = new ArrayList<>(xs.length * ys.length + 1);
+        for (int y : ys) {
+            for (int x : xs) {
+                tiles.add(new Tile(x, y, Math.min(tileSize, width - x), Math.min(tileSize, height - y)));
+            }
+        }
+        return tiles;
+    }
+
+    private static int[] starts(int length, int tileSize, int overlap) {
+        if (length <= tileSize) {
+            return new int[]{0};
+        }
+        int stride = tileSize - overlap;
+        int count = (length - tileSize + stride - 1) / stride + 1;
+        int[] starts = new int[count];
+        for (int i = 0; i < count - 1; i++) {
+            starts[i] = i * stride;
+        }
+        starts[count - 1] = length - tileSize;
+        return starts;
+    }
+}
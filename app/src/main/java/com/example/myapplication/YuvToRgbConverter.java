@@ -0,0 +1,109 @@
+package com.example.myapplication;
+
+import android.graphics.Bitmap;
+
+import androidx.camera.core.ImageProxy;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts YUV_420_888 camera frames to upright ARGB bitmaps.
+ * Plane copies, the pixel array and the output bitmap are reused across frames, so a
+ * steady stream of same-sized frames allocates nothing. Not thread-safe: use it from
+ * the single analysis thread.
+ */
+public class YuvToRgbConverter {
+
+    private byte[] yBytes = new byte[0];
+    private byte[] uBytes = new byte[0];
+    private byte[] vBytes = new byte[0];
+    private int[] argb = new int[0];
+    private Bitmap bitmap;
+
+    /**
+     * Convert a frame, applying its rotation.
+     * The returned bitmap is overwritten by the next call.
+     */
+    public Bitmap convert(ImageProxy image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int rotation = image.getImageInfo().getRotationDegrees();
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+
+        yBytes = copyPlane(planes[0].getBuffer(), yBytes);
+        uBytes = copyPlane(planes[1].getBuffer(), uBytes);
+        vBytes = copyPlane(planes[2].getBuffer(), vBytes);
+        if (argb.length < width * height) {
+            argb = new int[width * height];
+        }
+
+        yuvToArgb(yBytes, uBytes, vBytes, width, height,
+                planes[0].getRowStride(), planes[0].getPixelStride(),
+                planes[1].getRowStride(), planes[1].getPixelStride(),
+                rotation, argb);
+
+        boolean sideways = rotation == 90 || rotation == 270;
+        int outWidth = sideways ? height : width;
+        int outHeight = sideways ? width : height;
+        if (bitmap == null || bitmap.getWidth() != outWidth || bitmap.getHeight() != outHeight) {
+            bitmap = Bitmap.createBitmap(outWidth, outHeight, Bitmap.Config.ARGB_8888);
+        }
+        bitmap.setPixels(argb, 0, outWidth, 0, 0, outWidth, outHeight);
+        return bitmap;
+    }
+
+    private static byte[] copyPlane(ByteBuffer buffer, byte[] reuse) {
+        buffer.rewind();
+        int size = buffer.remaining();
+        byte[] target = reuse.length >= size ? reuse : new byte[size];
+        buffer.get(target, 0, size);
+        return target;
+    }
+
+    /**
+     * YUV 4:2:0 (full range, BT.601) to ARGB with fixed-point math, rotating clockwise by
+     * rotationDegrees (0, 90, 180 or 270). The output is width x height, or height x width
+     * when rotated sideways.
+     */
+    static void yuvToArgb(byte[] y, byte[] u, byte[] v, int width, int height,
+                          int yRowStride, int yPixelStride, int uvRowStride, int uvPixelStride,
+                          int rotationDegrees, int[] out) {
+        int outWidth = (rotationDegrees == 90 || rotationDegrees == 270) ? height : width;
+
+        for (int row = 0; row < height; row++) {
+            int yRow = row * yRowStride;
+            int uvRow = (row >> 1) * uvRowStride;
+            for (int col = 0; col < width; col++) {
+                int luma = y[yRow + col * yPixelStride] & 0xFF;
+                int uvIndex = uvRow + (col >> 1) * uvPixelStride;
+                int cb = (u[uvIndex] & 0xFF) - 128;
+                int cr = (v[uvIndex] & 0xFF) - 128;
+
+                // Coefficients scaled by 1024
+                int r = luma + ((1436 * cr) >> 10);
+                int g = luma - ((352 * cb + 731 * cr) >> 10);
+                int b = luma + ((1815 * cb) >> 10);
+                r = r < 0 ? 0 : (r > 255 ? 255 : r);
+                g = g < 0 ? 0 : (g > 255 ? 255 : g);
+                b = b < 0 ? 0 : (b > 255 ? 255 : b);
+
+                int target;
+                switch (rotationDegrees) {
+                    case 90:
+                        target = col * outWidth + (height - 1 - row);
+                        break;
+                    case 180:
+                        target = (height - 1 - row) * outWidth + (width - 1 - col);
+                        break;
+                    case 270:
+                        target = (width - 1 - col) * outWidth + row;
+                        break;
+                    default:
+                        target = row * outWidth + col;
+                        break;
+                }
+                out[target] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+    }
+}
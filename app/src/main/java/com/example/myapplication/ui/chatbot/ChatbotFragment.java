@@ -46,6 +46,8 @@ public class ChatbotFragment extends Fragment {
         
         // Initialize Gemini Chat Service
         chatService = new GeminiChatService(requireContext());
+        // Abandon in-flight requests when the view is destroyed
+        chatService.bindToLifecycle(getViewLifecycleOwner());
         
         // Setup RecyclerView
         chatbotAdapter = new ChatbotAdapter();
@@ -71,6 +73,7 @@ public class ChatbotFragment extends Fragment {
         } else {
             // Show welcome message
             showWelcomeMessage();
+            chatService.prewarmConnection();
         }
         
         // Send button click listener
@@ -111,25 +114,49 @@ public class ChatbotFragment extends Fragment {
         // Disable send button while processing
         binding.buttonSend.setEnabled(false);
         
-        // Send message to AI
-        chatService.sendMessage(message, new GeminiChatService.ChatCallback() {
+        // Stream the AI response so the first words appear as soon as they are generated
+        final StringBuilder streamedText = new StringBuilder();
+        chatService.sendMessageStreaming(message, new GeminiChatService.StreamCallback() {
             @Override
-            public void onResponse(String response) {
-                requireActivity().runOnUiThread(() -> {
+            public void onPartial(String delta) {
+                if (binding == null) {
+                    return;
+                }
+                if (streamedText.length() == 0) {
+                    // Hide the spinner but keep send disabled until the stream completes
                     setLoading(false);
-                    binding.buttonSend.setEnabled(true);
+                    binding.buttonSend.setEnabled(false);
+                    streamedText.append(delta);
+                    showMessage(streamedText.toString(), false);
+                } else {
+                    streamedText.append(delta);
+                    updateLastMessage(streamedText.toString());
+                }
+            }
+            
+            @Override
+            public void onComplete(String response) {
+                if (binding == null) {
+                    return;
+                }
+                setLoading(false);
+                binding.buttonSend.setEnabled(true);
+                if (streamedText.length() == 0) {
                     showMessage(response, false);
-                });
+                } else {
+                    updateLastMessage(response);
+                }
             }
             
             @Override
             public void onError(String error) {
-                requireActivity().runOnUiThread(() -> {
-                    setLoading(false);
-                    binding.buttonSend.setEnabled(true);
-                    showMessage("Error: " + error, false);
-                    Toast.makeText(requireContext(), error, Toast.LENGTH_SHORT).show();
-                });
+                if (binding == null) {
+                    return;
+                }
+                setLoading(false);
+                binding.buttonSend.setEnabled(true);
+                showMessage("Error: " + error, false);
+                Toast.makeText(requireContext(), error, Toast.LENGTH_SHORT).show();
             }
         });
     }
@@ -140,6 +167,20 @@ public class ChatbotFragment extends Fragment {
         chatbotAdapter.setMessages(messages);
     }
     
+    /**
+     * Replace the text of the last message (used while a response is streaming in)
+     */
+    private void updateLastMessage(String message) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        int lastIndex = messages.size() - 1;
+        ChatbotMessage last = messages.get(lastIndex);
+        messages.set(lastIndex, new ChatbotMessage(message, last.isUser(), last.getTimestamp()));
+        chatbotAdapter.notifyItemChanged(lastIndex);
+        binding.recyclerViewMessages.scrollToPosition(lastIndex);
+    }
+    
     private void setLoading(boolean loading) {
         binding.progressBar.setVisibility(loading ? View.VISIBLE : View.GONE);
         binding.buttonSend.setEnabled(!loading);
@@ -0,0 +1,189 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Bounded concurrency, failure accounting, cancellation and label summary of BatchDetectionRunner
+ */
+public class BatchDetectionRunnerTest {
+
+    @Test
+    public void batch_respectsConcurrencyAndSummarizesLabels() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        BatchDetectionRunner<Integer> runner = new BatchDetectionRunner<>(item -> {
+            int now = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(now, Math::max);
+            Thread.sleep(5);
+            inFlight.decrementAndGet();
+            // Even images contain a person, every third one also a dog
+            List<HuggingFaceYOLOService.DetectedObject> detections = new ArrayList<>();
+            if (item % 2 == 0) {
+                detections.add(object("person"));
+            }
+            if (item % 3 == 0) {
+                detections.add(object("dog"));
+            }
+            return detections;
+        }, 3, Runnable::run);
+
+        Recorder recorder = new Recorder();
+        runner.start(range(60), recorder);
+        BatchDetectionRunner.Summary summary = recorder.await();
+
+        assertTrue(maxInFlight.get() <= 3);
+        assertEquals(60, recorder.progressCalls.get());
+        assertEquals(60, summary.succeeded);
+        assertEquals(0, summary.failed);
+        assertFalse(summary.cancelled);
+        assertEquals(30 + 20, summary.objectCount);
+        assertEquals("person", summary.labelCounts.get(0).getKey());
+        assertEquals(30, (int) summary.labelCounts.get(0).getValue());
+        assertEquals(20, (int) summary.labelCounts.get(1).getValue());
+        // 0..59: even or multiple of 3
+        assertEquals(40, summary.imagesWithObjects);
+        assertFalse(runner.isRunning());
+    }
+
+    @Test
+    public void failures_areCountedAndReported() throws Exception {
+        BatchDetectionRunner<Integer> runner = new BatchDetectionRunner<>(item -> {
+            if (item == 2) {
+                throw new IOException("timeout");
+            }
+            return Collections.singletonList(object("car"));
+        }, 2, Runnable::run);
+
+        Recorder recorder = new Recorder();
+        runner.start(range(5), recorder);
+        BatchDetectionRunner.Summary summary = recorder.await();
+
+        assertEquals(4, summary.succeeded);
+        assertEquals(1, summary.failed);
+        assertEquals("timeout", recorder.lastError.get());
+        assertEquals(0, summary.getSkipped());
+    }
+
+    @Test
+    public void cancel_stopsTakingNewImages() throws Exception {
+        AtomicReference<BatchDetectionRunner<Integer>> ref = new AtomicReference<>();
+        BatchDetectionRunner<Integer> runner = new BatchDetectionRunner<>(item -> {
+            if (item == 4) {
+                ref.get().cancel();
+            }
+            return Collections.emptyList();
+        }, 1, Runnable::run);
+        ref.set(runner);
+
+        Recorder recorder = new Recorder();
+        runner.start(range(100), recorder);
+        BatchDetectionRunner.Summary summary = recorder.await();
+
+        assertTrue(summary.cancelled);
+        assertEquals(5, summary.succeeded);
+        assertEquals(95, summary.getSkipped());
+    }
+
+    @Test
+    public void cancelWithCallback_runsAfterInFlightImagesFinish() throws Exception {
+        CountDownLatch detecting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger finishedDetections = new AtomicInteger();
+        BatchDetectionRunner<Integer> runner = new BatchDetectionRunner<>(item -> {
+            detecting.countDown();
+            release.await();
+            finishedDetections.incrementAndGet();
+            return Collections.emptyList();
+        }, 1, Runnable::run);
+
+        Recorder recorder = new Recorder();
+        runner.start(range(10), recorder);
+        assertTrue(detecting.await(10, TimeUnit.SECONDS));
+        AtomicInteger detectionsWhenStopped = new AtomicInteger(-1);
+        CountDownLatch stopped = new CountDownLatch(1);
+        runner.cancel(() -> {
+            detectionsWhenStopped.set(finishedDetections.get());
+            stopped.countDown();
+        });
+        assertEquals(1, stopped.getCount());
+
+        release.countDown();
+        assertTrue(stopped.await(10, TimeUnit.SECONDS));
+        assertEquals(1, detectionsWhenStopped.get());
+        assertTrue(recorder.await().cancelled);
+    }
+
+    @Test
+    public void cancelWithCallback_runsRightAwayWhenIdle() {
+        BatchDetectionRunner<Integer> runner = new BatchDetectionRunner<>(item -> Collections.emptyList(),
+                2, Runnable::run);
+        AtomicInteger calls = new AtomicInteger();
+
+        runner.cancel(calls::incrementAndGet);
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void emptyBatch_finishesImmediately() throws Exception {
+        BatchDetectionRunner<Integer> runner = new BatchDetectionRunner<>(item -> {
+            throw new AssertionError("no images");
+        }, 4, Runnable::run);
+
+        Recorder recorder = new Recorder();
+        runner.start(Collections.emptyList(), recorder);
+
+        assertEquals(0, recorder.await().total);
+    }
+
+    private static class Recorder implements BatchDetectionRunner.Listener<Integer> {
+        final AtomicInteger progressCalls = new AtomicInteger();
+        final AtomicReference<String> lastError = new AtomicReference<>();
+        final AtomicReference<BatchDetectionRunner.Summary> summary = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        @Override
+        public void onProgress(BatchDetectionRunner.Progress progress, Integer item,
+                               List<HuggingFaceYOLOService.DetectedObject> detections, String error) {
+            progressCalls.incrementAndGet();
+            if (error != null) {
+                lastError.set(error);
+            }
+        }
+
+        @Override
+        public void onFinished(BatchDetectionRunner.Summary result) {
+            summary.set(result);
+            done.countDown();
+        }
+
+        BatchDetectionRunner.Summary await() throws InterruptedException {
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            return summary.get();
+        }
+    }
+
+    private static List<Integer> range(int n) {
+        Integer[] items = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            items[i] = i;
+        }
+        return Arrays.asList(items);
+    }
+
+    private static HuggingFaceYOLOService.DetectedObject object(String label) {
+        return new HuggingFaceYOLOService.DetectedObject(label, 0.9f, 0, 0, 10, 10);
+    }
+}
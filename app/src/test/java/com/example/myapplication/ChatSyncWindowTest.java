@@ -0,0 +1,157 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Placement of late messages by ChatSyncWindow, replaying ChatMessagePager's paging against an
+ * in-memory server and store
+ */
+public class ChatSyncWindowTest {
+
+    private static final int PAGE_SIZE = 5;
+
+    // Key to serverTime of every message on the server
+    private final NavigableMap<String, Long> server = new TreeMap<>();
+    private final NavigableSet<String> store = new TreeSet<>();
+    private final List<String> shown = new ArrayList<>();
+
+    @Test
+    public void lateMessageInsideStoredRun_isStoredAndPagedInOrder() {
+        addToServer(1, 20);
+        // Stored on an earlier visit: k05..k20
+        store.addAll(server.subMap(key(5), true, key(20), true).keySet());
+        ChatSyncWindow window = openFromStore();
+
+        // Queued offline elsewhere between k07 and k08, received after k20
+        assertEquals(ChatSyncWindow.Placement.STORE, arrive(window, key(7) + "x", 21));
+        assertEquals(ChatSyncWindow.Placement.SHOW, arrive(window, key(21), 22));
+        loadAllOlder(window, true);
+
+        assertEquals(new ArrayList<>(server.keySet()), shownInKeyOrder());
+        assertEquals(server.size(), shown.size());
+        assertEquals(22, window.getNewestServerTime());
+    }
+
+    @Test
+    public void lateMessageBelowStoredRun_isLeftToTheNetworkPage() {
+        addToServer(1, 20);
+        store.addAll(server.subMap(key(12), true, key(20), true).keySet());
+        ChatSyncWindow window = openFromStore();
+
+        // Storing it would make the store skip k03..k11 on the way down
+        assertEquals(ChatSyncWindow.Placement.SKIP, arrive(window, key(2) + "x", 21));
+        assertFalse(store.contains(key(2) + "x"));
+        loadAllOlder(window, true);
+
+        assertEquals(new ArrayList<>(server.keySet()), shownInKeyOrder());
+        assertEquals(server.size(), shown.size());
+    }
+
+    @Test
+    public void lateMessageWithoutStore_isLeftToTheNetworkPage() {
+        addToServer(1, 20);
+        ChatSyncWindow window = new ChatSyncWindow(false);
+        List<String> newest = new ArrayList<>(server.descendingKeySet()).subList(0, PAGE_SIZE);
+        window.openFetched(newest.get(PAGE_SIZE - 1), newest.get(0), 20, true);
+        shown.addAll(newest);
+
+        assertEquals(ChatSyncWindow.Placement.SKIP, arrive(window, key(9) + "x", 21));
+        loadAllOlder(window, false);
+
+        assertEquals(new ArrayList<>(server.keySet()), shownInKeyOrder());
+        assertEquals(server.size(), shown.size());
+    }
+
+    @Test
+    public void reset_forgetsStoredRun() {
+        ChatSyncWindow window = new ChatSyncWindow(true);
+        window.openStored(key(10), key(20), key(1), 20);
+
+        window.reset();
+        window.openFetched(key(30), key(34), 34, true);
+
+        assertEquals(key(30), window.getOldestKey());
+        assertEquals(ChatSyncWindow.Placement.SKIP, window.placeNewer(key(5), 35));
+    }
+
+    /**
+     * What ChatMessagePager.start does when the store has messages
+     */
+    private ChatSyncWindow openFromStore() {
+        ChatSyncWindow window = new ChatSyncWindow(true);
+        List<String> page = new ArrayList<>(store.descendingSet()).subList(0, PAGE_SIZE);
+        long newestServerTime = 0;
+        for (String key : store) {
+            newestServerTime = Math.max(newestServerTime, server.get(key));
+        }
+        window.openStored(page.get(PAGE_SIZE - 1), page.get(0), store.first(), newestServerTime);
+        shown.addAll(page);
+        return window;
+    }
+
+    /**
+     * What ChatMessagePager.addNewer does with a message from the live tail
+     */
+    private ChatSyncWindow.Placement arrive(ChatSyncWindow window, String key, long serverTime) {
+        server.put(key, serverTime);
+        ChatSyncWindow.Placement placement = window.placeNewer(key, serverTime);
+        if (placement != ChatSyncWindow.Placement.SKIP) {
+            store.add(key);
+        }
+        if (placement == ChatSyncWindow.Placement.SHOW) {
+            shown.add(key);
+        }
+        return placement;
+    }
+
+    /**
+     * What ChatMessagePager.loadOlder does until nothing is left
+     */
+    private void loadAllOlder(ChatSyncWindow window, boolean storing) {
+        while (window.hasOlder()) {
+            String before = window.getOldestKey();
+            List<String> page = storing ? lastBefore(store, before) : new ArrayList<>();
+            if (!page.isEmpty()) {
+                window.olderStored(page.get(0));
+            } else {
+                page = lastBefore(server.navigableKeySet(), before);
+                if (storing) {
+                    store.addAll(page);
+                }
+                window.olderFetched(page.isEmpty() ? null : page.get(0), page.size() >= PAGE_SIZE);
+            }
+            shown.addAll(page);
+        }
+    }
+
+    private static List<String> lastBefore(NavigableSet<String> keys, String before) {
+        List<String> page = new ArrayList<>(keys.headSet(before, false).descendingSet());
+        page = new ArrayList<>(page.subList(0, Math.min(PAGE_SIZE, page.size())));
+        Collections.reverse(page);
+        return page;
+    }
+
+    private List<String> shownInKeyOrder() {
+        return new ArrayList<>(new TreeSet<>(shown));
+    }
+
+    private void addToServer(int from, int to) {
+        for (int i = from; i <= to; i++) {
+            server.put(key(i), (long) i);
+        }
+    }
+
+    private static String key(int i) {
+        return String.format("k%02d", i);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * State transitions of CircuitBreaker on a manual clock
+ */
+public class CircuitBreakerTest {
+
+    private static final long OPEN_MS = 1000;
+
+    private static class ManualClockBreaker extends CircuitBreaker {
+        long time = 10_000;
+
+        ManualClockBreaker(int failureThreshold) {
+            super("test", failureThreshold, OPEN_MS);
+        }
+
+        @Override
+        long now() {
+            return time;
+        }
+    }
+
+    @Test
+    public void opensAfterThresholdConsecutiveFailures() {
+        ManualClockBreaker breaker = new ManualClockBreaker(3);
+
+        failCall(breaker);
+        failCall(breaker);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        failCall(breaker);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(1, breaker.getRejectedCount());
+        assertEquals(OPEN_MS, breaker.getRemainingOpenMillis());
+    }
+
+    @Test
+    public void successResetsConsecutiveFailures() {
+        ManualClockBreaker breaker = new ManualClockBreaker(2);
+
+        failCall(breaker);
+        succeedCall(breaker);
+        failCall(breaker);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void halfOpen_letsOneTrialThroughAndClosesOnSuccess() {
+        ManualClockBreaker breaker = openBreaker();
+        breaker.time += OPEN_MS;
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+        breaker.recordSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void halfOpen_reopensOnTrialFailure() {
+        ManualClockBreaker breaker = openBreaker();
+        breaker.time += OPEN_MS;
+
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(OPEN_MS, breaker.getRemainingOpenMillis());
+        assertEquals(2, breaker.getOpenCount());
+    }
+
+    @Test
+    public void halfOpen_ignoredTrialFreesTheSlot() {
+        ManualClockBreaker breaker = openBreaker();
+        breaker.time += OPEN_MS;
+
+        assertTrue(breaker.allowRequest());
+        breaker.recordIgnored();
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    private static ManualClockBreaker openBreaker() {
+        ManualClockBreaker breaker = new ManualClockBreaker(1);
+        failCall(breaker);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+
+    private static void failCall(CircuitBreaker breaker) {
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+    }
+
+    private static void succeedCall(CircuitBreaker breaker) {
+        assertTrue(breaker.allowRequest());
+        breaker.recordSuccess();
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Byte-budget eviction and request assembly of ConversationHistory
+ */
+public class ConversationHistoryTest {
+
+    @Test
+    public void buildRequestJson_containsSystemPromptHistoryAndPendingTurn() {
+        ConversationHistory history = new ConversationHistory("Be \"brief\"");
+        history.addExchange(history.newUserTurn("hi"), "hello");
+
+        String json = history.buildRequestJson(history.newUserTurn("bye"));
+
+        assertEquals("{\"systemInstruction\":{\"parts\":[{\"text\":\"Be \\\"brief\\\"\"}]},\"contents\":["
+                + "{\"role\":\"user\",\"parts\":[{\"text\":\"hi\"}]},"
+                + "{\"role\":\"model\",\"parts\":[{\"text\":\"hello\"}]},"
+                + "{\"role\":\"user\",\"parts\":[{\"text\":\"bye\"}]}]}", json);
+        assertEquals(1, history.getRequestCount());
+        assertEquals(json.length(), history.getLastPayloadBytes());
+    }
+
+    @Test
+    public void addExchange_evictsOldestUserAndModelPairTogether() {
+        int exchangeBytes = exchangeBytes("question 1", "answer 1");
+        // Room for two exchanges, not three
+        ConversationHistory history = new ConversationHistory("system", exchangeBytes * 2 + exchangeBytes / 2);
+
+        history.addExchange(history.newUserTurn("question 1"), "answer 1");
+        history.addExchange(history.newUserTurn("question 2"), "answer 2");
+        history.addExchange(history.newUserTurn("question 3"), "answer 3");
+
+        List<ConversationHistory.Turn> turns = history.getTurns();
+        assertEquals(4, turns.size());
+        assertEquals("question 2", turns.get(0).getText());
+        assertEquals(ConversationHistory.ROLE_USER, turns.get(0).getRole());
+        assertEquals("answer 3", turns.get(3).getText());
+        assertEquals(2, history.getEvictedTurnCount());
+        assertTrue(history.getHistoryBytes() <= history.getBudgetBytes());
+    }
+
+    @Test
+    public void buildRequestJson_evictsToMakeRoomForPendingTurn() {
+        int exchangeBytes = exchangeBytes("question 1", "answer 1");
+        ConversationHistory history = new ConversationHistory("system", exchangeBytes + exchangeBytes / 2);
+        history.addExchange(history.newUserTurn("question 1"), "answer 1");
+
+        ConversationHistory.Turn pending = history.newUserTurn("a longer follow-up question");
+        String json = history.buildRequestJson(pending);
+
+        assertEquals(0, history.getTurnCount());
+        assertFalse(json.contains("question 1"));
+        assertTrue(json.contains("a longer follow-up question"));
+    }
+
+    @Test
+    public void historyBytes_countUtf8NotChars() {
+        ConversationHistory history = new ConversationHistory("system");
+        ConversationHistory.Turn ascii = history.newUserTurn("ab");
+        ConversationHistory.Turn accented = history.newUserTurn("\u00e9\u00e9");
+        ConversationHistory.Turn emoji = history.newUserTurn("\uD83D\uDE00");
+
+        assertEquals(ascii.getSizeBytes() + 2, accented.getSizeBytes());
+        assertEquals(ascii.getSizeBytes() + 2, emoji.getSizeBytes());
+        assertEquals(4, ConversationHistory.utf8Length("\uD83D\uDE00"));
+    }
+
+    @Test
+    public void clear_keepsSystemPromptAndResetsMetrics() {
+        ConversationHistory history = new ConversationHistory("system", 64);
+        history.addExchange(history.newUserTurn("a question that is long enough"), "and its long answer");
+        history.buildRequestJson(history.newUserTurn("next"));
+
+        history.clear();
+
+        assertEquals(0, history.getTurnCount());
+        assertEquals(0, history.getHistoryBytes());
+        assertEquals(0, history.getEvictedTurnCount());
+        assertEquals(0, history.getPeakPayloadBytes());
+        assertEquals("system", history.getSystemPrompt());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsNonPositiveBudget() {
+        new ConversationHistory("system", 0);
+    }
+
+    private static int exchangeBytes(String question, String answer) {
+        ConversationHistory probe = new ConversationHistory("system");
+        probe.addExchange(probe.newUserTurn(question), answer);
+        return probe.getHistoryBytes();
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.myapplication;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * dHash robustness and Hamming lookup, scopes, LRU and disk tier of DetectionCache
+ */
+public class DetectionCacheTest {
+
+    private static final long TTL = TimeUnit.HOURS.toMillis(1);
+    private static final String SCOPE = "AUTO/on-device";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void dHash_isStableUnderResizeAndBrightness() {
+        int[] image = scene(144, 128, 0);
+        long original = DetectionCache.dHash(image, 144, 128);
+
+        long resized = DetectionCache.dHash(downscale(image, 144, 128, 2), 72, 64);
+        long brighter = DetectionCache.dHash(scene(144, 128, 20), 144, 128);
+
+        assertTrue(DetectionCache.distance(original, resized) <= 2);
+        assertTrue(DetectionCache.distance(original, brighter) <= 2);
+    }
+
+    @Test
+    public void dHash_separatesDifferentImages() {
+        long a = DetectionCache.dHash(scene(144, 128, 0), 144, 128);
+        long b = DetectionCache.dHash(noise(144, 128, new Random(3)), 144, 128);
+
+        assertTrue(DetectionCache.distance(a, b) > 12);
+    }
+
+    @Test
+    public void get_returnsNearMatchScaledToQueriedSize() {
+        DetectionCache cache = new DetectionCache(8, 2, TTL, null, 0);
+        cache.put(SCOPE, 0b1011L, 400, 300, single("cat", 0.9f, 100, 30, 200, 150));
+
+        // Two bits away, same image at twice the resolution
+        List<HuggingFaceYOLOService.DetectedObject> hit = cache.get(SCOPE, 0b1101L, 800, 600);
+
+        assertNotNull(hit);
+        assertEquals("cat", hit.get(0).getLabel());
+        assertEquals(200f, hit.get(0).getXMin(), 0.01f);
+        assertEquals(300f, hit.get(0).getYMax(), 0.01f);
+        assertEquals(1, cache.getNearHitCount());
+    }
+
+    @Test
+    public void get_missesBeyondDistanceOrOnDifferentAspect() {
+        DetectionCache cache = new DetectionCache(8, 2, TTL, null, 0);
+        cache.put(SCOPE, 0L, 400, 300, single("cat", 0.9f, 0, 0, 10, 10));
+
+        assertNull(cache.get(SCOPE, 0b111L, 400, 300));
+        assertNull(cache.get(SCOPE, 0L, 300, 400));
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void get_missesResultsOfAnotherScope() {
+        DetectionCache cache = new DetectionCache(8, 2, TTL, null, 0);
+        cache.put(SCOPE, 42L, 400, 300, single("cat", 0.9f, 0, 0, 10, 10));
+
+        assertNull(cache.get("REMOTE/Hugging Face API", 42L, 400, 300));
+        assertNull(cache.get("ON_DEVICE/on-device", 42L, 400, 300));
+        assertNotNull(cache.get(SCOPE, 42L, 400, 300));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsed() {
+        DetectionCache cache = new DetectionCache(2, 0, TTL, null, 0);
+        cache.put(SCOPE, 1L, 100, 100, Collections.emptyList());
+        cache.put(SCOPE, 2L, 100, 100, Collections.emptyList());
+        assertNotNull(cache.get(SCOPE, 1L, 100, 100));
+
+        cache.put(SCOPE, 3L, 100, 100, Collections.emptyList());
+
+        assertNotNull(cache.get(SCOPE, 1L, 100, 100));
+        assertNull(cache.get(SCOPE, 2L, 100, 100));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void diskTier_survivesNewInstance() throws Exception {
+        File dir = folder.newFolder("detections");
+        long hash = 0xF00DCAFE12345678L;
+        new DetectionCache(4, 2, TTL, dir, 10)
+                .put(SCOPE, hash, 640, 480, single("dog\tbig", 0.75f, 64, 48, 320, 240));
+
+        DetectionCache restarted = new DetectionCache(4, 2, TTL, dir, 10);
+        List<HuggingFaceYOLOService.DetectedObject> hit = restarted.get(SCOPE, hash ^ 1L, 640, 480);
+
+        assertNotNull(hit);
+        assertEquals("dog big", hit.get(0).getLabel());
+        assertEquals(0.75f, hit.get(0).getConfidence(), 1e-6f);
+        assertEquals(320f, hit.get(0).getXMax(), 0.01f);
+        assertEquals(1, restarted.getDiskHitCount());
+    }
+
+    @Test
+    public void diskTier_isTrimmedToMaxEntries() throws Exception {
+        File dir = folder.newFolder("trimmed");
+        DetectionCache cache = new DetectionCache(1, 0, TTL, dir, 3);
+        for (long h = 1; h <= 6; h++) {
+            cache.put(SCOPE, h << 20, 100, 100, Collections.emptyList());
+        }
+        assertTrue(dir.listFiles().length <= 3);
+    }
+
+    private static List<HuggingFaceYOLOService.DetectedObject> single(String label, float score,
+                                                                      float x1, float y1, float x2, float y2) {
+        return Collections.singletonList(new HuggingFaceYOLOService.DetectedObject(label, score, x1, y1, x2, y2));
+    }
+
+    /**
+     * Smooth synthetic scene: gradients and a bright square
+     */
+    private static int[] scene(int width, int height, int brightness) {
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int v = (int) (96 + 80 * Math.sin(x / 11.0) * Math.cos(y / 17.0));
+                if (x > width / 3 && x < width / 2 && y > height / 4 && y < height / 2) {
+                    v = 220;
+                }
+                v = Math.min(255, v + brightness);
+                pixels[y * width + x] = 0xFF000000 | (v << 16) | (v << 8) | v;
+            }
+        }
+        return pixels;
+    }
+
+    private static int[] noise(int width, int height, Random random) {
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            int v = random.nextInt(256);
+            pixels[i] = 0xFF000000 | (v << 16) | (v << 8) | v;
+        }
+        return pixels;
+    }
+
+    private static int[] downscale(int[] pixels, int width, int height, int factor) {
+        int w = width / factor;
+        int h = height / factor;
+        int[] out = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                out[y * w + x] = pixels[(y * factor) * width + x * factor];
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Thresholds, class-aware NMS and top-K of DetectionPostProcessor, checked against a
+ * straightforward object-per-box NMS, and its allocations at 1k and 10k candidates.
+ */
+public class DetectionPostProcessorTest {
+
+    private static final String[] CLASSES = {"person", "car", "dog"};
+    private static final int PERSON = 0;
+    private static final int CAR = 1;
+    private static final int DOG = 2;
+
+    private final DetectionPostProcessor processor = new DetectionPostProcessor.Builder(CLASSES).build();
+
+    @Test
+    public void process_suppressesOverlappingBoxesOfSameClass() {
+        DetectionPostProcessor.Candidates c = new DetectionPostProcessor.Candidates(4);
+        c.add(10, 10, 110, 110, 0.9f, PERSON);
+        c.add(12, 12, 112, 112, 0.8f, PERSON);
+        c.add(300, 300, 400, 400, 0.7f, PERSON);
+
+        assertEquals(2, processor.process(c));
+        assertEquals(0, c.getKept(0));
+        assertEquals(2, c.getKept(1));
+    }
+
+    @Test
+    public void process_keepsOverlappingBoxesOfDifferentClasses() {
+        DetectionPostProcessor.Candidates c = new DetectionPostProcessor.Candidates(4);
+        c.add(10, 10, 110, 110, 0.9f, PERSON);
+        c.add(12, 12, 112, 112, 0.8f, DOG);
+
+        assertEquals(2, processor.process(c));
+
+        DetectionPostProcessor agnostic = new DetectionPostProcessor.Builder(CLASSES).classAgnostic(true).build();
+        assertEquals(1, agnostic.process(c));
+    }
+
+    @Test
+    public void process_appliesPerClassThresholds() {
+        DetectionPostProcessor strictCars = new DetectionPostProcessor.Builder(CLASSES)
+                .scoreThreshold(0.3f)
+                .classThreshold("car", 0.6f)
+                .classThreshold("dog", 0.2f)
+                .build();
+        assertEquals(0.2f, strictCars.getMinThreshold(), 0f);
+
+        DetectionPostProcessor.Candidates c = new DetectionPostProcessor.Candidates(4);
+        c.add(0, 0, 10, 10, 0.5f, CAR);
+        c.add(100, 0, 110, 10, 0.5f, PERSON);
+        c.add(200, 0, 210, 10, 0.25f, DOG);
+        c.add(300, 0, 310, 10, 0.25f, PERSON);
+
+        assertEquals(2, strictCars.process(c));
+        assertEquals(1, c.getKept(0));
+        assertEquals(2, c.getKept(1));
+    }
+
+    @Test
+    public void process_limitsToTopKInScoreOrder() {
+        DetectionPostProcessor topThree = new DetectionPostProcessor.Builder(CLASSES).maxDetections(3).build();
+        DetectionPostProcessor.Candidates c = new DetectionPostProcessor.Candidates(4);
+        for (int i = 0; i < 10; i++) {
+            c.add(i * 100, 0, i * 100 + 50, 50, 0.4f + i * 0.05f, PERSON);
+        }
+
+        assertEquals(3, topThree.process(c));
+        assertEquals(9, c.getKept(0));
+        assertEquals(8, c.getKept(1));
+        assertEquals(7, c.getKept(2));
+    }
+
+    @Test
+    public void process_listKeepsUnknownLabelsAndMapsBack() {
+        List<HuggingFaceYOLOService.DetectedObject> raw = new ArrayList<>();
+        raw.add(new HuggingFaceYOLOService.DetectedObject("unicorn", 0.9f, 0, 0, 100, 100));
+        raw.add(new HuggingFaceYOLOService.DetectedObject("unicorn", 0.5f, 5, 5, 100, 100));
+        raw.add(new HuggingFaceYOLOService.DetectedObject("dog", 0.6f, 5, 5, 100, 100));
+
+        List<HuggingFaceYOLOService.DetectedObject> result = processor.process(raw);
+
+        assertEquals(2, result.size());
+        assertEquals("unicorn", result.get(0).getLabel());
+        assertEquals("dog", result.get(1).getLabel());
+    }
+
+    @Test
+    public void process_differentUnknownLabelsDoNotSuppressEachOther() {
+        List<HuggingFaceYOLOService.DetectedObject> raw = new ArrayList<>();
+        raw.add(new HuggingFaceYOLOService.DetectedObject("unicorn", 0.9f, 0, 0, 100, 100));
+        raw.add(new HuggingFaceYOLOService.DetectedObject("pegasus", 0.8f, 5, 5, 100, 100));
+        raw.add(new HuggingFaceYOLOService.DetectedObject("pegasus", 0.7f, 5, 5, 100, 100));
+
+        List<HuggingFaceYOLOService.DetectedObject> result = processor.process(raw);
+
+        assertEquals(2, result.size());
+        assertEquals("unicorn", result.get(0).getLabel());
+        assertEquals("pegasus", result.get(1).getLabel());
+        assertEquals(0.8f, result.get(1).getConfidence(), 0f);
+    }
+
+    @Test
+    public void process_growsBeyondInitialCapacity() {
+        DetectionPostProcessor.Candidates c = new DetectionPostProcessor.Candidates(1);
+        for (int i = 0; i < 100; i++) {
+            c.add(i * 20, 0, i * 20 + 10, 10, 0.5f, CAR);
+        }
+        assertEquals(100, c.size());
+        assertEquals(100, processor.process(c));
+    }
+
+    @Test
+    public void process_matchesReferenceImplementation() {
+        DetectionPostProcessor.Candidates c = randomCandidates(2_000, new Random(7));
+        List<float[]> expected = referenceNms(toArrays(c), DetectionPostProcessor.DEFAULT_SCORE_THRESHOLD,
+                DetectionPostProcessor.DEFAULT_IOU_THRESHOLD, DetectionPostProcessor.DEFAULT_MAX_DETECTIONS);
+
+        int kept = processor.process(c);
+
+        assertEquals(expected.size(), kept);
+        for (int m = 0; m < kept; m++) {
+            assertEquals(expected.get(m)[4], c.getScore(c.getKept(m)), 0f);
+            assertEquals(expected.get(m)[0], c.getX1(c.getKept(m)), 0f);
+        }
+    }
+
+    @Test
+    public void process_allocatesNothingPerBoxAt1kAnd10kCandidates() {
+        for (int count : new int[]{1_000, 10_000}) {
+            DetectionPostProcessor.Candidates c = randomCandidates(count, new Random(count));
+            // Warm up, so class loading and JIT do not count
+            for (int i = 0; i < 50; i++) {
+                processor.process(c);
+            }
+
+            int rounds = 200;
+            long allocatedBefore = allocatedBytes();
+            for (int i = 0; i < rounds; i++) {
+                processor.process(c);
+            }
+            long bytesPerRun = (allocatedBytes() - allocatedBefore) / rounds;
+
+            assertTrue("primitive path should not allocate per box", bytesPerRun < count);
+        }
+    }
+
+    private static DetectionPostProcessor.Candidates randomCandidates(int count, Random random) {
+        DetectionPostProcessor.Candidates c = new DetectionPostProcessor.Candidates(count);
+        for (int i = 0; i < count; i++) {
+            // Clusters of boxes around a few objects, like raw anchors
+            float cx = 40 + random.nextInt(12) * 50 + random.nextFloat() * 10;
+            float cy = 40 + random.nextInt(12) * 50 + random.nextFloat() * 10;
+            float w = 30 + random.nextFloat() * 20;
+            float h = 30 + random.nextFloat() * 20;
+            c.add(cx - w / 2, cy - h / 2, cx + w / 2, cy + h / 2, random.nextFloat(), random.nextInt(CLASSES.length));
+        }
+        return c;
+    }
+
+    private static List<float[]> toArrays(DetectionPostProcessor.Candidates c) {
+        List<float[]> boxes = new ArrayList<>(c.size());
+        for (int i = 0; i < c.size(); i++) {
+            boxes.add(new float[]{c.getX1(i), c.getY1(i), c.getX2(i), c.getY2(i), c.getScore(i), c.getClassId(i)});
+        }
+        return boxes;
+    }
+
+    /**
+     * Straightforward NMS with an object per box, as a reference
+     */
+    private static List<float[]> referenceNms(List<float[]> boxes, float scoreThreshold, float iouThreshold, int topK) {
+        List<float[]> candidates = new ArrayList<>();
+        for (float[] box : boxes) {
+            if (box[4] > scoreThreshold) {
+                candidates.add(box);
+            }
+        }
+        candidates.sort((a, b) -> Float.compare(b[4], a[4]));
+        List<float[]> kept = new ArrayList<>();
+        for (float[] box : candidates) {
+            boolean suppressed = false;
+            for (float[] other : kept) {
+                if (other[5] == box[5] && iou(box, other) > iouThreshold) {
+                    suppressed = true;
+                    break;
+                }
+            }
+            if (!suppressed) {
+                kept.add(box);
+                if (kept.size() >= topK) {
+                    break;
+                }
+            }
+        }
+        return kept;
+    }
+
+    private static float iou(float[] a, float[] b) {
+        float w = Math.min(a[2], b[2]) - Math.max(a[0], b[0]);
+        float h = Math.min(a[3], b[3]) - Math.max(a[1], b[1]);
+        if (w <= 0 || h <= 0) {
+            return 0f;
+        }
+        float intersection = w * h;
+        return intersection / ((a[2] - a[0]) * (a[3] - a[1]) + (b[2] - b[0]) * (b[3] - b[1]) - intersection);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
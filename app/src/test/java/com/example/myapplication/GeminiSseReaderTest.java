@@ -0,0 +1,132 @@
+package com.example.myapplication;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.BufferedSource;
+import okio.Okio;
+
+import static org.junit.Assert.*;
+
+/**
+ * Streams a Gemini-style SSE response from a local stand-in server, and checks that a chunk
+ * is delivered as soon as its event arrives rather than when the stream ends.
+ */
+public class GeminiSseReaderTest {
+
+    private static final int CHUNK_COUNT = 20;
+
+    private MockWebServer server;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        client = new OkHttpClient.Builder()
+                .readTimeout(10, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void read_deliversEachChunkOfThrottledStream() throws Exception {
+        StringBuilder body = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            String word = "word" + i + " ";
+            expected.append(word);
+            body.append(sseEvent(word));
+        }
+        int eventSize = sseEvent("word10 ").length();
+
+        // Roughly one event every 50 ms, about one second for the whole answer
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(body.toString())
+                .throttleBody(eventSize, 50, TimeUnit.MILLISECONDS));
+
+        Request request = new Request.Builder().url(server.url("/stream")).build();
+        List<String> chunks = new ArrayList<>();
+        String fullText;
+        try (Response response = client.newCall(request).execute()) {
+            fullText = new GeminiSseReader().read(response.body().source(), chunks::add);
+        }
+
+        assertEquals(expected.toString(), fullText);
+        assertEquals(CHUNK_COUNT, chunks.size());
+        assertEquals("word0 ", chunks.get(0));
+    }
+
+    @Test
+    public void read_deliversChunkBeforeRestOfStreamIsWritten() throws Exception {
+        PipedInputStream in = new PipedInputStream(64 * 1024);
+        OutputStream out = new PipedOutputStream(in);
+        CountDownLatch firstChunk = new CountDownLatch(1);
+        boolean[] deliveredEarly = {false};
+
+        // Writes the rest only once the first chunk was delivered, or gives up after a while
+        Thread writer = new Thread(() -> {
+            try {
+                out.write(sseEvent("first ").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                deliveredEarly[0] = firstChunk.await(5, TimeUnit.SECONDS);
+                out.write(sseEvent("second").getBytes(StandardCharsets.UTF_8));
+                out.close();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        writer.start();
+
+        String fullText;
+        try (BufferedSource source = Okio.buffer(Okio.source(in))) {
+            fullText = new GeminiSseReader().read(source, delta -> firstChunk.countDown());
+        }
+        writer.join();
+
+        assertTrue("first chunk should be delivered before the stream ends", deliveredEarly[0]);
+        assertEquals("first second", fullText);
+    }
+
+    @Test
+    public void read_handlesMultiPartChunksAndMissingTrailingBlankLine() throws Exception {
+        String body = ": keep-alive comment\n\n"
+                + "data: {\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"Hello\"},{\"text\":\", \"}]}}]}\n\n"
+                + "data: {\"candidates\":[{\"finishReason\":\"STOP\"}]}\n\n"
+                + "data: {\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"world\"}]}}]}";
+        server.enqueue(new MockResponse().setBody(body));
+
+        Request request = new Request.Builder().url(server.url("/stream")).build();
+        List<String> chunks = new ArrayList<>();
+        try (Response response = client.newCall(request).execute()) {
+            String fullText = new GeminiSseReader().read(response.body().source(), chunks::add);
+            assertEquals("Hello, world", fullText);
+        }
+        assertEquals(2, chunks.size());
+    }
+
+    private static String sseEvent(String text) {
+        return "data: {\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"" + text
+                + "\"}],\"role\":\"model\"}}]}\n\n";
+    }
+}
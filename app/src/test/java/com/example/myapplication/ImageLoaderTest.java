@@ -0,0 +1,48 @@
+package com.example.myapplication;
+
+import android.media.ExifInterface;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sampling and sizing math of ImageLoader
+ */
+public class ImageLoaderTest {
+
+    @Test
+    public void inSampleSize_keepsDecodeAtLeastDisplaySize() {
+        // 12 MP photo on a 1080x2400 screen
+        int sample = ImageLoader.calculateInSampleSize(4000, 3000, 2048);
+
+        assertEquals(1, sample);
+        assertEquals(2, ImageLoader.calculateInSampleSize(4000, 3000, 1600));
+        assertEquals(4, ImageLoader.calculateInSampleSize(8000, 6000, 1080));
+        assertTrue(8000 / ImageLoader.calculateInSampleSize(8000, 6000, 1080) >= 1080);
+    }
+
+    @Test
+    public void inSampleSize_isOneForSmallImages() {
+        assertEquals(1, ImageLoader.calculateInSampleSize(320, 240, 640));
+        assertEquals(1, ImageLoader.calculateInSampleSize(640, 640, 640));
+    }
+
+    @Test
+    public void fitScale_fitsLongerSideAndNeverUpscales() {
+        assertEquals(0.16f, ImageLoader.fitScale(4000, 3000, 640), 1e-6f);
+        assertEquals(0.16f, ImageLoader.fitScale(3000, 4000, 640), 1e-6f);
+        assertEquals(1f, ImageLoader.fitScale(320, 240, 640), 0f);
+    }
+
+    @Test
+    public void exifRotation_coversRotatedAndMirroredOrientations() {
+        assertEquals(0, ImageLoader.exifRotationDegrees(ExifInterface.ORIENTATION_UNDEFINED));
+        assertEquals(0, ImageLoader.exifRotationDegrees(ExifInterface.ORIENTATION_FLIP_HORIZONTAL));
+        assertEquals(90, ImageLoader.exifRotationDegrees(ExifInterface.ORIENTATION_ROTATE_90));
+        assertEquals(90, ImageLoader.exifRotationDegrees(ExifInterface.ORIENTATION_TRANSPOSE));
+        assertEquals(180, ImageLoader.exifRotationDegrees(ExifInterface.ORIENTATION_ROTATE_180));
+        assertEquals(270, ImageLoader.exifRotationDegrees(ExifInterface.ORIENTATION_TRANSVERSE));
+        assertEquals(270, ImageLoader.exifRotationDegrees(ExifInterface.ORIENTATION_ROTATE_270));
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.myapplication;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks KeywordClassifier against the chained String.contains implementation it replaced,
+ * on short and very long inputs and on small and large keyword tables. The timing benchmark
+ * against that implementation is ignored by default.
+ */
+public class KeywordClassifierTest {
+
+    private static final String[][] GROUPS = {
+            {"Product Catalog Query", "product", "item", "buy", "purchase", "price", "cost"},
+            {"App Navigation Query", "navigate", "go to", "screen", "menu", "how to", "where"},
+            {"Chat Feature Query", "chat", "message", "talk", "contact"},
+            {"Authentication Query", "login", "signup", "register", "account", "sign in", "sign out"},
+            {"App Features Query", "feature", "function", "what can", "help"},
+    };
+
+    private static KeywordClassifier classifier(KeywordClassifier.Boundary boundary, String[][] groups) {
+        KeywordClassifier.Builder builder = new KeywordClassifier.Builder().boundary(boundary);
+        for (String[] group : groups) {
+            builder.addGroup(group[0], Arrays.copyOfRange(group, 1, group.length));
+        }
+        return builder.build();
+    }
+
+    /** The original processMessage logic, generalized to any table */
+    private static List<String> legacyClassify(String message, String[][] groups) {
+        String lowerMessage = message.toLowerCase();
+        List<String> tags = new ArrayList<>();
+        for (String[] group : groups) {
+            for (int k = 1; k < group.length; k++) {
+                if (lowerMessage.contains(group[k])) {
+                    tags.add(group[0]);
+                    break;
+                }
+            }
+        }
+        return tags;
+    }
+
+    @Test
+    public void noBoundary_matchesLegacyContains() {
+        KeywordClassifier classifier = classifier(KeywordClassifier.Boundary.NONE, GROUPS);
+        Random random = new Random(42);
+        String[] words = {"what", "is", "the", "PRICE", "of", "echo", "dot", "how", "to", "go", "to",
+                "chat", "somewhere", "helpful", "sign", "in", "menus", "register", "xyz", "buying"};
+        for (int n = 0; n < 2000; n++) {
+            StringBuilder message = new StringBuilder();
+            int length = 1 + random.nextInt(12);
+            for (int w = 0; w < length; w++) {
+                message.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            String text = message.toString();
+            assertEquals(text, legacyClassify(text, GROUPS), classifier.classify(text));
+        }
+    }
+
+    @Test
+    public void wordStart_ignoresKeywordsInsideWords() {
+        KeywordClassifier classifier = classifier(KeywordClassifier.Boundary.WORD_START, GROUPS);
+
+        assertEquals(Collections.singletonList("App Features Query"),
+                classifier.classify("This was helpful"));
+        assertEquals(Collections.emptyList(), classifier.classify("Somewhere over the rainbow"));
+        assertEquals(Arrays.asList("Product Catalog Query", "App Navigation Query"),
+                classifier.classify("Where can I see the PRICE of items?"));
+        assertEquals(Collections.singletonList("Authentication Query"),
+                classifier.classify("how do i\tsign\nout"));
+    }
+
+    @Test
+    public void wholeWord_requiresBothBoundaries() {
+        KeywordClassifier classifier = classifier(KeywordClassifier.Boundary.WHOLE_WORD, GROUPS);
+
+        assertEquals(Collections.emptyList(), classifier.classify("items and menus"));
+        assertEquals(Collections.singletonList("Product Catalog Query"), classifier.classify("one item, please"));
+    }
+
+    @Test
+    public void overlappingKeywordsAreAllFound() {
+        KeywordClassifier classifier = new KeywordClassifier.Builder()
+                .boundary(KeywordClassifier.Boundary.NONE)
+                .addGroup("A", "he")
+                .addGroup("B", "she")
+                .addGroup("C", "hers")
+                .build();
+        assertEquals(Arrays.asList("A", "B", "C"), classifier.classify("ushers"));
+    }
+
+    @Test
+    public void classify_matchesLegacyOnLongTextAndLargeTable() {
+        String shortText = "How do I chat with another user and what is the price of Echo Dot?";
+        String longText = longText(200_000);
+
+        String[][] largeTable = largeTable(1000);
+        KeywordClassifier small = classifier(KeywordClassifier.Boundary.NONE, GROUPS);
+        KeywordClassifier large = classifier(KeywordClassifier.Boundary.NONE, largeTable);
+
+        assertEquals(legacyClassify(shortText, GROUPS), small.classify(shortText));
+        assertEquals(legacyClassify(longText, GROUPS), small.classify(longText));
+        assertEquals(legacyClassify(shortText, largeTable), large.classify(shortText));
+        assertEquals(legacyClassify(longText, largeTable), large.classify(longText));
+        assertTrue(large.classify(longText).contains("Group 0"));
+    }
+
+    @Test
+    public void countSteps_scalesWithTextLengthNotTableSize() {
+        KeywordClassifier small = classifier(KeywordClassifier.Boundary.NONE, GROUPS);
+        KeywordClassifier large = classifier(KeywordClassifier.Boundary.NONE, largeTable(1000));
+
+        for (int length : new int[]{1_000, 10_000, 100_000}) {
+            String text = longText(length);
+            int smallSteps = small.countSteps(text);
+            int largeSteps = large.countSteps(text);
+
+            assertTrue(smallSteps >= text.length() && smallSteps <= 2 * text.length());
+            assertTrue(largeSteps >= text.length() && largeSteps <= 2 * text.length());
+        }
+    }
+
+    @Ignore("Benchmark: wall-clock timing with console output")
+    @Test
+    public void benchmark_againstLegacyImplementation() {
+        String shortText = "How do I chat with another user and what is the price of Echo Dot?";
+        String longText = longText(200_000);
+        String[][] largeTable = largeTable(1000);
+        KeywordClassifier small = classifier(KeywordClassifier.Boundary.NONE, GROUPS);
+        KeywordClassifier large = classifier(KeywordClassifier.Boundary.NONE, largeTable);
+
+        report("short, 25 keywords", shortText, GROUPS, small, 20_000);
+        report("long, 25 keywords", longText, GROUPS, small, 20);
+        report("long, 1000 keywords", longText, largeTable, large, 5);
+    }
+
+    private static void report(String name, String text, String[][] groups, KeywordClassifier classifier,
+                               int iterations) {
+        // Warm up both paths before measuring
+        for (int i = 0; i < iterations; i++) {
+            legacyClassify(text, groups);
+            classifier.match(text);
+        }
+
+        long legacyStart = System.nanoTime();
+        int sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += legacyClassify(text, groups).size();
+        }
+        long legacyNs = (System.nanoTime() - legacyStart) / iterations;
+
+        long automatonStart = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += Long.bitCount(classifier.match(text));
+        }
+        long automatonNs = (System.nanoTime() - automatonStart) / iterations;
+
+        System.out.println("KeywordClassifier benchmark [" + name + ", " + text.length() + " chars]: contains "
+                + legacyNs + " ns/op, automaton " + automatonNs + " ns/op (sink " + sink + ")");
+    }
+
+    /** Filler text of at least minLength chars ending in a keyword */
+    private static String longText(int minLength) {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < minLength) {
+            builder.append("lorem ipsum dolor sit amet consectetur adipiscing elit ");
+        }
+        return builder.append("finally a question about the price").toString();
+    }
+
+    private static String[][] largeTable(int keywordCount) {
+        Random random = new Random(7);
+        int groups = 20;
+        int perGroup = keywordCount / groups;
+        String[][] table = new String[groups][];
+        for (int g = 0; g < groups; g++) {
+            table[g] = new String[perGroup + 1];
+            table[g][0] = "Group " + g;
+            for (int k = 1; k <= perGroup; k++) {
+                char[] word = new char[5 + random.nextInt(6)];
+                for (int c = 0; c < word.length; c++) {
+                    word[c] = (char) ('a' + random.nextInt(26));
+                }
+                table[g][k] = new String(word);
+            }
+        }
+        table[0][1] = "price";
+        return table;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Letterbox geometry and mapping of model-space boxes back to the original image
+ */
+public class LetterboxTransformTest {
+
+    @Test
+    public void landscapePhoto_fitsWidthAndPadsVertically() {
+        // 12 MP 4:3 photo
+        LetterboxTransform transform = new LetterboxTransform(4000, 3000, 640, false);
+
+        assertEquals(640, transform.getTargetSize());
+        assertEquals(0.16f, transform.getScale(), 1e-6f);
+        assertEquals(640, transform.getScaledWidth());
+        assertEquals(480, transform.getScaledHeight());
+        assertEquals(0, transform.getPadX());
+        assertEquals(80, transform.getPadY());
+    }
+
+    @Test
+    public void toSource_mapsBoxBackToOriginalCoordinates() {
+        LetterboxTransform transform = new LetterboxTransform(4000, 3000, 640, false);
+        HuggingFaceYOLOService.DetectedObject inModelSpace =
+                new HuggingFaceYOLOService.DetectedObject("person", 0.9f, 160, 80 + 120, 320, 80 + 240);
+
+        HuggingFaceYOLOService.DetectedObject mapped = transform.toSource(inModelSpace);
+
+        assertEquals("person", mapped.getLabel());
+        assertEquals(0.9f, mapped.getConfidence(), 0f);
+        assertEquals(1000f, mapped.getXMin(), 0.01f);
+        assertEquals(750f, mapped.getYMin(), 0.01f);
+        assertEquals(2000f, mapped.getXMax(), 0.01f);
+        assertEquals(1500f, mapped.getYMax(), 0.01f);
+    }
+
+    @Test
+    public void toSource_clampsBoxesInPadding() {
+        LetterboxTransform transform = new LetterboxTransform(3000, 4000, 640, false);
+        assertEquals(80, transform.getPadX());
+
+        assertEquals(0f, transform.toSourceX(10), 0f);
+        assertEquals(3000f, transform.toSourceX(639), 0f);
+    }
+
+    @Test
+    public void smallImage_isNotUpscaled() {
+        LetterboxTransform transform = new LetterboxTransform(320, 200, 640, false);
+
+        assertEquals(1f, transform.getScale(), 0f);
+        assertEquals(320, transform.getTargetSize());
+        assertEquals(60, transform.getPadY());
+        assertEquals(100f, transform.toSourceY(160), 0f);
+    }
+
+    @Test
+    public void smallImage_isUpscaledWhenAllowed() {
+        LetterboxTransform transform = new LetterboxTransform(320, 200, 640, true);
+
+        assertEquals(2f, transform.getScale(), 0f);
+        assertEquals(640, transform.getTargetSize());
+        assertEquals(120, transform.getPadY());
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.myapplication;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Back-pressure, coalescing and cancellation of RequestScheduler, with one worker held busy by a latch
+ */
+public class RequestSchedulerTest {
+
+    private static final long TIMEOUT_S = 5;
+
+    private RequestScheduler scheduler;
+
+    @After
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void dropOldest_failsQueuedRequestForNewOne() throws Exception {
+        scheduler = new RequestScheduler("test", 1, 1, RequestScheduler.BackPressurePolicy.DROP_OLDEST);
+        CountDownLatch release = new CountDownLatch(1);
+        Recorder<String> busy = submitBlocking(null, null, release, "busy");
+        Recorder<String> oldest = submit(null, null, "oldest");
+        Recorder<String> newest = submit(null, null, "newest");
+
+        assertTrue(oldest.await());
+        assertTrue(oldest.error instanceof RejectedExecutionException);
+        release.countDown();
+        assertTrue(busy.await());
+        assertTrue(newest.await());
+        assertEquals("newest", newest.result);
+    }
+
+    @Test
+    public void rejectNewest_failsNewRequestWhenQueueIsFull() throws Exception {
+        scheduler = new RequestScheduler("test", 1, 1, RequestScheduler.BackPressurePolicy.REJECT_NEWEST);
+        CountDownLatch release = new CountDownLatch(1);
+        submitBlocking(null, null, release, "busy");
+        Recorder<String> queued = submit(null, null, "queued");
+        Recorder<String> rejected = submit(null, null, "rejected");
+
+        assertTrue(rejected.await());
+        assertTrue(rejected.error instanceof RejectedExecutionException);
+        release.countDown();
+        assertTrue(queued.await());
+        assertEquals("queued", queued.result);
+    }
+
+    @Test
+    public void sameKey_sharesOneExecution() throws Exception {
+        scheduler = new RequestScheduler("test", 1, 4, RequestScheduler.BackPressurePolicy.REJECT_NEWEST);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        Recorder<String> first = new Recorder<>();
+        Recorder<String> second = new Recorder<>();
+        RequestScheduler.Task<String> task = signal -> {
+            executions.incrementAndGet();
+            release.await(TIMEOUT_S, TimeUnit.SECONDS);
+            return "answer";
+        };
+        scheduler.submit("question", null, task, first);
+        scheduler.submit("question", null, task, second);
+        release.countDown();
+
+        assertTrue(first.await());
+        assertTrue(second.await());
+        assertEquals("answer", first.result);
+        assertEquals("answer", second.result);
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void cancel_oneCoalescedCallerStillReportsToTheOther() throws Exception {
+        scheduler = new RequestScheduler("test", 1, 4, RequestScheduler.BackPressurePolicy.REJECT_NEWEST);
+        CountDownLatch release = new CountDownLatch(1);
+        Recorder<String> kept = submitBlocking("question", null, release, "answer");
+        Recorder<String> dropped = new Recorder<>();
+        RequestScheduler.Handle handle = scheduler.submit("question", null, signal -> "unused", dropped);
+
+        handle.cancel();
+        release.countDown();
+
+        assertTrue(kept.await());
+        assertEquals("answer", kept.result);
+        assertFalse(dropped.await(200));
+    }
+
+    @Test
+    public void cancel_runningRequestSignalsTaskAndReportsNothing() throws Exception {
+        scheduler = new RequestScheduler("test", 1, 1, RequestScheduler.BackPressurePolicy.REJECT_NEWEST);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        Recorder<String> recorder = new Recorder<>();
+        RequestScheduler.Handle handle = scheduler.submit(null, null, signal -> {
+            signal.setOnCancelListener(cancelled::countDown);
+            started.countDown();
+            cancelled.await(TIMEOUT_S, TimeUnit.SECONDS);
+            return "late";
+        }, recorder);
+        assertTrue(started.await(TIMEOUT_S, TimeUnit.SECONDS));
+
+        handle.cancel();
+
+        assertTrue(cancelled.await(TIMEOUT_S, TimeUnit.SECONDS));
+        assertTrue(handle.isCancelled());
+        assertFalse(recorder.await(200));
+    }
+
+    @Test
+    public void cancelAll_cancelsQueuedRequestsOfOwnerOnly() throws Exception {
+        scheduler = new RequestScheduler("test", 1, 4, RequestScheduler.BackPressurePolicy.REJECT_NEWEST);
+        Object activity = new Object();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger ownedRuns = new AtomicInteger();
+        submitBlocking(null, null, release, "busy");
+        Recorder<String> owned = new Recorder<>();
+        scheduler.submit(null, activity, signal -> {
+            ownedRuns.incrementAndGet();
+            return "owned";
+        }, owned);
+        Recorder<String> other = submit(null, new Object(), "other");
+
+        scheduler.cancelAll(activity);
+        release.countDown();
+
+        assertTrue(other.await());
+        assertEquals("other", other.result);
+        assertFalse(owned.await(200));
+        assertEquals(0, ownedRuns.get());
+    }
+
+    private Recorder<String> submit(String key, Object owner, String result) {
+        Recorder<String> recorder = new Recorder<>();
+        scheduler.submit(key, owner, signal -> result, recorder);
+        return recorder;
+    }
+
+    /**
+     * Submit a request that occupies the worker until release, and wait until it has started
+     */
+    private Recorder<String> submitBlocking(String key, Object owner, CountDownLatch release, String result)
+            throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Recorder<String> recorder = new Recorder<>();
+        scheduler.submit(key, owner, signal -> {
+            started.countDown();
+            release.await(TIMEOUT_S, TimeUnit.SECONDS);
+            return result;
+        }, recorder);
+        assertTrue(started.await(TIMEOUT_S, TimeUnit.SECONDS));
+        return recorder;
+    }
+
+    private static class Recorder<T> implements RequestScheduler.Listener<T> {
+        private final CountDownLatch done = new CountDownLatch(1);
+        volatile T result;
+        volatile Exception error;
+
+        @Override
+        public void onSuccess(T result) {
+            this.result = result;
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(Exception error) {
+            this.error = error;
+            done.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            return done.await(TIMEOUT_S, TimeUnit.SECONDS);
+        }
+
+        boolean await(long millis) throws InterruptedException {
+            return done.await(millis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.myapplication;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+/**
+ * Retries, Retry-After handling, circuit breaking and the per-host call limit of
+ * ResilientHttpCaller against a local server
+ */
+public class ResilientHttpCallerTest {
+
+    private MockWebServer server;
+    private OkHttpClient client;
+    private Request request;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        client = new OkHttpClient.Builder()
+                .readTimeout(5, TimeUnit.SECONDS)
+                .build();
+        request = new Request.Builder().url(server.url("/generate")).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void execute_retriesAfterRetryAfterDelay() throws Exception {
+        ResilientHttpCaller caller = newCaller(3, 5);
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "1"));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        long start = System.nanoTime();
+        try (Response response = caller.execute(client, request, true, 0, null)) {
+            assertEquals(200, response.code());
+            assertEquals("ok", response.body().string());
+        }
+
+        // The one-second Retry-After replaces the few milliseconds of backoff
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 1000);
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, caller.getRetryCount());
+        assertEquals(CircuitBreaker.State.CLOSED, caller.getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void execute_failsAtOnceWhenRetryAfterIsTooLong() {
+        ResilientHttpCaller caller = newCaller(3, 5);
+        server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "120"));
+        server.enqueue(new MockResponse().setBody("never requested"));
+
+        try {
+            caller.execute(client, request, true, 0, null).close();
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("120 seconds"));
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void execute_returnsLastResponseWhenRetriesAreExhausted() throws Exception {
+        ResilientHttpCaller caller = newCaller(3, 5);
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setResponseCode(500));
+        }
+
+        try (Response response = caller.execute(client, request, true, 0, null)) {
+            assertEquals(500, response.code());
+        }
+        assertEquals(3, server.getRequestCount());
+        assertEquals(2, caller.getRetryCount());
+    }
+
+    @Test
+    public void execute_triesNonIdempotentRequestOnce() throws Exception {
+        ResilientHttpCaller caller = newCaller(3, 5);
+        server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "0"));
+        server.enqueue(new MockResponse().setBody("never requested"));
+
+        try (Response response = caller.execute(client, request, false, 0, null)) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void execute_failsFastWhileCircuitIsOpen() throws Exception {
+        ResilientHttpCaller caller = newCaller(1, 1);
+        server.enqueue(new MockResponse().setResponseCode(502));
+
+        try (Response response = caller.execute(client, request, true, 0, null)) {
+            assertEquals(502, response.code());
+        }
+        try {
+            caller.execute(client, request, true, 0, null).close();
+            fail("Expected the open circuit to reject the call");
+        } catch (ResilientHttpCaller.CircuitOpenException e) {
+            assertTrue(e.getRetryAfterMillis() > 0);
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void execute_clientErrorsDoNotCountAsFailures() throws Exception {
+        ResilientHttpCaller caller = newCaller(1, 1);
+        server.enqueue(new MockResponse().setResponseCode(400));
+
+        try (Response response = caller.execute(client, request, true, 0, null)) {
+            assertEquals(400, response.code());
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, caller.getCircuitBreaker().getState());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void execute_limitsConcurrentCallsPerHost() throws Exception {
+        AtomicInteger open = new AtomicInteger();
+        AtomicInteger maxOpen = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest recorded) throws InterruptedException {
+                maxOpen.accumulateAndGet(open.incrementAndGet(), Math::max);
+                Thread.sleep(200);
+                open.decrementAndGet();
+                return new MockResponse().setBody("ok");
+            }
+        });
+        ResilientHttpCaller caller = newCaller(1, 5);
+        int calls = HttpClientProvider.MAX_REQUESTS_PER_HOST * 2;
+        ExecutorService pool = Executors.newFixedThreadPool(calls);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < calls; i++) {
+                results.add(pool.submit(() -> {
+                    try (Response response = caller.execute(client, request, true, 0, null)) {
+                        return response.body().string();
+                    }
+                }));
+            }
+            for (Future<String> result : results) {
+                assertEquals("ok", result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(calls, server.getRequestCount());
+        assertTrue(maxOpen.get() <= HttpClientProvider.MAX_REQUESTS_PER_HOST);
+    }
+
+    @Test
+    public void parseRetryAfter_readsSecondsAndHttpDates() {
+        assertEquals(3000, ResilientHttpCaller.parseRetryAfter(" 3 "));
+        assertEquals(-1, ResilientHttpCaller.parseRetryAfter(null));
+        assertEquals(-1, ResilientHttpCaller.parseRetryAfter("soon"));
+        assertEquals(0, ResilientHttpCaller.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+    }
+
+    /**
+     * Caller with a short backoff; the breaker opens after failureThreshold failures for a minute
+     */
+    private static ResilientHttpCaller newCaller(int maxAttempts, int failureThreshold) {
+        return new ResilientHttpCaller("test", maxAttempts, 1, 5,
+                new CircuitBreaker("test", failureThreshold, TimeUnit.MINUTES.toMillis(1)));
+    }
+}
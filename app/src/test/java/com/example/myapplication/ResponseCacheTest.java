@@ -0,0 +1,104 @@
+package com.example.myapplication;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Key normalization, LRU by count and bytes, TTL and disk tier of ResponseCache
+ */
+public class ResponseCacheTest {
+
+    private static final long TTL = TimeUnit.HOURS.toMillis(1);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void buildKey_ignoresCaseSpacingAndTrailingPunctuation() {
+        String key = ResponseCache.buildKey("  What are   your HOURS?! ", "faq");
+
+        assertEquals("what are your hours|faq", key);
+        assertEquals(key, ResponseCache.buildKey("what are your hours", "faq"));
+        assertNotEquals(key, ResponseCache.buildKey("what are your hours", "orders"));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedByCount() {
+        ResponseCache cache = new ResponseCache(2, Long.MAX_VALUE, TTL, null, 0);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        assertEquals("1", cache.getFromMemory("a"));
+
+        cache.put("c", "3");
+
+        assertEquals("1", cache.getFromMemory("a"));
+        assertNull(cache.getFromMemory("b"));
+        assertEquals("3", cache.getFromMemory("c"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedByBytes() {
+        // Two bytes per char: room for two 10-char answers, not three
+        ResponseCache cache = new ResponseCache(100, 50, TTL, null, 0);
+        cache.put("a", "0123456789");
+        cache.put("b", "0123456789");
+        cache.getFromMemory("a");
+
+        cache.put("c", "0123456789");
+
+        assertEquals(2, cache.size());
+        assertNull(cache.getFromMemory("b"));
+        assertNotNull(cache.getFromMemory("a"));
+    }
+
+    @Test
+    public void put_keepsNewEntryLargerThanBudget() {
+        ResponseCache cache = new ResponseCache(100, 10, TTL, null, 0);
+        cache.put("small", "x");
+
+        cache.put("large", "this answer alone exceeds the byte budget");
+
+        assertEquals(1, cache.size());
+        assertNotNull(cache.getFromMemory("large"));
+    }
+
+    @Test
+    public void get_dropsExpiredEntries() {
+        ResponseCache cache = new ResponseCache(10, Long.MAX_VALUE, 0, null, 0);
+        cache.put("a", "1");
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void diskTier_survivesNewInstanceAndIsPromoted() throws Exception {
+        File dir = folder.newFolder("responses");
+        new ResponseCache(10, Long.MAX_VALUE, TTL, dir, 10).put("hours|faq", "9 to 5\nweekdays");
+
+        ResponseCache restarted = new ResponseCache(10, Long.MAX_VALUE, TTL, dir, 10);
+
+        assertNull(restarted.getFromMemory("hours|faq"));
+        assertEquals("9 to 5\nweekdays", restarted.get("hours|faq"));
+        assertEquals(1, restarted.getDiskHitCount());
+        assertEquals("9 to 5\nweekdays", restarted.getFromMemory("hours|faq"));
+    }
+
+    @Test
+    public void diskTier_isTrimmedToMaxEntries() throws Exception {
+        File dir = folder.newFolder("trimmed");
+        ResponseCache cache = new ResponseCache(1, Long.MAX_VALUE, TTL, dir, 3);
+        for (int i = 0; i < 6; i++) {
+            cache.put("question " + i, "answer " + i);
+        }
+        assertTrue(dir.listFiles().length <= 3);
+    }
+}
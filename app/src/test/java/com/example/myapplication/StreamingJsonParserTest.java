@@ -0,0 +1,212 @@
+package com.example.myapplication;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the streaming parsers against the Gson tree walk they replaced, in results and in
+ * allocations on large Gemini and Hugging Face payloads.
+ */
+public class StreamingJsonParserTest {
+
+    private static final int CANDIDATES = 8;
+    private static final int PARTS_PER_CANDIDATE = 50;
+    private static final int DETECTIONS = 5_000;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 20;
+
+    @Test
+    public void readGeminiText_matchesTreeParse() throws Exception {
+        byte[] payload = geminiPayload(CANDIDATES, PARTS_PER_CANDIDATE);
+        assertEquals(treeGeminiText(stream(payload)), streamingGeminiText(stream(payload)));
+    }
+
+    @Test
+    public void readGeminiText_returnsNullWithoutCandidates() throws Exception {
+        String json = "{\"promptFeedback\":{\"blockReason\":\"SAFETY\"}}";
+        assertNull(StreamingJsonParser.readGeminiText(new JsonReader(new StringReader(json))));
+    }
+
+    @Test
+    public void readDetections_matchesTreeParse() throws Exception {
+        byte[] payload = detectionPayload(DETECTIONS);
+        List<HuggingFaceYOLOService.DetectedObject> expected = treeDetections(stream(payload));
+        List<HuggingFaceYOLOService.DetectedObject> actual = streamingDetections(stream(payload));
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            HuggingFaceYOLOService.DetectedObject e = expected.get(i);
+            HuggingFaceYOLOService.DetectedObject a = actual.get(i);
+            assertEquals(e.getLabel(), a.getLabel());
+            assertEquals(e.getConfidence(), a.getConfidence(), 0f);
+            assertEquals(e.getXMin(), a.getXMin(), 0f);
+            assertEquals(e.getYMin(), a.getYMin(), 0f);
+            assertEquals(e.getXMax(), a.getXMax(), 0f);
+            assertEquals(e.getYMax(), a.getYMax(), 0f);
+        }
+    }
+
+    @Test
+    public void readDetections_handlesPredictionsWrapper() throws Exception {
+        String json = "[{\"predictions\":[{\"score\":0.9,\"label\":\"cat\",\"box\":{\"xmin\":1,\"ymin\":2,\"xmax\":3,\"ymax\":4}},"
+                + "{\"score\":0.1,\"label\":\"dog\",\"box\":{\"xmin\":1,\"ymin\":2,\"xmax\":3,\"ymax\":4}}]}]";
+        List<HuggingFaceYOLOService.DetectedObject> detections =
+                StreamingJsonParser.readDetections(new JsonReader(new StringReader(json)), 0.3f);
+        assertEquals(1, detections.size());
+        assertEquals("cat", detections.get(0).getLabel());
+        assertEquals(4f, detections.get(0).getYMax(), 0f);
+    }
+
+    @Test
+    public void readGeminiText_allocatesLessThanTreeParse() throws Exception {
+        byte[] payload = geminiPayload(CANDIDATES, PARTS_PER_CANDIDATE);
+        long tree = measureAllocations(() -> treeGeminiText(stream(payload)));
+        long streaming = measureAllocations(() -> streamingGeminiText(stream(payload)));
+        assertTrue("streaming parse should allocate less than string + tree", streaming < tree);
+    }
+
+    @Test
+    public void readDetections_allocatesLessThanTreeParse() throws Exception {
+        byte[] payload = detectionPayload(DETECTIONS);
+        long tree = measureAllocations(() -> treeDetections(stream(payload)));
+        long streaming = measureAllocations(() -> streamingDetections(stream(payload)));
+        assertTrue("streaming parse should allocate less than string + tree", streaming < tree);
+    }
+
+    // Old path: whole body as a String, then a JsonObject/JsonArray tree
+
+    private static String treeGeminiText(InputStream in) throws IOException {
+        JsonObject json = JsonParser.parseString(readString(in)).getAsJsonObject();
+        return json.getAsJsonArray("candidates").get(0).getAsJsonObject()
+                .getAsJsonObject("content").getAsJsonArray("parts").get(0).getAsJsonObject()
+                .get("text").getAsString();
+    }
+
+    private static List<HuggingFaceYOLOService.DetectedObject> treeDetections(InputStream in) throws IOException {
+        List<HuggingFaceYOLOService.DetectedObject> detections = new ArrayList<>();
+        JsonArray array = JsonParser.parseString(readString(in)).getAsJsonArray();
+        for (JsonElement element : array) {
+            JsonObject obj = element.getAsJsonObject();
+            float score = obj.get("score").getAsFloat();
+            if (score > 0.3f) {
+                JsonObject box = obj.getAsJsonObject("box");
+                detections.add(new HuggingFaceYOLOService.DetectedObject(obj.get("label").getAsString(), score,
+                        box.get("xmin").getAsFloat(), box.get("ymin").getAsFloat(),
+                        box.get("xmax").getAsFloat(), box.get("ymax").getAsFloat()));
+            }
+        }
+        return detections;
+    }
+
+    // New path: pull the needed fields straight from the stream
+
+    private static String streamingGeminiText(InputStream in) throws IOException {
+        try (JsonReader reader = new JsonReader(utf8(in))) {
+            return StreamingJsonParser.readGeminiText(reader);
+        }
+    }
+
+    private static List<HuggingFaceYOLOService.DetectedObject> streamingDetections(InputStream in) throws IOException {
+        try (JsonReader reader = new JsonReader(utf8(in))) {
+            return StreamingJsonParser.readDetections(reader, 0.3f);
+        }
+    }
+
+    // Allocation helpers
+
+    private interface ParseRun {
+        Object run() throws IOException;
+    }
+
+    /**
+     * Average bytes allocated by the current thread per run, after warm-up
+     */
+    private static long measureAllocations(ParseRun run) throws IOException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        Object sink = null;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink = run.run();
+        }
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            sink = run.run();
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        assertNotNull(sink);
+        return allocated / MEASURED_ROUNDS;
+    }
+
+    private static InputStream stream(byte[] payload) {
+        return new ByteArrayInputStream(payload);
+    }
+
+    private static Reader utf8(InputStream in) {
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] geminiPayload(int candidates, int partsPerCandidate) {
+        StringBuilder json = new StringBuilder("{\"candidates\":[");
+        for (int c = 0; c < candidates; c++) {
+            if (c > 0) json.append(',');
+            json.append("{\"content\":{\"parts\":[");
+            // The first candidate has a single part, like a normal answer
+            int parts = c == 0 ? 1 : partsPerCandidate;
+            for (int p = 0; p < parts; p++) {
+                if (p > 0) json.append(',');
+                json.append("{\"text\":\"");
+                for (int w = 0; w < 40; w++) {
+                    json.append("candidate ").append(c).append(" part ").append(p).append(" word ").append(w).append(' ');
+                }
+                json.append("\"}");
+            }
+            json.append("],\"role\":\"model\"},\"finishReason\":\"STOP\",\"index\":").append(c)
+                    .append(",\"safetyRatings\":[{\"category\":\"HARM_CATEGORY_HARASSMENT\",\"probability\":\"NEGLIGIBLE\"}]}");
+        }
+        json.append("],\"usageMetadata\":{\"promptTokenCount\":12,\"totalTokenCount\":4096}}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] detectionPayload(int count) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) json.append(',');
+            json.append(String.format(Locale.US,
+                    "{\"score\":%.4f,\"label\":\"object%d\",\"box\":{\"xmin\":%d,\"ymin\":%d,\"xmax\":%d,\"ymax\":%d}}",
+                    (i % 100) / 100.0, i % 80, i % 600, i % 400, i % 600 + 40, i % 400 + 30));
+        }
+        json.append(']');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.myapplication;
+
+import org.junit.After;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tile planning, cross-tile merging and recall of TiledDetector against a simulated model
+ * that, like yolov8n, misses objects left with too few pixels after the resize to its 640px input.
+ * The recall vs. latency benchmark is ignored by default; run it on its own to compare tile sizes.
+ */
+public class TiledDetectorTest {
+
+    private static final int MODEL_INPUT = 640;
+    // Smallest object side the simulated model finds, in model-input pixels
+    private static final float MIN_OBJECT_PIXELS = 10f;
+    // Simulated inference time per call in the benchmark
+    private static final long INFERENCE_MS = 15;
+
+    private final DetectionPostProcessor processor =
+            new DetectionPostProcessor.Builder(new String[]{"object"}).build();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void planTiles_coversImageWithOverlapAndEdgeAlignedLastTile() {
+        List<TiledDetector.Tile> tiles = TiledDetector.planTiles(4000, 3000, 1024, 128);
+
+        // Columns start at 0, 896, 1792, 2688, 2976; rows at 0, 896, 1792, 1976
+        assertEquals(5 * 4, tiles.size());
+        TiledDetector.Tile last = tiles.get(tiles.size() - 1);
+        assertEquals(4000, last.x + last.width);
+        assertEquals(3000, last.y + last.height);
+        for (TiledDetector.Tile tile : tiles) {
+            assertTrue(tile.width <= 1024 && tile.height <= 1024);
+        }
+        // Every pixel column is covered with at least the overlap between neighbours
+        for (int i = 1; i < 5; i++) {
+            int shared = tiles.get(i - 1).x + tiles.get(i - 1).width - tiles.get(i).x;
+            assertTrue(shared >= 128);
+        }
+    }
+
+    @Test
+    public void planTiles_smallImageIsOneTile() {
+        List<TiledDetector.Tile> tiles = TiledDetector.planTiles(800, 600, 1024, 128);
+
+        assertEquals(1, tiles.size());
+        assertEquals(800, tiles.get(0).width);
+        assertEquals(600, tiles.get(0).height);
+    }
+
+    @Test
+    public void detect_mergesObjectSeenByTwoTilesAndDropsCutBoxes() throws IOException {
+        // Object at 950..1000 lies in the overlap of the first two 1024 tiles
+        List<GroundTruth> truth = Collections.singletonList(new GroundTruth(950, 100, 1000, 150));
+        TiledDetector detector = new TiledDetector(processor, 1024, 128, false, executor);
+
+        List<HuggingFaceYOLOService.DetectedObject> detections =
+                detector.detect(2000, 1000, tile -> simulateModel(truth, tile, 0f));
+
+        assertEquals(1, detections.size());
+        assertEquals(950f, detections.get(0).getXMin(), 0.01f);
+        assertEquals(1000f, detections.get(0).getXMax(), 0.01f);
+    }
+
+    @Test
+    public void detect_fullImagePassFindsObjectsLargerThanOverlap() throws IOException {
+        // Crosses the inner edge of every tile that contains part of it
+        List<GroundTruth> truth = Collections.singletonList(new GroundTruth(700, 100, 1300, 700));
+
+        TiledDetector tilesOnly = new TiledDetector(processor, 1024, 128, false, executor);
+        TiledDetector withFullPass = new TiledDetector(processor, 1024, 128, true, executor);
+
+        assertTrue(tilesOnly.detect(2000, 1000, tile -> simulateModel(truth, tile, 0.3f)).isEmpty());
+        assertEquals(1, withFullPass.detect(2000, 1000, tile -> simulateModel(truth, tile, 0.3f)).size());
+    }
+
+    @Test
+    public void detect_propagatesTileFailure() {
+        TiledDetector detector = new TiledDetector(processor, 512, 64, true, executor);
+        try {
+            detector.detect(2000, 1000, tile -> {
+                if (tile.x > 0) {
+                    throw new IOException("HTTP 503");
+                }
+                return Collections.emptyList();
+            });
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("HTTP 503", e.getMessage());
+        }
+    }
+
+    @Test
+    public void detect_tilingRecoversSmallObjectsMissedUntiled() throws IOException {
+        // 12 MP photo with objects from 20 to 400 px
+        int width = 4000;
+        int height = 3000;
+        List<GroundTruth> truth = scene(width, height, new Random(42));
+
+        TiledDetector untiled = new TiledDetector(processor, width, 0, true, executor);
+        float untiledRecall = recall(truth, untiled.detect(width, height, tile -> simulateModel(truth, tile, 0.6f)));
+        float bestTiledRecall = 0f;
+        for (int[] config : new int[][]{{2048, 256}, {1024, 128}, {640, 64}}) {
+            TiledDetector tiled = new TiledDetector(processor, config[0], config[1], true, executor);
+            bestTiledRecall = Math.max(bestTiledRecall,
+                    recall(truth, tiled.detect(width, height, tile -> simulateModel(truth, tile, 0.6f))));
+        }
+
+        assertTrue("untiled detection should miss the small objects", untiledRecall < 0.8f);
+        assertTrue("tiling should recover them", bestTiledRecall > untiledRecall + 0.2f);
+    }
+
+    @Ignore("Benchmark: sleeps per simulated inference and prints a table")
+    @Test
+    public void benchmark_recallVsLatency() throws IOException {
+        int width = 4000;
+        int height = 3000;
+        List<GroundTruth> truth = scene(width, height, new Random(42));
+
+        for (int[] config : new int[][]{{width, 0}, {2048, 256}, {1024, 128}, {640, 64}}) {
+            TiledDetector detector = new TiledDetector(processor, config[0], config[1], true, executor);
+            int tileCount = TiledDetector.planTiles(width, height, config[0], config[1]).size();
+
+            long start = System.nanoTime();
+            List<HuggingFaceYOLOService.DetectedObject> detections = detector.detect(width, height, tile -> {
+                sleep(INFERENCE_MS);
+                return simulateModel(truth, tile, 0.6f);
+            });
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.println(String.format(Locale.US,
+                    "tile %4d overlap %3d: %2d tiles, recall %.2f, %d detections, %d ms",
+                    config[0], config[1], tileCount, recall(truth, detections), detections.size(), elapsedMs));
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class GroundTruth {
+        final float x1, y1, x2, y2;
+
+        GroundTruth(float x1, float y1, float x2, float y2) {
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+        }
+    }
+
+    /**
+     * Objects on a grid of cells so they never overlap, sizes spread log-uniformly
+     */
+    private static List<GroundTruth> scene(int width, int height, Random random) {
+        List<GroundTruth> truth = new ArrayList<>();
+        int columns = 8;
+        int rows = 5;
+        float cellWidth = width / (float) columns;
+        float cellHeight = height / (float) rows;
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                float size = (float) (20 * Math.pow(20, random.nextDouble()));
+                float x = column * cellWidth + random.nextFloat() * Math.max(0, cellWidth - size);
+                float y = row * cellHeight + random.nextFloat() * Math.max(0, cellHeight - size);
+                truth.add(new GroundTruth(x, y, x + size, y + size));
+            }
+        }
+        return truth;
+    }
+
+    /**
+     * Model stand-in: finds objects that keep enough pixels after the resize and are at
+     * least minVisible inside the tile, returning the visible part in tile coordinates.
+     */
+    private static List<HuggingFaceYOLOService.DetectedObject> simulateModel(List<GroundTruth> truth,
+                                                                            TiledDetector.Tile tile,
+                                                                            float minVisible) {
+        float scale = Math.min(1f, MODEL_INPUT / (float) Math.max(tile.width, tile.height));
+        List<HuggingFaceYOLOService.DetectedObject> detections = new ArrayList<>();
+        for (GroundTruth t : truth) {
+            float x1 = Math.max(t.x1, tile.x);
+            float y1 = Math.max(t.y1, tile.y);
+            float x2 = Math.min(t.x2, tile.x + tile.width);
+            float y2 = Math.min(t.y2, tile.y + tile.height);
+            if (x2 <= x1 || y2 <= y1) {
+                continue;
+            }
+            float visible = (x2 - x1) * (y2 - y1) / ((t.x2 - t.x1) * (t.y2 - t.y1));
+            float side = Math.min(t.x2 - t.x1, t.y2 - t.y1) * scale;
+            if (visible >= minVisible && side >= MIN_OBJECT_PIXELS) {
+                detections.add(new HuggingFaceYOLOService.DetectedObject("object", 0.8f,
+                        x1 - tile.x, y1 - tile.y, x2 - tile.x, y2 - tile.y));
+            }
+        }
+        return detections;
+    }
+
+    private static float recall(List<GroundTruth> truth, List<HuggingFaceYOLOService.DetectedObject> detections) {
+        int found = 0;
+        for (GroundTruth t : truth) {
+            for (HuggingFaceYOLOService.DetectedObject d : detections) {
+                if (iou(t, d) >= 0.5f) {
+                    found++;
+                    break;
+                }
+            }
+        }
+        return found / (float) truth.size();
+    }
+
+    private static float iou(GroundTruth t, HuggingFaceYOLOService.DetectedObject d) {
+        float w = Math.min(t.x2, d.getXMax()) - Math.max(t.x1, d.getXMin());
+        float h = Math.min(t.y2, d.getYMax()) - Math.max(t.y1, d.getYMin());
+        if (w <= 0 || h <= 0) {
+            return 0f;
+        }
+        float intersection = w * h;
+        float union = (t.x2 - t.x1) * (t.y2 - t.y1)
+                + (d.getXMax() - d.getXMin()) * (d.getYMax() - d.getYMin()) - intersection;
+        return intersection / union;
+    }
+}
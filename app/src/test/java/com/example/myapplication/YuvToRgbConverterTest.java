@@ -0,0 +1,82 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Color conversion and rotation of YuvToRgbConverter.yuvToArgb on tiny frames
+ */
+public class YuvToRgbConverterTest {
+
+    @Test
+    public void neutralChroma_givesGray() {
+        int[] out = convert(new byte[]{0, 64, (byte) 128, (byte) 255}, 128, 128, 2, 2, 0);
+
+        assertEquals(0xFF000000, out[0]);
+        assertEquals(0xFF404040, out[1]);
+        assertEquals(0xFF808080, out[2]);
+        assertEquals(0xFFFFFFFF, out[3]);
+    }
+
+    @Test
+    public void saturatedChroma_isClamped() {
+        // Strong red: high Cr, low Cb
+        int[] out = convert(new byte[]{(byte) 200, (byte) 200, (byte) 200, (byte) 200}, 0, 255, 2, 2, 0);
+        int pixel = out[0];
+
+        assertEquals(255, (pixel >> 16) & 0xFF);
+        assertEquals(0, pixel & 0xFF);
+    }
+
+    @Test
+    public void rotation90_movesTopLeftToTopRight() {
+        // 2x1 frame (width 2, height 1): luma 10, 20
+        int[] out = convertRow(new byte[]{10, 20}, 90);
+
+        // Rotated frame is 1 wide, 2 high: left pixel on top
+        assertEquals(10, out[0] & 0xFF);
+        assertEquals(20, out[1] & 0xFF);
+    }
+
+    @Test
+    public void rotation180_reversesPixels() {
+        int[] out = convertRow(new byte[]{10, 20}, 180);
+        assertEquals(20, out[0] & 0xFF);
+        assertEquals(10, out[1] & 0xFF);
+    }
+
+    @Test
+    public void rotation270_putsLeftPixelAtBottom() {
+        int[] out = convertRow(new byte[]{10, 20}, 270);
+        assertEquals(20, out[0] & 0xFF);
+        assertEquals(10, out[1] & 0xFF);
+    }
+
+    @Test
+    public void rowStride_skipsPadding() {
+        // 2x2 luma with 2 bytes of row padding
+        byte[] y = {10, 20, 99, 99, 30, 40, 99, 99};
+        byte[] u = {(byte) 128};
+        byte[] v = {(byte) 128};
+        int[] out = new int[4];
+        YuvToRgbConverter.yuvToArgb(y, u, v, 2, 2, 4, 1, 1, 1, 0, out);
+
+        assertEquals(30, out[2] & 0xFF);
+        assertEquals(40, out[3] & 0xFF);
+    }
+
+    private static int[] convert(byte[] y, int u, int v, int width, int height, int rotation) {
+        int[] out = new int[width * height];
+        YuvToRgbConverter.yuvToArgb(y, new byte[]{(byte) u}, new byte[]{(byte) v}, width, height,
+                width, 1, 1, 1, rotation, out);
+        return out;
+    }
+
+    private static int[] convertRow(byte[] y, int rotation) {
+        int[] out = new int[y.length];
+        YuvToRgbConverter.yuvToArgb(y, new byte[]{(byte) 128}, new byte[]{(byte) 128}, y.length, 1,
+                y.length, 1, 1, 1, rotation, out);
+        return out;
+    }
+}